@@ -0,0 +1,80 @@
+package tbp.land.java8.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import tbp.land.java8.tutorial.auxiliar.streams.AdaptiveParallelism;
+import tbp.land.java8.tutorial.auxiliar.streams.ParallelismDecision;
+
+/**
+ * Sequential vs parallel vs {@link AdaptiveParallelism}, from the 8 strings of {@code J2StreamOperations} up to a million,
+ * with a cheap and an expensive element ({@code tokens} of {@link Blackhole#consumeCPU(long)} each).
+ *
+ * For every row of the matrix, {@code adaptive} should be close to the better of {@code sequential} and {@code parallel};
+ * the decisions of the last iteration are printed at the end of each trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 2, jvmArgsAppend = { "-Xms2g", "-Xmx2g" })
+public class AdaptiveParallelismBenchmark {
+
+  @Param({ "8", "1000", "100000", "1000000" })
+  public int elementNo;
+
+  @Param({ "0", "100" })
+  public long tokens;
+
+  private List<String> values;
+  private AdaptiveParallelism adaptive;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    values = BenchmarkData.strings(elementNo);
+    adaptive = AdaptiveParallelism.builder().logSize(1).build();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    for (ParallelismDecision decision : adaptive.decisions()) {
+      System.out.println(decision);
+    }
+  }
+
+  @Benchmark
+  public long sequential() {
+    return values.stream().mapToLong(this::cost).sum();
+  }
+
+  @Benchmark
+  public long parallel() {
+    return values.parallelStream().mapToLong(this::cost).sum();
+  }
+
+  @Benchmark
+  public long adaptive() {
+    return adaptive.run("sum", values, s -> s.mapToLong(this::cost).sum());
+  }
+
+  private long cost(String value) {
+    Blackhole.consumeCPU(tokens);
+    return value.length();
+  }
+}
@@ -0,0 +1,131 @@
+package tbp.land.java8.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import tbp.land.java8.tutorial.auxiliar.entities.Person;
+import tbp.land.java8.tutorial.auxiliar.streams.Batched;
+
+/**
+ * Pipelines of J2 and J3, sequential, as java.util.stream vs {@link Batched} with the same lambdas, for a few batch sizes.
+ *
+ * Every pipeline shape runs once in the setup, through both engines, so that the lambda call sites inside the stages
+ * see more than one lambda, as they would in an application with many pipelines.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 2, jvmArgsAppend = { "-Xms2g", "-Xmx2g" })
+public class BatchedBenchmark {
+
+  private static final Predicate<String> DIVISIBLE_BY_2 = (it) -> Integer.parseInt(it.substring(1, 2)) % 2 == 0;
+
+  @Param({ "1000000" })
+  public int elementNo;
+
+  @Param({ "256", "1024", "4096" })
+  public int batchSize;
+
+  private List<String> strings;
+  private List<Person> persons;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    strings = BenchmarkData.strings(elementNo);
+    persons = BenchmarkData.persons(elementNo);
+    streamCountNotDivisibleBy2();
+    batchedCountNotDivisibleBy2();
+    streamFilterMapToList();
+    batchedFilterMapToList();
+    streamSumOfAgesStartingWithO();
+    batchedSumOfAgesStartingWithO();
+    streamFilterSortMap();
+    batchedFilterSortMap();
+  }
+
+  @Benchmark
+  public long streamCountNotDivisibleBy2() {
+    return strings.stream() //
+      .filter(DIVISIBLE_BY_2.negate()) //
+      .count();
+  }
+
+  @Benchmark
+  public long batchedCountNotDivisibleBy2() {
+    return Batched.of(strings).batchSize(batchSize) //
+      .filter(DIVISIBLE_BY_2.negate()) //
+      .count();
+  }
+
+  @Benchmark
+  public List<String> streamFilterMapToList() {
+    return strings.stream() //
+      .filter(it -> it.startsWith("a") || it.startsWith("b")) //
+      .map(String::toUpperCase) //
+      .filter(it -> it.endsWith("1")) //
+      .collect(Collectors.toList());
+  }
+
+  @Benchmark
+  public List<String> batchedFilterMapToList() {
+    return Batched.of(strings).batchSize(batchSize) //
+      .filter(it -> it.startsWith("a") || it.startsWith("b")) //
+      .map(String::toUpperCase) //
+      .filter(it -> it.endsWith("1")) //
+      .toList();
+  }
+
+  @Benchmark
+  public long streamSumOfAgesStartingWithO() {
+    return persons.stream() //
+      .filter(it -> it.getName().startsWith("O")) //
+      .mapToInt(Person::getAge) //
+      .filter(it -> it >= 18) //
+      .asLongStream() //
+      .sum();
+  }
+
+  @Benchmark
+  public long batchedSumOfAgesStartingWithO() {
+    return Batched.of(persons).batchSize(batchSize) //
+      .filter(it -> it.getName().startsWith("O")) //
+      .mapToInt(Person::getAge) //
+      .filter(it -> it >= 18) //
+      .sum();
+  }
+
+  @Benchmark
+  public List<String> streamFilterSortMap() {
+    return strings.stream() //
+      .filter(DIVISIBLE_BY_2) //
+      .sorted() //
+      .map(String::toUpperCase) //
+      .collect(Collectors.toList());
+  }
+
+  @Benchmark
+  public List<String> batchedFilterSortMap() {
+    return Batched.of(strings).batchSize(batchSize) //
+      .filter(DIVISIBLE_BY_2) //
+      .sorted() //
+      .map(String::toUpperCase) //
+      .toList();
+  }
+}
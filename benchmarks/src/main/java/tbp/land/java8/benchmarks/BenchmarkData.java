@@ -0,0 +1,71 @@
+package tbp.land.java8.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import tbp.land.java8.tutorial.auxiliar.entities.Person;
+
+/**
+ * The sample data from J1/J2/J3, scaled up to any size.
+ *
+ * Everything is generated from a fixed seed so that two runs (or two forks) always see the same values.
+ */
+public final class BenchmarkData {
+
+  private static final long SEED = 0xCAFEBABEL;
+
+  private static final String[] NAMES = { "Alin", "Dan", "Irina", "Oana", "Ofelia", "peter", "anna", "mike", "xenia" };
+
+  private BenchmarkData() {
+  }
+
+  /**
+   * Strings shaped like the ones from {@code J2StreamOperations.strings}: a letter followed by a digit, e.g. "d2".
+   */
+  public static List<String> strings(int elementNo) {
+    SplittableRandom random = new SplittableRandom(SEED);
+    List<String> values = new ArrayList<>(elementNo);
+    for (int i = 0; i < elementNo; i++) {
+      char letter = (char) ('a' + random.nextInt(26));
+      values.add(letter + Integer.toString(random.nextInt(10)));
+    }
+    return values;
+  }
+
+  /**
+   * Persons shaped like the ones from {@code J3StreamOperationsAdvanced.persons}, aged between 0 and 99.
+   */
+  public static List<Person> persons(int elementNo) {
+    SplittableRandom random = new SplittableRandom(SEED);
+    List<Person> values = new ArrayList<>(elementNo);
+    for (int i = 0; i < elementNo; i++) {
+      values.add(new Person(NAMES[random.nextInt(NAMES.length)], random.nextInt(100)));
+    }
+    return values;
+  }
+
+  /**
+   * The same persons as {@link #persons(int)}, generated one at a time, for more of them than fit on the heap.
+   */
+  public static Stream<Person> personStream(long elementNo) {
+    SplittableRandom random = new SplittableRandom(SEED);
+    return LongStream.range(0, elementNo) //
+      .mapToObj(it -> new Person(NAMES[random.nextInt(NAMES.length)], random.nextInt(100)));
+  }
+
+  /**
+   * The UUID strings from {@code J2StreamOperations.parallelStreamSpeed()}.
+   */
+  public static List<String> uuids(int elementNo) {
+    SplittableRandom random = new SplittableRandom(SEED);
+    List<String> values = new ArrayList<>(elementNo);
+    for (int i = 0; i < elementNo; i++) {
+      values.add(new UUID(random.nextLong(), random.nextLong()).toString());
+    }
+    return values;
+  }
+}
@@ -0,0 +1,41 @@
+package tbp.land.java8.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of {@code benchmarks.jar}.
+ *
+ * Accepts exactly the same arguments as {@code org.openjdk.jmh.Main}, but always attaches the gc profiler
+ * so that every run reports the allocation rate next to the throughput and average time.
+ *
+ * e.g. {@code java -jar benchmarks/target/benchmarks.jar StreamOperations -p elementNo=1000000}
+ */
+public class BenchmarkRunner {
+
+  public static void main(String[] args) throws Exception {
+    CommandLineOptions cmd = new CommandLineOptions(args);
+
+    if (cmd.shouldHelp()) {
+      cmd.showHelp();
+      return;
+    }
+
+    ChainedOptionsBuilder options = new OptionsBuilder().parent(cmd);
+    boolean gcAlreadyThere = cmd.getProfilers().stream() //
+      .anyMatch(it -> it.getKlass().equals(GCProfiler.class.getName()) || it.getKlass().equals("gc"));
+    if (!gcAlreadyThere) {
+      options.addProfiler(GCProfiler.class);
+    }
+
+    Runner runner = new Runner(options.build());
+    if (cmd.shouldList() || cmd.shouldListWithParams()) {
+      runner.list();
+      return;
+    }
+    runner.run();
+  }
+}
@@ -0,0 +1,119 @@
+package tbp.land.java8.benchmarks;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.IntStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import tbp.land.java8.tutorial.auxiliar.concurrent.TaskScope;
+import tbp.land.java8.tutorial.auxiliar.streams.BlockingStreams;
+
+/**
+ * {@code tasks} small tasks which each block for {@code latencyMicros} (a parked thread standing in for I/O),
+ * in the style of {@code J1Lambda.runnable()}, at most {@code maxConcurrency} at a time:
+ * a {@link TaskScope} on virtual threads vs one on a pool of platform threads vs one on the common ForkJoinPool,
+ * whose few threads all block; and the same as a stream stage, {@link BlockingStreams#mapBlocking} vs a parallel map.
+ *
+ * Virtual threads need java 21 to run the benchmarks (before that they fall back to platform threads);
+ * expect the common pool to take about {@code tasks * latency / cores}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BlockingTasksBenchmark {
+
+  @Param({ "10000", "100000", "1000000" })
+  public int tasks;
+
+  @Param({ "100" })
+  public long latencyMicros;
+
+  @Param({ "1000" })
+  public int maxConcurrency;
+
+  private long latencyNanos;
+
+  private ExecutorService platformThreads;
+
+  @Setup
+  public void setUp() {
+    latencyNanos = TimeUnit.MICROSECONDS.toNanos(latencyMicros);
+    platformThreads = Executors.newFixedThreadPool(maxConcurrency);
+  }
+
+  @TearDown
+  public void tearDown() {
+    platformThreads.shutdown();
+  }
+
+  @Benchmark
+  public long virtualThreads() throws InterruptedException {
+    try (TaskScope scope = TaskScope.open(maxConcurrency)) {
+      return runAll(scope);
+    }
+  }
+
+  @Benchmark
+  public long platformThreads() throws InterruptedException {
+    try (TaskScope scope = TaskScope.open(maxConcurrency, platformThreads)) {
+      return runAll(scope);
+    }
+  }
+
+  @Benchmark
+  public long commonPool() throws InterruptedException {
+    try (TaskScope scope = TaskScope.open(maxConcurrency, ForkJoinPool.commonPool())) {
+      return runAll(scope);
+    }
+  }
+
+  @Benchmark
+  public long mapBlocking() {
+    return BlockingStreams.mapBlocking(IntStream.range(0, tasks).boxed(), this::call, maxConcurrency) //
+      .mapToLong(Integer::longValue) //
+      .sum();
+  }
+
+  @Benchmark
+  public long parallelMap() {
+    return IntStream.range(0, tasks).boxed() //
+      .parallel() //
+      .map(this::call) //
+      .mapToLong(Integer::longValue) //
+      .sum();
+  }
+
+  private long runAll(TaskScope scope) throws InterruptedException {
+    LongAdder sum = new LongAdder();
+    for (int i = 0; i < tasks; i++) {
+      int task = i;
+      scope.fork(() -> sum.add(call(task)));
+    }
+    scope.join();
+    return sum.sum();
+  }
+
+  private Integer call(Integer task) {
+    LockSupport.parkNanos(latencyNanos);
+    return task;
+  }
+}
@@ -0,0 +1,92 @@
+package tbp.land.java8.benchmarks;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import tbp.land.java8.tutorial.auxiliar.entities.Person;
+import tbp.land.java8.tutorial.auxiliar.streams.CachedStream;
+
+/**
+ * Repeated {@code anyMatch}/{@code noneMatch} probes against the same filtered source, as in
+ * {@code J3StreamOperationsAdvanced.CANNOTReuseStreams()}: a {@code Supplier<Stream>} which filters again for every probe
+ * vs a {@link CachedStream} which filters once and replays.
+ *
+ * {@code cachedCold} builds a new cache for every invocation, so it includes the cost of filling it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = { "-Xms2g", "-Xmx2g" })
+public class CachedStreamBenchmark extends ParallelismState {
+
+  private static final int PROBES = 10;
+
+  @Param({ "100000", "1000000" })
+  public int elementNo;
+
+  private List<Person> persons;
+
+  private Supplier<Stream<Person>> supplier;
+
+  private CachedStream<Person> cached;
+
+  @Setup
+  public void setUp() {
+    persons = BenchmarkData.persons(elementNo);
+    supplier = () -> stream(persons) //
+      .filter(it -> it.getName().toLowerCase(Locale.ROOT).startsWith("o") && it.getAge() >= 18);
+    cached = CachedStream.of(supplier);
+    cached.stream().count();
+  }
+
+  @Benchmark
+  public int supplierProbes() {
+    return run(() -> probe(supplier));
+  }
+
+  @Benchmark
+  public int cachedWarm() {
+    return run(() -> probe(this::cachedStream));
+  }
+
+  @Benchmark
+  public int cachedCold() {
+    CachedStream<Person> cold = CachedStream.of(supplier);
+    return run(() -> probe(() -> threads > 1 ? cold.parallelStream() : cold.stream()));
+  }
+
+  private Stream<Person> cachedStream() {
+    return threads > 1 ? cached.parallelStream() : cached.stream();
+  }
+
+  private static int probe(Supplier<Stream<Person>> source) {
+    int matches = 0;
+    for (int probe = 0; probe < PROBES; probe++) {
+      int age = 90 + probe;
+      if (source.get().anyMatch(it -> it.getAge() == age && it.getName().equals("Ofelia"))) {
+        matches++;
+      }
+      if (source.get().noneMatch(it -> it.getAge() < 18)) {
+        matches++;
+      }
+    }
+    return matches;
+  }
+}
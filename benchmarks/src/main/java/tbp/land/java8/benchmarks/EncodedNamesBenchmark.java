@@ -0,0 +1,125 @@
+package tbp.land.java8.benchmarks;
+
+import java.util.IntSummaryStatistics;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import tbp.land.java8.tutorial.auxiliar.entities.EncodedPersonTable;
+import tbp.land.java8.tutorial.auxiliar.entities.Person;
+import tbp.land.java8.tutorial.auxiliar.streams.RecordCodecs;
+
+/**
+ * The name operations of {@code J3StreamOperationsAdvanced.collectors()} over a {@code List<Person>} vs the int codes of
+ * an {@link EncodedPersonTable}, on {@code elementNo} rows with about {@code nameNo} distinct names.
+ *
+ * Every person of the list gets a String of its own, as when read from a file. The heap taken by the names either way
+ * (String per row vs int code per row plus the dictionary) is printed at the end of the setup.
+ *
+ * 10M rows fit in the 4g heap; 50M need about 10g:
+ * {@code java -jar benchmarks.jar EncodedNames -p elementNo=50000000 -jvmArgsAppend -Xmx10g}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 2, jvmArgsAppend = { "-Xmx4g" })
+public class EncodedNamesBenchmark {
+
+  @Param({ "10000000" })
+  public int elementNo;
+
+  @Param({ "1000" })
+  public int nameNo;
+
+  private List<Person> persons;
+  private EncodedPersonTable table;
+  private String someName;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    int[] row = { 0 };
+    persons = BenchmarkData.personStream(elementNo) //
+      .map(it -> new Person(it.getName() + (row[0]++ % nameNo) / 9, it.getAge())) //
+      .collect(Collectors.toList());
+    table = EncodedPersonTable.of(persons);
+    someName = persons.get(elementNo / 2).getName();
+
+    long stringBytes = 0;
+    for (Person person : persons) {
+      stringBytes += RecordCodecs.strings().heapSize(person.getName());
+    }
+    long dictionaryBytes = 0;
+    for (String name : table.distinctNames()) {
+      // the String, plus a map entry and an Integer for its code
+      dictionaryBytes += RecordCodecs.strings().heapSize(name) + 48;
+    }
+    System.out.printf("%nnames as Strings: %d MB, as codes: %d MB (dictionary of %d names: %d KB)%n", stringBytes >> 20, //
+      ((long) Integer.BYTES * elementNo + dictionaryBytes) >> 20, table.getDictionary().size(), dictionaryBytes >> 10);
+  }
+
+  @Benchmark
+  public Map<String, Long> listCountByName() {
+    return persons.stream().collect(Collectors.groupingBy(Person::getName, Collectors.counting()));
+  }
+
+  @Benchmark
+  public Map<String, Long> tableCountByName() {
+    return table.countByName();
+  }
+
+  @Benchmark
+  public Map<String, IntSummaryStatistics> listAgeStatisticsByName() {
+    return persons.stream().collect(Collectors.groupingBy(Person::getName, Collectors.summarizingInt(Person::getAge)));
+  }
+
+  @Benchmark
+  public Map<String, IntSummaryStatistics> tableAgeStatisticsByName() {
+    return table.ageStatisticsByName();
+  }
+
+  @Benchmark
+  public List<String> listDistinctNames() {
+    return persons.stream().map(Person::getName).distinct().collect(Collectors.toList());
+  }
+
+  @Benchmark
+  public List<String> tableDistinctNames() {
+    return table.distinctNames();
+  }
+
+  @Benchmark
+  public long listCountNamed() {
+    return persons.stream().filter(it -> it.getName().equals(someName)).count();
+  }
+
+  @Benchmark
+  public long tableCountNamed() {
+    return table.rowsNamed(someName).count();
+  }
+
+  @Benchmark
+  public long listCountStartingWithO() {
+    return persons.stream().filter(it -> it.getName().startsWith("O")).count();
+  }
+
+  @Benchmark
+  public long tableCountStartingWithO() {
+    return table.rowsWithNameStartingWith("O").count();
+  }
+}
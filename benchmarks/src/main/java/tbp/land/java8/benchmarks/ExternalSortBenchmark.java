@@ -0,0 +1,68 @@
+package tbp.land.java8.benchmarks;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import tbp.land.java8.tutorial.auxiliar.streams.ExternalSort;
+import tbp.land.java8.tutorial.auxiliar.streams.RecordCodecs;
+
+/**
+ * The UUID sort from {@code J2StreamOperations.parallelStreamSpeed()}: {@code sorted()} vs
+ * {@link ExternalSort#sortedExternal} with different memory budgets.
+ *
+ * The sorted elements are consumed one by one, which is how a result too big for the heap would be used.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 2, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+public class ExternalSortBenchmark extends ParallelismState {
+
+  @Param({ "1000000", "10000000" })
+  public int elementNo;
+
+  @Param({ "16", "256" })
+  public int memoryBudgetMb;
+
+  private List<String> values;
+
+  @Setup
+  public void setUp() {
+    values = BenchmarkData.uuids(elementNo);
+  }
+
+  @Benchmark
+  public void inMemory(Blackhole blackhole) {
+    run(() -> {
+      stream(values).sorted().forEachOrdered(blackhole::consume);
+      return null;
+    });
+  }
+
+  @Benchmark
+  public void external(Blackhole blackhole) {
+    run(() -> {
+      try (Stream<String> sorted = ExternalSort.sortedExternal(stream(values), Comparator.naturalOrder(), memoryBudgetMb * (1L << 20), RecordCodecs.uuidStrings())) {
+        sorted.forEachOrdered(blackhole::consume);
+      }
+      return null;
+    });
+  }
+}
@@ -0,0 +1,64 @@
+package tbp.land.java8.benchmarks;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import tbp.land.java8.tutorial.auxiliar.collectors.GroupingCollectors;
+import tbp.land.java8.tutorial.auxiliar.entities.Person;
+
+/**
+ * Grouping persons by age, as in {@code J3StreamOperationsAdvanced.collectors()}:
+ * groupingBy vs groupingByConcurrent vs the bucket array collectors from {@link GroupingCollectors}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = { "-Xms2g", "-Xmx2g" })
+public class GroupingByBenchmark extends ParallelismState {
+
+  @Param({ "1000000", "10000000" })
+  public int elementNo;
+
+  private List<Person> persons;
+
+  @Setup
+  public void setUp() {
+    persons = BenchmarkData.persons(elementNo);
+  }
+
+  @Benchmark
+  public Map<Integer, List<Person>> groupingBy() {
+    return run(() -> stream(persons).collect(Collectors.groupingBy(Person::getAge)));
+  }
+
+  @Benchmark
+  public Map<Integer, List<Person>> groupingByConcurrent() {
+    return run(() -> stream(persons).collect(Collectors.groupingByConcurrent(Person::getAge)));
+  }
+
+  @Benchmark
+  public Map<Integer, List<Person>> groupingByIntKey() {
+    return run(() -> stream(persons).collect(GroupingCollectors.groupingByIntKey(Person::getAge, 150)));
+  }
+
+  @Benchmark
+  public Map<Integer, List<Person>> groupingByIntKeyConcurrent() {
+    return run(() -> stream(persons).collect(GroupingCollectors.groupingByIntKeyConcurrent(Person::getAge, 150)));
+  }
+}
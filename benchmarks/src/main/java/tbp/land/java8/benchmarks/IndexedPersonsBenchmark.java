@@ -0,0 +1,106 @@
+package tbp.land.java8.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import tbp.land.java8.tutorial.auxiliar.entities.IndexedPersons;
+import tbp.land.java8.tutorial.auxiliar.entities.Person;
+
+/**
+ * Age and name filters over 10M persons (ages 0..99, about {@code nameNo} distinct names): a linear
+ * {@code stream().filter()} of a list vs the {@link IndexedPersons#query()} of the same persons.
+ *
+ * {@link #indexedAddRemove()} is the price paid on the other side: keeping both indexes up to date.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 2, jvmArgsAppend = { "-Xms6g", "-Xmx6g" })
+public class IndexedPersonsBenchmark {
+
+  @Param({ "10000000" })
+  public int elementNo;
+
+  @Param({ "1000" })
+  public int nameNo;
+
+  private List<Person> persons;
+  private IndexedPersons indexed;
+  private String someName;
+  private Person extra;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    int[] row = { 0 };
+    persons = BenchmarkData.personStream(elementNo) //
+      .map(it -> new Person(it.getName() + (row[0]++ % nameNo) / 9, it.getAge())) //
+      .collect(Collectors.toList());
+    indexed = IndexedPersons.of(persons);
+    someName = persons.get(elementNo / 2).getName();
+    extra = new Person(someName, 42);
+  }
+
+  @Benchmark
+  public long listCountAgeEquals() {
+    return persons.stream().filter(it -> it.getAge() == 23).count();
+  }
+
+  @Benchmark
+  public long indexedCountAgeEquals() {
+    return indexed.query().ageEquals(23).count();
+  }
+
+  @Benchmark
+  public long listSumOfAgesBetween() {
+    return persons.stream().filter(it -> it.getAge() >= 20 && it.getAge() <= 29).mapToLong(Person::getAge).sum();
+  }
+
+  @Benchmark
+  public long indexedSumOfAgesBetween() {
+    return indexed.query().ageBetween(20, 29).stream().mapToLong(Person::getAge).sum();
+  }
+
+  @Benchmark
+  public List<Person> listNamed() {
+    return persons.stream().filter(it -> it.getName().startsWith(someName)).collect(Collectors.toList());
+  }
+
+  @Benchmark
+  public List<Person> indexedNamed() {
+    return indexed.query().nameStartsWith(someName).toList();
+  }
+
+  @Benchmark
+  public List<Person> listStartingWithOAgedBetween() {
+    return persons.stream() //
+      .filter(it -> it.getName().startsWith("O") && it.getAge() >= 20 && it.getAge() <= 29) //
+      .collect(Collectors.toList());
+  }
+
+  @Benchmark
+  public List<Person> indexedStartingWithOAgedBetween() {
+    return indexed.query().nameStartsWith("O").ageBetween(20, 29).toList();
+  }
+
+  @Benchmark
+  public boolean indexedAddRemove() {
+    indexed.add(extra);
+    return indexed.remove(extra);
+  }
+}
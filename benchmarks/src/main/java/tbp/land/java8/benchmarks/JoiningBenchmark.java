@@ -0,0 +1,120 @@
+package tbp.land.java8.benchmarks;
+
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collector;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import tbp.land.java8.tutorial.auxiliar.collectors.JoiningCollectors;
+import tbp.land.java8.tutorial.auxiliar.entities.Person;
+
+/**
+ * Joining the names and ages of persons, as in {@code J3StreamOperationsAdvanced.collectors()/flatMap()}:
+ * Collectors.joining and a StringJoiner collector vs the chunked {@link JoiningCollectors}.
+ *
+ * The Writer and channel variants write into sinks which throw everything away, so only the joining is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = { "-Xms2g", "-Xmx2g" })
+public class JoiningBenchmark extends ParallelismState {
+
+  private static final Collector<CharSequence, StringJoiner, String> stringJoinerCollector = //
+    Collector.of(() -> new StringJoiner(", ", "[", "]") //
+      , (it1, it2) -> it1.add(it2) //
+      , (it1, it2) -> it1.merge(it2) //
+      , StringJoiner::toString);
+
+  @Param({ "100000", "1000000" })
+  public int elementNo;
+
+  private List<String> texts;
+
+  @Setup
+  public void setUp() {
+    texts = new ArrayList<>(elementNo * 2);
+    for (Person it : BenchmarkData.persons(elementNo)) {
+      texts.add(it.getName());
+      texts.add(Integer.toString(it.getAge()));
+    }
+  }
+
+  @Benchmark
+  public String collectorsJoining() {
+    return run(() -> stream(texts).collect(Collectors.joining(", ", "[", "]")));
+  }
+
+  @Benchmark
+  public String stringJoiner() {
+    return run(() -> stream(texts).collect(stringJoinerCollector));
+  }
+
+  @Benchmark
+  public String chunkedJoining() {
+    return run(() -> stream(texts).collect(JoiningCollectors.joining(", ", "[", "]")));
+  }
+
+  @Benchmark
+  public Long chunkedJoiningToWriter() {
+    return run(() -> stream(texts).collect(JoiningCollectors.joiningTo(new DiscardingWriter(), ", ", "[", "]")));
+  }
+
+  @Benchmark
+  public Long chunkedJoiningToChannel() {
+    return run(() -> stream(texts) //
+      .collect(JoiningCollectors.joiningTo(new DiscardingChannel(), StandardCharsets.UTF_8, ", ", "[", "]")));
+  }
+
+  private static final class DiscardingWriter extends Writer {
+    @Override
+    public void write(char[] cbuf, int off, int len) {
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+
+  private static final class DiscardingChannel implements WritableByteChannel {
+    @Override
+    public int write(ByteBuffer src) {
+      int count = src.remaining();
+      src.position(src.limit());
+      return count;
+    }
+
+    @Override
+    public boolean isOpen() {
+      return true;
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+}
@@ -0,0 +1,77 @@
+package tbp.land.java8.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The sorts from {@code J1Lambda.comparatorDecreasingly()}: anonymous class vs lambda vs library comparator.
+ *
+ * Each invocation sorts a fresh copy, so the input is never already sorted.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class LambdaBenchmark extends ParallelismState {
+
+  @Param({ "10000", "1000000" })
+  public int elementNo;
+
+  private List<String> names;
+
+  @Setup
+  public void setUp() {
+    names = BenchmarkData.strings(elementNo);
+  }
+
+  @Benchmark
+  public List<String> sortAnonymousComparator() {
+    List<String> copy = new ArrayList<>(names);
+    Collections.sort(copy, new Comparator<String>() {
+      @Override
+      public int compare(String a, String b) {
+        return b.compareTo(a);
+      }
+    });
+    return copy;
+  }
+
+  @Benchmark
+  public List<String> sortLambdaComparator() {
+    List<String> copy = new ArrayList<>(names);
+    Collections.sort(copy, (a, b) -> b.compareTo(a));
+    return copy;
+  }
+
+  @Benchmark
+  public List<String> sortReverseOrder() {
+    List<String> copy = new ArrayList<>(names);
+    Collections.sort(copy, Comparator.reverseOrder());
+    return copy;
+  }
+
+  /**
+   * The stream version of the same sort, which is the only one that can use {@code threads}.
+   */
+  @Benchmark
+  public Object[] sortStream() {
+    return run(() -> stream(names).sorted(Comparator.reverseOrder()).toArray());
+  }
+}
@@ -0,0 +1,98 @@
+package tbp.land.java8.benchmarks;
+
+import java.util.IntSummaryStatistics;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import tbp.land.java8.tutorial.auxiliar.collectors.IntSummary;
+import tbp.land.java8.tutorial.auxiliar.collectors.LiveGrouping;
+import tbp.land.java8.tutorial.auxiliar.collectors.LiveSummary;
+import tbp.land.java8.tutorial.auxiliar.entities.Person;
+
+/**
+ * One person changed, then the age summary and the grouping by age read again: recomputed over all the persons, as
+ * {@code J3StreamOperationsAdvanced.collectors()} does, vs updated in a {@link LiveSummary} and a {@link LiveGrouping}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 2, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+public class LiveAggregatesBenchmark {
+
+  @Param({ "1000000", "10000000" })
+  public int elementNo;
+
+  private List<Person> persons;
+  private LiveSummary<Person> summary;
+  private LiveGrouping<Person, Integer> byAge;
+  private int next;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    persons = BenchmarkData.persons(elementNo);
+    summary = LiveSummary.of(persons, Person::getAge);
+    byAge = LiveGrouping.of(persons, Person::getAge, Person::getAge);
+  }
+
+  /**
+   * The next person has a birthday.
+   */
+  private Person[] change() {
+    int index = next;
+    next = (next + 1) % elementNo;
+    Person old = persons.get(index);
+    Person updated = new Person(old.getName(), (old.getAge() + 1) % 100);
+    persons.set(index, updated);
+    return new Person[] { old, updated };
+  }
+
+  @Benchmark
+  public IntSummaryStatistics recomputedSummary() {
+    change();
+    return persons.stream().collect(Collectors.summarizingInt(Person::getAge));
+  }
+
+  @Benchmark
+  public IntSummary liveSummary() {
+    Person[] change = change();
+    summary.update(change[0], change[1]);
+    return summary.snapshot();
+  }
+
+  @Benchmark
+  public Map<Integer, Long> recomputedCountByAge() {
+    change();
+    return persons.stream().collect(Collectors.groupingBy(Person::getAge, Collectors.counting()));
+  }
+
+  @Benchmark
+  public long liveCountOfAge() {
+    Person[] change = change();
+    byAge.update(change[0], change[1]);
+    return byAge.snapshot().get(change[1].getAge()).getCount();
+  }
+
+  @Benchmark
+  public Map<Integer, IntSummary> liveGroupingByAge() {
+    Person[] change = change();
+    byAge.update(change[0], change[1]);
+    return byAge.snapshot().toMap();
+  }
+}
@@ -0,0 +1,91 @@
+package tbp.land.java8.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import tbp.land.java8.tutorial.auxiliar.entities.Person;
+import tbp.land.java8.tutorial.auxiliar.streams.MapMulti;
+
+/**
+ * The {@code flatMap(it -> Stream.of(it.getName(), it.getAge()))} of {@code J3StreamOperationsAdvanced.flatMap()}
+ * vs {@link MapMulti}, both its java 8 backport and the JDK's own {@code mapMulti} (when running on java 16+);
+ * the gc profiler of {@link BenchmarkRunner} shows the allocation per operation.
+ *
+ * The expanded elements are only counted by type, so the cost measured is the expansion itself.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 2, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+public class MapMultiBenchmark extends ParallelismState {
+
+  @Param({ "10000000" })
+  public int elementNo;
+
+  private List<Person> persons;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    persons = BenchmarkData.persons(elementNo);
+  }
+
+  private static void expand(Person person, Consumer<Object> downstream) {
+    downstream.accept(person.getName());
+    downstream.accept(person.getAge());
+  }
+
+  @Benchmark
+  public long flatMap() {
+    return run(() -> stream(persons) //
+      .flatMap(it -> Stream.of(it.getName(), it.getAge())) //
+      .filter(it -> it instanceof String) //
+      .count());
+  }
+
+  @Benchmark
+  public long mapMultiBackport() {
+    return run(() -> MapMulti.backport(stream(persons), MapMultiBenchmark::expand) //
+      .filter(it -> it instanceof String) //
+      .count());
+  }
+
+  @Benchmark
+  public long mapMulti() {
+    return run(() -> MapMulti.mapMulti(stream(persons), MapMultiBenchmark::expand) //
+      .filter(it -> it instanceof String) //
+      .count());
+  }
+
+  /**
+   * anyMatch pulls element by element, through the buffered tryAdvance of the backport; nobody matches, so it pulls all.
+   */
+  @Benchmark
+  public boolean mapMultiBackportShortCircuit() {
+    return run(() -> MapMulti.backport(stream(persons), MapMultiBenchmark::expand) //
+      .anyMatch(it -> "nobody".equals(it)));
+  }
+
+  @Benchmark
+  public boolean flatMapShortCircuit() {
+    return run(() -> stream(persons) //
+      .flatMap(it -> Stream.of(it.getName(), it.getAge())) //
+      .anyMatch(it -> "nobody".equals(it)));
+  }
+}
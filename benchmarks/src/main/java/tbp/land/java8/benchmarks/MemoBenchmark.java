@@ -0,0 +1,79 @@
+package tbp.land.java8.benchmarks;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import tbp.land.java8.tutorial.auxiliar.functions.Memo;
+
+/**
+ * A {@code J1Lambda.functions()} style transform called over and over with the same keys, by {@code threads} threads:
+ * no memo vs a naive unbounded {@code ConcurrentHashMap.computeIfAbsent} memo vs {@link Memo}.
+ *
+ * The keys are the ~260 distinct strings of {@link BenchmarkData#strings(int)}; with {@code maxEntries=128}
+ * the memo has to evict, with {@code 1024} everything fits.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = { "-Xms2g", "-Xmx2g" })
+public class MemoBenchmark extends ParallelismState {
+
+  @Param({ "1000000" })
+  public int elementNo;
+
+  @Param({ "128", "1024" })
+  public int maxEntries;
+
+  private List<String> keys;
+
+  private final Function<String, String> function = it -> {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 32; i++) {
+      sb.append(it).append(" ").append(i).append(",");
+    }
+    return sb.toString();
+  };
+
+  private Map<String, String> naive;
+
+  private Memo<String, String> memo;
+
+  @Setup
+  public void setUp() {
+    keys = BenchmarkData.strings(elementNo);
+    naive = new ConcurrentHashMap<>();
+    memo = Memo.function(function, maxEntries);
+  }
+
+  @Benchmark
+  public long noMemo() {
+    return run(() -> stream(keys).map(function).mapToInt(String::length).sum());
+  }
+
+  @Benchmark
+  public long computeIfAbsent() {
+    return run(() -> stream(keys).map(it -> naive.computeIfAbsent(it, function)).mapToInt(String::length).sum());
+  }
+
+  @Benchmark
+  public long memo() {
+    return run(() -> stream(keys).map(memo).mapToInt(String::length).sum());
+  }
+}
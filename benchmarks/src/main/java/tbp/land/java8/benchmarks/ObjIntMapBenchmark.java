@@ -0,0 +1,87 @@
+package tbp.land.java8.benchmarks;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import tbp.land.java8.tutorial.auxiliar.maps.ObjIntMap;
+import tbp.land.java8.tutorial.auxiliar.maps.ObjIntStream;
+
+/**
+ * The map streams from {@code J2StreamOperations.streamsForMaps()}, at scale:
+ * {@code HashMap<String, Integer>.entrySet().stream()} vs {@link ObjIntMap#stream()}.
+ *
+ * 10M entries fit in the 4g heap. For 50M, which need about 12g (most of it for the HashMap and the keys) and a while
+ * to set up: {@code java -jar benchmarks.jar ObjIntMap -p elementNo=50000000 -jvmArgsAppend -Xmx12g}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx4g" })
+public class ObjIntMapBenchmark extends ParallelismState {
+
+  @Param({ "1000000", "10000000" })
+  public int elementNo;
+
+  private Map<String, Integer> hashMap;
+
+  private ObjIntMap<String> objIntMap;
+
+  @Setup
+  public void setUp() {
+    hashMap = new HashMap<>();
+    for (int i = 0; i < elementNo; i++) {
+      hashMap.put("k" + i, i);
+    }
+    objIntMap = ObjIntMap.of(hashMap);
+  }
+
+  @Benchmark
+  public long entrySetFilterSum() {
+    return run(() -> stream(hashMap.entrySet()) //
+      .filter(it -> it.getValue() % 2 == 0) //
+      .mapToLong(Map.Entry::getValue) //
+      .sum());
+  }
+
+  @Benchmark
+  public long objIntFilterSum() {
+    return run(() -> objIntStream() //
+      .filter((key, value) -> value % 2 == 0) //
+      .sumOfValues());
+  }
+
+  @Benchmark
+  public long entrySetMapValuesCount() {
+    return run(() -> stream(hashMap.entrySet()) //
+      .map(it -> new HashMap.SimpleImmutableEntry<>(it.getKey(), it.getValue() * 3)) //
+      .filter(it -> it.getKey().length() > 6 && it.getValue() % 2 == 0) //
+      .count());
+  }
+
+  @Benchmark
+  public long objIntMapValuesCount() {
+    return run(() -> objIntStream() //
+      .mapValues(value -> value * 3) //
+      .filter((key, value) -> key.length() > 6 && value % 2 == 0) //
+      .count());
+  }
+
+  private ObjIntStream<String> objIntStream() {
+    return threads > 1 ? objIntMap.parallelStream() : objIntMap.stream();
+  }
+}
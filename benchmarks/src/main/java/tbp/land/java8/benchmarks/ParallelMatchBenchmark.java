@@ -0,0 +1,99 @@
+package tbp.land.java8.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import tbp.land.java8.tutorial.auxiliar.streams.MatchResult;
+import tbp.land.java8.tutorial.auxiliar.streams.ParallelMatch;
+
+/**
+ * {@code J2StreamOperations.match()} on the UUIDs, with an expensive predicate:
+ * {@code anyMatch} of a (parallel) stream vs {@link ParallelMatch}.
+ *
+ * {@code decisiveAt} is where the only matching element is, as a fraction of the source; -1 means nowhere,
+ * so everything has to be tested. Besides the throughput, the {@link Decisions} counters report the total time
+ * it took the match engine to find the decisive element ({@code decisionMicros}) and for all its workers to stop
+ * ({@code elapsedMicros}); divide them by {@code matches} for the averages.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = { "-Xms2g", "-Xmx2g" })
+public class ParallelMatchBenchmark extends ParallelismState {
+
+  @Param({ "1000000" })
+  public int elementNo;
+
+  @Param({ "0.5", "-1" })
+  public double decisiveAt;
+
+  /**
+   * Cost of the predicate, in {@link Blackhole#consumeCPU(long)} tokens.
+   */
+  @Param({ "100" })
+  public long work;
+
+  private List<String> values;
+
+  private Predicate<String> predicate;
+
+  @Setup
+  public void setUp() {
+    values = BenchmarkData.uuids(elementNo);
+    String needle = decisiveAt < 0 ? "not a uuid" : values.get((int) (decisiveAt * (elementNo - 1)));
+    predicate = it -> {
+      Blackhole.consumeCPU(work);
+      return it.equals(needle);
+    };
+  }
+
+  @Benchmark
+  public boolean streamAnyMatch() {
+    return run(() -> stream(values).anyMatch(predicate));
+  }
+
+  @Benchmark
+  public boolean parallelMatch(Decisions decisions) {
+    return run(() -> decisions.record(ParallelMatch.of(values).parallelism(threads).anyMatch(predicate)));
+  }
+
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class Decisions {
+    public long matches;
+    public long decisionMicros;
+    public long elapsedMicros;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      matches = 0;
+      decisionMicros = 0;
+      elapsedMicros = 0;
+    }
+
+    boolean record(MatchResult result) {
+      matches++;
+      decisionMicros += TimeUnit.NANOSECONDS.toMicros(result.getDecisionNanos());
+      elapsedMicros += TimeUnit.NANOSECONDS.toMicros(result.getElapsedNanos());
+      return result.isMatched();
+    }
+  }
+}
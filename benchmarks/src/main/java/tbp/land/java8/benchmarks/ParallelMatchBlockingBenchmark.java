@@ -0,0 +1,75 @@
+package tbp.land.java8.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Predicate;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import tbp.land.java8.tutorial.auxiliar.streams.ParallelMatch;
+
+/**
+ * The same match as {@link ParallelMatchBenchmark}, but with a predicate which blocks for {@code latencyMicros}
+ * (a stand-in for a remote call): a parallel stream, which cannot use more threads than the pool has,
+ * vs {@link ParallelMatch#onVirtualThreads()} with {@code workers} workers (platform threads before java 21).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class ParallelMatchBlockingBenchmark extends ParallelismState {
+
+  @Param({ "2000" })
+  public int elementNo;
+
+  @Param({ "0.5", "-1" })
+  public double decisiveAt;
+
+  @Param({ "200" })
+  public long latencyMicros;
+
+  @Param({ "64", "512" })
+  public int workers;
+
+  private List<String> values;
+
+  private Predicate<String> predicate;
+
+  @Setup
+  public void setUp() {
+    values = BenchmarkData.uuids(elementNo);
+    String needle = decisiveAt < 0 ? "not a uuid" : values.get((int) (decisiveAt * (elementNo - 1)));
+    long latencyNanos = TimeUnit.MICROSECONDS.toNanos(latencyMicros);
+    predicate = it -> {
+      LockSupport.parkNanos(latencyNanos);
+      return it.equals(needle);
+    };
+  }
+
+  @Benchmark
+  public boolean streamAnyMatch() {
+    return run(() -> stream(values).anyMatch(predicate));
+  }
+
+  @Benchmark
+  public boolean virtualThreadsMatch(ParallelMatchBenchmark.Decisions decisions) {
+    return decisions.record(ParallelMatch.of(values) //
+      .parallelism(workers) //
+      .batchSize(1) //
+      .onVirtualThreads() //
+      .anyMatch(predicate));
+  }
+}
@@ -0,0 +1,49 @@
+package tbp.land.java8.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The UUID sort from {@code J2StreamOperations.parallelStreamSpeed()}, with warmup, forks and a consumed result.
+ *
+ * Note that the original {@code sorted().count()} is not used here: since java 9 {@code count()} on a SIZED
+ * stream may skip the whole pipeline, so it would measure nothing at all.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 2, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+public class ParallelStreamSpeedBenchmark extends ParallelismState {
+
+  @Param({ "1000000", "10000000" })
+  public int elementNo;
+
+  private List<String> values;
+
+  @Setup
+  public void setUp() {
+    values = BenchmarkData.uuids(elementNo);
+  }
+
+  @Benchmark
+  public List<String> sort() {
+    return run(() -> stream(values) //
+      .sorted() //
+      .collect(Collectors.toList()));
+  }
+}
@@ -0,0 +1,59 @@
+package tbp.land.java8.benchmarks;
+
+import java.util.Collection;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+import java.util.stream.BaseStream;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Base state for benchmarks which should run with a given number of threads.
+ *
+ * {@code threads == 1} means a plain sequential stream.
+ * Anything else means a parallel stream, executed inside a dedicated {@link ForkJoinPool} of that size
+ * (parallel streams use the pool of the thread which runs the terminal operation).
+ */
+@State(Scope.Benchmark)
+public abstract class ParallelismState {
+
+  @Param({ "1", "4" })
+  public int threads;
+
+  private ForkJoinPool pool;
+
+  @Setup(Level.Trial)
+  public void setUpPool() {
+    if (threads > 1) {
+      pool = new ForkJoinPool(threads);
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDownPool() {
+    if (pool != null) {
+      pool.shutdown();
+    }
+  }
+
+  protected <T> Stream<T> stream(Collection<T> values) {
+    return threads > 1 ? values.parallelStream() : values.stream();
+  }
+
+  protected <T, S extends BaseStream<T, S>> S stream(S stream) {
+    return threads > 1 ? stream.parallel() : stream.sequential();
+  }
+
+  protected <R> R run(Supplier<R> pipeline) {
+    if (pool == null) {
+      return pipeline.get();
+    }
+    return pool.submit(pipeline::get).join();
+  }
+}
@@ -0,0 +1,111 @@
+package tbp.land.java8.benchmarks;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import tbp.land.java8.tutorial.auxiliar.entities.Person;
+import tbp.land.java8.tutorial.auxiliar.entities.PersonArena;
+
+/**
+ * {@code List<Person>} vs {@link PersonArena}, holding the same persons: the {@code reduce()} and {@code collectors()}
+ * aggregations of {@code J3StreamOperationsAdvanced}, and how long a full collection takes with them on the heap.
+ *
+ * Every person gets a String of its own (as when read from a file), so the list is three objects per person to
+ * trace, while the arena is a few direct buffers per million persons. {@code fullGc} is the pause of a
+ * {@code System.gc()}; the GC profiler (added by {@code BenchmarkRunner}) shows the collections caused by the others.
+ *
+ * 10M persons fit in the 4g heap (the arena's direct buffers count against it too). 100M need about 12g of heap and 4g
+ * of direct memory: {@code java -jar benchmarks.jar PersonArena -p elementNo=100000000
+ * -jvmArgsAppend "-Xmx12g -XX:MaxDirectMemorySize=4g -XX:-ExplicitGCInvokesConcurrent"}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 2, jvmArgsAppend = { "-Xmx4g" })
+public class PersonArenaBenchmark extends ParallelismState {
+
+  @Param({ "10000000" })
+  public int elementNo;
+
+  @Param({ "list", "arena" })
+  public String storage;
+
+  private List<Person> persons;
+  private PersonArena arena;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    if ("list".equals(storage)) {
+      persons = BenchmarkData.personStream(elementNo) //
+        .map(it -> new Person(new String(it.getName().toCharArray()), it.getAge())) //
+        .collect(Collectors.toList());
+    } else {
+      arena = PersonArena.of(BenchmarkData.personStream(elementNo));
+    }
+  }
+
+  @Benchmark
+  public long sumOfAges() {
+    if (arena != null) {
+      return run(() -> stream(arena.ages()).asLongStream().sum());
+    }
+    return run(() -> stream(persons).mapToInt(Person::getAge).asLongStream().sum());
+  }
+
+  @Benchmark
+  public Map<Integer, Long> countByAge() {
+    if (arena != null) {
+      return run(() -> stream(arena.flyweightStream()).collect(Collectors.groupingBy(Person::getAge, Collectors.counting())));
+    }
+    return run(() -> stream(persons).collect(Collectors.groupingBy(Person::getAge, Collectors.counting())));
+  }
+
+  /**
+   * countByAge without the capturing lambda {@code Collectors.groupingBy} allocates for every element.
+   */
+  @Benchmark
+  public long[] ageHistogram() {
+    if (arena != null) {
+      return run(() -> stream(arena.ages()).collect(() -> new long[100], (histogram, age) -> histogram[age]++, PersonArenaBenchmark::merge));
+    }
+    return run(() -> stream(persons).mapToInt(Person::getAge).collect(() -> new long[100], (histogram, age) -> histogram[age]++, //
+      PersonArenaBenchmark::merge));
+  }
+
+  @Benchmark
+  public long countNamesStartingWithO() {
+    if (arena != null) {
+      return run(() -> stream(arena.flyweightStream()).filter(it -> it.nameStartsWith("O")).count());
+    }
+    return run(() -> stream(persons).filter(it -> it.getName().startsWith("O")).count());
+  }
+
+  @Benchmark
+  @Fork(value = 2, jvmArgsAppend = { "-Xmx4g", "-XX:-ExplicitGCInvokesConcurrent" })
+  public void fullGc() {
+    System.gc();
+  }
+
+  private static void merge(long[] left, long[] right) {
+    for (int i = 0; i < left.length; i++) {
+      left[i] += right[i];
+    }
+  }
+}
@@ -0,0 +1,83 @@
+package tbp.land.java8.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import tbp.land.java8.tutorial.auxiliar.entities.Person;
+import tbp.land.java8.tutorial.auxiliar.entities.PersonFileFormat;
+import tbp.land.java8.tutorial.auxiliar.entities.PersonFileSink;
+import tbp.land.java8.tutorial.auxiliar.entities.PersonFileSource;
+
+/**
+ * Reading the persons of {@code J3StreamOperationsAdvanced} from a file of 100 million of them (~0.8GB as CSV, 3.2GB as binary),
+ * with a new Person per record vs one flyweight view per split.
+ *
+ * The file is written once per trial through {@link PersonFileSink}, and is in the page cache from then on,
+ * so this measures parsing and allocation rather than the disk.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 5, time = 10)
+@Fork(value = 2, jvmArgsAppend = { "-Xms2g", "-Xmx2g" })
+public class PersonFileBenchmark extends ParallelismState {
+
+  @Param({ "100000000" })
+  public long recordNo;
+
+  @Param({ "CSV", "BINARY" })
+  public PersonFileFormat format;
+
+  private Path file;
+  private PersonFileSource source;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    file = Files.createTempFile("persons-", "." + format.name().toLowerCase());
+    PersonFileSink.write(BenchmarkData.personStream(recordNo), file, format);
+    source = PersonFileSource.open(file, format);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    source.close();
+    Files.delete(file);
+  }
+
+  @Benchmark
+  public long sumOfAges() {
+    return run(() -> stream(source.stream()).mapToLong(Person::getAge).sum());
+  }
+
+  @Benchmark
+  public long sumOfAgesFlyweight() {
+    return run(() -> stream(source.flyweightStream()).mapToLong(Person::getAge).sum());
+  }
+
+  @Benchmark
+  public long countNamesStartingWithO() {
+    return run(() -> stream(source.stream()).filter(it -> it.getName().startsWith("O")).count());
+  }
+
+  @Benchmark
+  public long countNamesStartingWithOFlyweight() {
+    return run(() -> stream(source.flyweightStream()).filter(it -> it.nameStartsWith("O")).count());
+  }
+}
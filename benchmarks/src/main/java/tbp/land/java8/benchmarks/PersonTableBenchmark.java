@@ -0,0 +1,83 @@
+package tbp.land.java8.benchmarks;
+
+import java.util.IntSummaryStatistics;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import tbp.land.java8.tutorial.auxiliar.entities.Person;
+import tbp.land.java8.tutorial.auxiliar.entities.PersonTable;
+
+/**
+ * Age aggregations over a {@code List<Person>} (as in {@code J3StreamOperationsAdvanced.reduce()/collectors()})
+ * vs the same aggregations over the ages column of a {@link PersonTable}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = { "-Xms2g", "-Xmx2g" })
+public class PersonTableBenchmark extends ParallelismState {
+
+  @Param({ "1000000", "10000000" })
+  public int elementNo;
+
+  private List<Person> persons;
+
+  private PersonTable table;
+
+  @Setup
+  public void setUp() {
+    persons = BenchmarkData.persons(elementNo);
+    table = PersonTable.of(persons);
+  }
+
+  @Benchmark
+  public Integer listReduceBoxed() {
+    return run(() -> stream(persons) //
+      .reduce(0, (Integer accumulator, Person it) -> accumulator += it.getAge(), (it1, it2) -> it1 + it2));
+  }
+
+  @Benchmark
+  public long listMapToIntSum() {
+    return run(() -> stream(persons).mapToInt(Person::getAge).asLongStream().sum());
+  }
+
+  @Benchmark
+  public long tableSum() {
+    return run(() -> stream(table.ages()).asLongStream().sum());
+  }
+
+  @Benchmark
+  public IntSummaryStatistics listSummarizingInt() {
+    return run(() -> stream(persons).collect(Collectors.summarizingInt(Person::getAge)));
+  }
+
+  @Benchmark
+  public IntSummaryStatistics tableSummaryStatistics() {
+    return run(() -> stream(table.ages()).summaryStatistics());
+  }
+
+  @Benchmark
+  public long listCountAdults() {
+    return run(() -> stream(persons).filter(it -> it.getAge() >= 18).count());
+  }
+
+  @Benchmark
+  public long tableCountAdults() {
+    return run(() -> stream(table.ages()).filter(it -> it >= 18).count());
+  }
+}
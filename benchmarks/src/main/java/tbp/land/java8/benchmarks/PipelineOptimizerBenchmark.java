@@ -0,0 +1,87 @@
+package tbp.land.java8.benchmarks;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import tbp.land.java8.tutorial.auxiliar.entities.Person;
+import tbp.land.java8.tutorial.auxiliar.streams.Pipeline;
+
+/**
+ * {@link Pipeline}s run as declared vs as optimized, on the J2 strings and the J3 persons scaled up.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = { "-Xms2g", "-Xmx2g" })
+public class PipelineOptimizerBenchmark extends ParallelismState {
+
+  /**
+   * As in {@code streamsAreLazyOrderingCounts()}: sort first, then filter and map, and only keep a few.
+   */
+  private static final Pipeline<String, String> stringsPipeline = Pipeline.<String>builder() //
+    .sorted() //
+    .filter(s -> s.startsWith("a")) //
+    .map(s -> s.toUpperCase()) //
+    .limit(100) //
+    .build();
+
+  /**
+   * The youngest "O" persons, as names.
+   */
+  private static final Pipeline<Person, String> personsPipeline = Pipeline.<Person>builder() //
+    .sorted(Comparator.comparingInt(Person::getAge)) //
+    .filter(it -> it.getName().startsWith("O")) //
+    .map(Person::getName) //
+    .map(String::toUpperCase) //
+    .limit(10) //
+    .build();
+
+  @Param({ "100000", "1000000" })
+  public int elementNo;
+
+  private List<String> strings;
+
+  private List<Person> persons;
+
+  @Setup
+  public void setUp() {
+    strings = BenchmarkData.strings(elementNo);
+    persons = BenchmarkData.persons(elementNo);
+  }
+
+  @Benchmark
+  public List<String> stringsAsDeclared() {
+    return run(() -> stringsPipeline.applyAsDeclared(stream(strings)).collect(Collectors.toList()));
+  }
+
+  @Benchmark
+  public List<String> stringsOptimized() {
+    return run(() -> stringsPipeline.apply(stream(strings)).collect(Collectors.toList()));
+  }
+
+  @Benchmark
+  public List<String> personsAsDeclared() {
+    return run(() -> personsPipeline.applyAsDeclared(stream(persons)).collect(Collectors.toList()));
+  }
+
+  @Benchmark
+  public List<String> personsOptimized() {
+    return run(() -> personsPipeline.apply(stream(persons)).collect(Collectors.toList()));
+  }
+}
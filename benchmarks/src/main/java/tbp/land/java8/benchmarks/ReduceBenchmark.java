@@ -0,0 +1,79 @@
+package tbp.land.java8.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Warmup;
+
+import tbp.land.java8.tutorial.auxiliar.collectors.PrimitiveCollectors;
+import tbp.land.java8.tutorial.auxiliar.entities.Person;
+
+/**
+ * The sum of ages of {@code J3StreamOperationsAdvanced.reduce()}: the boxed three-argument reduce vs the collectors of
+ * {@link PrimitiveCollectors}, sequential and parallel.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 2, jvmArgsAppend = { "-Xms2g", "-Xmx2g" })
+public class ReduceBenchmark extends ParallelismState {
+
+  @Param({ "10000", "1000000", "10000000" })
+  public int elementNo;
+
+  private List<Person> persons;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    persons = BenchmarkData.persons(elementNo);
+  }
+
+  @Benchmark
+  public Integer boxedReduce() {
+    return run(() -> stream(persons).reduce(0, (Integer accumulator, Person it) -> accumulator += it.getAge(), Integer::sum));
+  }
+
+  @Benchmark
+  public int mapToIntSum() {
+    return run(() -> stream(persons).mapToInt(Person::getAge).sum());
+  }
+
+  @Benchmark
+  public Integer summingInt() {
+    return run(() -> stream(persons).collect(Collectors.summingInt(Person::getAge)));
+  }
+
+  @Benchmark
+  public Long summingIntToLong() {
+    return run(() -> stream(persons).collect(PrimitiveCollectors.summingIntToLong(Person::getAge)));
+  }
+
+  @Benchmark
+  public Integer summingIntExact() {
+    return run(() -> stream(persons).collect(PrimitiveCollectors.summingIntExact(Person::getAge)));
+  }
+
+  @Benchmark
+  public Double boxedDoubleReduce() {
+    return run(() -> stream(persons).reduce(0.0, (Double accumulator, Person it) -> accumulator + it.getAge() / 3.0, Double::sum));
+  }
+
+  @Benchmark
+  public Double summingDoubleCompensated() {
+    return run(() -> stream(persons).collect(PrimitiveCollectors.summingDoubleCompensated(it -> it.getAge() / 3.0)));
+  }
+}
@@ -0,0 +1,85 @@
+package tbp.land.java8.benchmarks;
+
+import java.util.IntSummaryStatistics;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import tbp.land.java8.tutorial.auxiliar.entities.Person;
+
+/**
+ * The pipelines from {@code J3StreamOperationsAdvanced}: groupingBy, summarizingInt, joining, reduce and flatMap.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class StreamOperationsAdvancedBenchmark extends ParallelismState {
+
+  @Param({ "10000", "1000000" })
+  public int elementNo;
+
+  private List<Person> persons;
+
+  @Setup
+  public void setUp() {
+    persons = BenchmarkData.persons(elementNo);
+  }
+
+  @Benchmark
+  public Set<Person> filterToSet() {
+    return run(() -> stream(persons) //
+      .filter(it -> it.getName().startsWith("O")) //
+      .collect(Collectors.toSet()));
+  }
+
+  @Benchmark
+  public Map<Integer, List<Person>> groupingBy() {
+    return run(() -> stream(persons) //
+      .collect(Collectors.groupingBy(it -> it.getAge())));
+  }
+
+  @Benchmark
+  public IntSummaryStatistics summarizingInt() {
+    return run(() -> stream(persons) //
+      .collect(Collectors.summarizingInt(Person::getAge)));
+  }
+
+  @Benchmark
+  public String joining() {
+    return run(() -> stream(persons) //
+      .flatMap(it -> Stream.of(it.getName(), Integer.toString(it.getAge()))) //
+      .sorted() //
+      .collect(Collectors.joining(", ", "This is a list of everything: ", ". Which is now over.")));
+  }
+
+  @Benchmark
+  public Integer reduce() {
+    return run(() -> stream(persons) //
+      .reduce(0, (Integer accumulator, Person it) -> accumulator += it.getAge(), (it1, it2) -> it1 + it2));
+  }
+
+  @Benchmark
+  public List<Object> flatMap() {
+    return run(() -> stream(persons) //
+      .flatMap(it -> Stream.of(it.getName(), it.getAge())) //
+      .collect(Collectors.toList()));
+  }
+}
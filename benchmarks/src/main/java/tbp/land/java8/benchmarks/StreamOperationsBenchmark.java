@@ -0,0 +1,116 @@
+package tbp.land.java8.benchmarks;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The pipelines from {@code J2StreamOperations}: filter, sorted, map, match, count and the entry set of a map.
+ *
+ * Every pipeline returns its result, so JMH consumes it and the JIT cannot throw the work away.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class StreamOperationsBenchmark extends ParallelismState {
+
+  private static final Predicate<String> divisibleBy2 = (it) -> Integer.parseInt(it.substring(1, 2)) % 2 == 0;
+
+  @Param({ "10000", "1000000" })
+  public int elementNo;
+
+  private List<String> strings;
+
+  private Map<String, Integer> map;
+
+  @Setup
+  public void setUp() {
+    strings = BenchmarkData.strings(elementNo);
+
+    map = new HashMap<>();
+    for (int i = 0; i < elementNo; i++) {
+      map.put("k" + i, i);
+    }
+  }
+
+  @Benchmark
+  public List<String> filter() {
+    return run(() -> stream(strings) //
+      .filter(divisibleBy2) //
+      .collect(Collectors.toList()));
+  }
+
+  @Benchmark
+  public List<String> sorted() {
+    return run(() -> stream(strings) //
+      .sorted() //
+      .collect(Collectors.toList()));
+  }
+
+  @Benchmark
+  public List<String> sortedByDigit() {
+    return run(() -> stream(strings) //
+      .sorted((it1, it2) -> it1.substring(1, 2).compareTo(it2.substring(1, 2))) //
+      .collect(Collectors.toList()));
+  }
+
+  @Benchmark
+  public List<Integer> map() {
+    return run(() -> stream(strings) //
+      .map((String it) -> Integer.parseInt(it.substring(1, 2))) //
+      .collect(Collectors.toList()));
+  }
+
+  /**
+   * There is no "z" in the data, so anyMatch/noneMatch have to go through everything.
+   */
+  @Benchmark
+  public boolean anyMatch() {
+    return run(() -> stream(strings).anyMatch((s) -> s.startsWith("z")));
+  }
+
+  @Benchmark
+  public boolean allMatch() {
+    return run(() -> stream(strings) //
+      .filter(Objects::nonNull) //
+      .allMatch((s) -> s.length() == 2));
+  }
+
+  @Benchmark
+  public boolean noneMatch() {
+    return run(() -> stream(strings).noneMatch((s) -> s.startsWith("z")));
+  }
+
+  @Benchmark
+  public long count() {
+    return run(() -> stream(strings) //
+      .filter(divisibleBy2.negate()) //
+      .count());
+  }
+
+  @Benchmark
+  public long streamsForMaps() {
+    return run(() -> stream(map.entrySet()) //
+      .filter((Map.Entry<String, Integer> entry) -> (entry.getValue() % 2) == 0) //
+      .count());
+  }
+}
@@ -0,0 +1,99 @@
+package tbp.land.java8.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import tbp.land.java8.tutorial.auxiliar.concurrent.StreamPool;
+
+/**
+ * Two pipelines running at the same time: a big parallel sort, as in {@code J2StreamOperations.parallelStreamSpeed()},
+ * and a small parallel sum which should answer quickly.
+ *
+ * In {@code commonPool} both share {@code ForkJoinPool.commonPool()}, so the small one queues up behind the sort's tasks;
+ * in {@code isolatedPools} each gets a {@link StreamPool} of {@code poolThreads} threads.
+ * The score to look at is the one of the small pipeline ({@code commonPool:commonPoolSmall} vs {@code isolatedPools:isolatedPoolsSmall}).
+ */
+@State(Scope.Group)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 2, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+public class StreamPoolBenchmark {
+
+  @Param({ "2000000" })
+  public int bigElementNo;
+
+  @Param({ "100000" })
+  public int smallElementNo;
+
+  @Param({ "2", "4" })
+  public int poolThreads;
+
+  @Param({ "1024", "65536" })
+  public int splitThreshold;
+
+  private List<String> big;
+  private List<String> small;
+  private StreamPool sortPool;
+  private StreamPool sumPool;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    big = BenchmarkData.uuids(bigElementNo);
+    small = BenchmarkData.strings(smallElementNo);
+    sortPool = StreamPool.of("sort", poolThreads, splitThreshold);
+    sumPool = StreamPool.of("sum", poolThreads, splitThreshold);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    sortPool.close();
+    sumPool.close();
+  }
+
+  @Benchmark
+  @Group("commonPool")
+  @GroupThreads(1)
+  public List<String> commonPoolBig() {
+    return big.parallelStream().sorted().collect(Collectors.toList());
+  }
+
+  @Benchmark
+  @Group("commonPool")
+  @GroupThreads(1)
+  public long commonPoolSmall() {
+    return small.parallelStream().mapToLong(String::length).sum();
+  }
+
+  @Benchmark
+  @Group("isolatedPools")
+  @GroupThreads(1)
+  public List<String> isolatedPoolsBig() {
+    return sortPool.run(() -> sortPool.stream(big).sorted().collect(Collectors.toList()));
+  }
+
+  @Benchmark
+  @Group("isolatedPools")
+  @GroupThreads(1)
+  public long isolatedPoolsSmall() {
+    return sumPool.run(() -> sumPool.stream(small).mapToLong(String::length).sum());
+  }
+}
@@ -0,0 +1,55 @@
+package tbp.land.java8.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import tbp.land.java8.tutorial.auxiliar.collectors.TopKCollectors;
+
+/**
+ * The k smallest UUIDs from {@code J2StreamOperations.parallelStreamSpeed()}:
+ * {@code sorted().limit(k)} vs the bounded heaps of {@link TopKCollectors#topK(int)}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 2, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+public class TopKBenchmark extends ParallelismState {
+
+  @Param({ "1000000", "10000000" })
+  public int elementNo;
+
+  @Param({ "10", "1000", "100000" })
+  public int k;
+
+  private List<String> values;
+
+  @Setup
+  public void setUp() {
+    values = BenchmarkData.uuids(elementNo);
+  }
+
+  @Benchmark
+  public List<String> sortedLimit() {
+    return run(() -> stream(values).sorted().limit(k).collect(Collectors.toList()));
+  }
+
+  @Benchmark
+  public List<String> topK() {
+    return run(() -> stream(values).collect(TopKCollectors.topK(k)));
+  }
+}
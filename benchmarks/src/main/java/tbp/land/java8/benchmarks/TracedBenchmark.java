@@ -0,0 +1,57 @@
+package tbp.land.java8.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import tbp.land.java8.tutorial.auxiliar.streams.Traced;
+
+/**
+ * The cost of {@link Traced} on the map/filter pipeline of {@code J3StreamOperationsAdvanced.streamsAreLazyOrderingCounts()}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class TracedBenchmark extends ParallelismState {
+
+  @Param({ "10000", "1000000" })
+  public int elementNo;
+
+  private List<String> strings;
+
+  @Setup
+  public void setUp() {
+    strings = BenchmarkData.strings(elementNo);
+  }
+
+  @Benchmark
+  public List<String> plain() {
+    return run(() -> stream(strings) //
+      .filter(s -> s.startsWith("a")) //
+      .map(s -> s.toUpperCase()) //
+      .collect(Collectors.toList()));
+  }
+
+  @Benchmark
+  public List<String> traced() {
+    return run(() -> Traced.stream(stream(strings), summary -> {}) //
+      .filter("filter", s -> s.startsWith("a")) //
+      .map("map", s -> s.toUpperCase()) //
+      .collect(Collectors.toList()));
+  }
+}
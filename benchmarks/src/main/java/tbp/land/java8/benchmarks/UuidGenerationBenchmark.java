@@ -0,0 +1,55 @@
+package tbp.land.java8.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import tbp.land.java8.tutorial.auxiliar.uuid.UuidArray;
+import tbp.land.java8.tutorial.auxiliar.uuid.UuidGenerator;
+
+/**
+ * The "preparation of data" phase of {@code J2StreamOperations.parallelStreamSpeed()}:
+ * a {@code UUID.randomUUID()} loop vs the parallel {@link UuidGenerator}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+public class UuidGenerationBenchmark extends ParallelismState {
+
+  @Param({ "100000", "1000000" })
+  public int elementNo;
+
+  @Benchmark
+  public List<String> randomUUIDLoop() {
+    List<String> values = new ArrayList<>(elementNo);
+    for (int i = 0; i < elementNo; i++) {
+      values.add(UUID.randomUUID().toString());
+    }
+    return values;
+  }
+
+  @Benchmark
+  public List<String> generateStrings() {
+    return run(() -> UuidGenerator.v4(elementNo).generateStrings(elementNo).getValues());
+  }
+
+  @Benchmark
+  public UuidArray generatePacked() {
+    return run(() -> UuidGenerator.v4(elementNo).generate(elementNo).getValues());
+  }
+}
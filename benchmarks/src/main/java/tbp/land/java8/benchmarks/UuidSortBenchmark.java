@@ -0,0 +1,65 @@
+package tbp.land.java8.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import tbp.land.java8.tutorial.auxiliar.uuid.UuidArray;
+
+/**
+ * Sorting the UUIDs from {@code J2StreamOperations.parallelStreamSpeed()}: {@code sorted()} on the Strings
+ * vs the radix sort of a {@link UuidArray}.
+ *
+ * Both sort a fresh copy every time; the copy of the Strings is just the stream's own buffer,
+ * the copy of the UuidArray is made explicitly (and is part of the measurement).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 2, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+public class UuidSortBenchmark extends ParallelismState {
+
+  @Param({ "1000000", "10000000" })
+  public int elementNo;
+
+  private List<String> values;
+
+  private UuidArray packed;
+
+  @Setup
+  public void setUp() {
+    values = BenchmarkData.uuids(elementNo);
+    packed = UuidArray.ofStrings(values);
+  }
+
+  @Benchmark
+  public Object[] sortStrings() {
+    return run(() -> stream(values).sorted().toArray());
+  }
+
+  @Benchmark
+  public UuidArray radixSort() {
+    return run(() -> {
+      UuidArray copy = packed.copy();
+      if (threads > 1) {
+        copy.parallelSort();
+      } else {
+        copy.sort();
+      }
+      return copy;
+    });
+  }
+}
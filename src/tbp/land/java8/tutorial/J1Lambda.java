@@ -14,8 +14,10 @@ import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
 
+import tbp.land.java8.tutorial.auxiliar.concurrent.TaskScope;
 import tbp.land.java8.tutorial.auxiliar.entities.RandomImplementation;
 import tbp.land.java8.tutorial.auxiliar.entities.someRandomInterface;
+import tbp.land.java8.tutorial.auxiliar.functions.Memo;
 import tbp.land.random.DURR;
 
 @SuppressWarnings("ALL")
@@ -182,6 +184,14 @@ public class J1Lambda {
 
     System.out.println(mapToString.apply(nameAndAge));
     System.out.println(mapToStringFunctional.apply(nameAndAge));
+
+    //
+    // remembering version: pure functions always return the same result for the same input,
+    // so the result can be kept instead of being computed again (at most 100 of them here)
+    Memo<Map<?, ?>, String> mapToStringMemo = Memo.function(mapToStringFunctional, 100);
+    System.out.println(mapToStringMemo.apply(nameAndAge));                       // computed
+    System.out.println(mapToStringMemo.andThen(String::length).apply(nameAndAge)); // remembered, then measured
+    System.out.println(mapToStringMemo);
   }
 
   /**
@@ -296,6 +306,16 @@ public class J1Lambda {
     // java8 shortest
     new Thread(() -> System.out.println("java 8 runnable without braces")).start();
 
+    //
+    // many of them: on virtual threads (java 21+), at most 100 at a time, and all of them done when the scope is left
+    try (TaskScope scope = TaskScope.open(100)) {
+      names.forEach(it -> scope.fork(() -> System.out.println("runnable for " + it)));
+      TaskScope.Subtask<String> upperCased = scope.fork(() -> names.get(0).toUpperCase());   // a Supplier
+      scope.join();
+      System.out.println(upperCased.get());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
   }
 
   /**
@@ -2,19 +2,29 @@ package tbp.land.java8.tutorial;
 
 import java.time.Duration;
 import java.time.temporal.ChronoUnit;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
+import tbp.land.java8.tutorial.auxiliar.collectors.TopKCollectors;
+import tbp.land.java8.tutorial.auxiliar.concurrent.StreamPool;
+import tbp.land.java8.tutorial.auxiliar.maps.ObjIntMap;
+import tbp.land.java8.tutorial.auxiliar.streams.AdaptiveParallelism;
+import tbp.land.java8.tutorial.auxiliar.streams.Batched;
+import tbp.land.java8.tutorial.auxiliar.streams.ExternalSort;
+import tbp.land.java8.tutorial.auxiliar.streams.MatchResult;
+import tbp.land.java8.tutorial.auxiliar.streams.ParallelMatch;
+import tbp.land.java8.tutorial.auxiliar.streams.RecordCodecs;
+import tbp.land.java8.tutorial.auxiliar.uuid.UuidArray;
+import tbp.land.java8.tutorial.auxiliar.uuid.UuidGenerator;
+
 public class J2StreamOperations {
 
   List<String> strings = Arrays.asList("d2", "a2", "b1", "a1", "b3", "c6", "b2", "d1");
@@ -39,20 +49,52 @@ public class J2StreamOperations {
 //    match();
 //    count();
 //    parallelStreamSpeed();
+//    adaptiveParallelism();
 //    streamsForMaps();
+//    batched();
+  }
+
+  /**
+   * The pipelines of {@link #count()} and {@link #map()}, with the same lambdas, run a batch of elements at a time
+   * through each stage instead of an element at a time through all of them.
+   */
+  private void batched() {
+    Predicate<String> divisibleBy2 = (it) -> Integer.parseInt(it.substring(1, 2)) % 2 == 0;
+
+    long count = Batched.of(strings) //
+      .filter(divisibleBy2.negate()) //
+      .count();
+    System.out.println(count);
+
+    // filter keeps a selection of the batch, map writes over it, sorted waits for all the batches
+    System.out.println(Batched.of(strings) //
+      .filter(it -> it.startsWith("a") || it.startsWith("b")) //
+      .map(String::toUpperCase) //
+      .sorted() //
+      .toList());
+
+    // ints stay in an int[] column
+    long sumOfDigits = Batched.of(strings) //
+      .mapToInt(it -> it.charAt(1) - '0') //
+      .filter(it -> it % 2 == 0) //
+      .sum();
+    System.out.println(sumOfDigits);
   }
 
+  /**
+   * A quick and dirty comparison between a parallel and a sequential sort.
+   *
+   * A single System.nanoTime() pass has no warmup, no forks and nothing stopping the JIT from removing the work,
+   * so take these numbers with a grain of salt. The real measurements live in the benchmarks module
+   * ({@code ParallelStreamSpeedBenchmark}).
+   */
   private void parallelStreamSpeed() {
     int elementNo = 10_000_000;
-    List<String> values = new ArrayList<>(elementNo);
 
-    long prep0 = System.nanoTime();
-    for (int i = 0; i < elementNo; i++) {
-      UUID uuid = UUID.randomUUID();
-      values.add(uuid.toString());
-    }
-    long prep1 = System.nanoTime();
-    long prep2 = TimeUnit.NANOSECONDS.toMillis(prep1 - prep0);
+    // preparation of data: in parallel, and without going through the shared (and slow) SecureRandom of UUID.randomUUID()
+    UuidGenerator.Generated<List<String>> generated = UuidGenerator.v4().generateStrings(elementNo);
+    List<String> values = generated.getValues();
+    long prep2 = TimeUnit.NANOSECONDS.toMillis(generated.getElapsedNanos());
     System.out.println(String.format("preparation of data for %d elements took: %d ms (%s)", elementNo, prep2, Duration.of(prep2, ChronoUnit.MILLIS)));
 
     // parallel sort
@@ -69,6 +111,61 @@ public class J2StreamOperations {
     long ss2 = TimeUnit.NANOSECONDS.toMillis(ss1 - ss0);
     System.out.println(String.format("sequential sort took: %d ms (%s)", ss2, Duration.of(ss2, ChronoUnit.MILLIS)));
 
+    // external sort: at most ~64MB of UUIDs on the heap at a time, the rest goes to disk as 16 bytes per UUID
+    long es0 = System.nanoTime();
+    long countes = ExternalSort.sortedExternal(values.parallelStream(), Comparator.naturalOrder(), 64 << 20, RecordCodecs.uuidStrings()) //
+      .collect(Collectors.toList()) //
+      .size();
+    long es1 = System.nanoTime();
+    long es2 = TimeUnit.NANOSECONDS.toMillis(es1 - es0);
+    System.out.println(String.format("external sort took: %d ms (%s)", es2, Duration.of(es2, ChronoUnit.MILLIS)));
+
+    // packed UUIDs: 16 bytes each instead of a String, radix sorted in the same order as the Strings
+    UuidArray packed = UuidArray.ofStrings(values);
+    long rs0 = System.nanoTime();
+    packed.parallelSort();
+    long countrs = packed.strings().sorted().count();   // already sorted, so sorted() does nothing
+    long rs1 = System.nanoTime();
+    long rs2 = TimeUnit.NANOSECONDS.toMillis(rs1 - rs0);
+    System.out.println(String.format("packed radix sort took: %d ms (%s)", rs2, Duration.of(rs2, ChronoUnit.MILLIS)));
+
+    // only the first 100: a bounded heap per split instead of sorting all of them
+    long tk0 = System.nanoTime();
+    List<String> first100 = values.parallelStream().collect(TopKCollectors.topK(100));
+    long tk1 = System.nanoTime();
+    long tk2 = TimeUnit.NANOSECONDS.toMillis(tk1 - tk0);
+    System.out.println(String.format("parallel top 100 took: %d ms (%s)", tk2, Duration.of(tk2, ChronoUnit.MILLIS)));
+
+    // parallel sort in a pool of its own: every parallelStream() above shares ForkJoinPool.commonPool() with the rest of the JVM
+    try (StreamPool pool = StreamPool.of("sort", Runtime.getRuntime().availableProcessors())) {
+      long dp0 = System.nanoTime();
+      long countdp = pool.run(() -> pool.stream(values).sorted().count());
+      long dp1 = System.nanoTime();
+      long dp2 = TimeUnit.NANOSECONDS.toMillis(dp1 - dp0);
+      System.out.println(String.format("parallel sort in a dedicated pool took: %d ms (%s)", dp2, Duration.of(dp2, ChronoUnit.MILLIS)));
+      System.out.println(pool.metrics());
+    }
+  }
+
+  /**
+   * Whether parallel pays off depends on how much work there is: 8 cheap strings are done long before a parallel
+   * stream has forked its first task, 10 million UUIDs keep every core busy.
+   *
+   * AdaptiveParallelism measures the cost of an element on the first few elements, and picks for us.
+   */
+  private void adaptiveParallelism() {
+    AdaptiveParallelism adaptive = AdaptiveParallelism.builder().build();
+
+    List<String> sortedStrings = adaptive.run("sort strings", strings, s -> s.sorted().collect(Collectors.toList()));
+    System.out.println(sortedStrings);
+
+    List<String> uuids = UuidGenerator.v4().generateStrings(1_000_000).getValues();
+    for (int i = 0; i < 3; i++) {
+      List<String> sortedUuids = adaptive.run("sort uuids", uuids, s -> s.sorted().collect(Collectors.toList()));
+      System.out.println(sortedUuids.get(0));
+    }
+
+    adaptive.decisions().forEach(System.out::println);
   }
 
   /**
@@ -101,6 +198,16 @@ public class J2StreamOperations {
 
     // what i would like to have is a "destructuring" Map.Entry such as:
     //    m.entrySet().stream().forEach((key, value) -> System.out.println(key + " " + value));
+
+    // which is possible when the keys and the (int) values are kept in arrays, instead of in Entries
+    ObjIntMap<String> om = ObjIntMap.of(m);
+    om.stream() //
+      .filter((key, value) -> {
+        System.out.printf("filter! key: %s, val: %s %n", key, value);
+        return (value % 2) == 0;
+      })  //
+      .mapValues(value -> value - 'a') //
+      .forEach((key, value) -> System.out.println(key + " " + value));
   }
 
   /**
@@ -144,6 +251,13 @@ public class J2StreamOperations {
         .noneMatch((s) -> s.startsWith("z"));
 
     System.out.println("noneStartsWithZ: " + noneStartsWithZ);
+
+    // the same checks on several threads, which all stop as soon as one of them knows the answer
+    MatchResult anyStartsWithAParallel =
+      ParallelMatch.of(strings)
+        .anyMatch((s) -> s.startsWith("a"));
+
+    System.out.println("anyStartsWithA: " + anyStartsWithAParallel);
   }
 
   private void map() {
@@ -177,6 +291,12 @@ public class J2StreamOperations {
 
     System.out.println(collect);
     System.out.println(strings);
+
+    // when only the first few are needed: same result as sorted(...).limit(3), without sorting everything
+    List<String> first3 = strings.stream() //
+      .collect(TopKCollectors.topK(3, Comparator.comparing(it -> it.substring(1, 2))));
+
+    System.out.println(first3);
   }
 
   /**
@@ -1,32 +1,45 @@
 package tbp.land.java8.tutorial;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.IntSummaryStatistics;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.StringJoiner;
+import java.util.function.Consumer;
 import java.util.function.Supplier;
-import java.util.stream.Collector;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
+import tbp.land.java8.tutorial.auxiliar.collectors.GroupingCollectors;
+import tbp.land.java8.tutorial.auxiliar.collectors.JoiningCollectors;
+import tbp.land.java8.tutorial.auxiliar.collectors.LiveGrouping;
+import tbp.land.java8.tutorial.auxiliar.collectors.LiveSummary;
+import tbp.land.java8.tutorial.auxiliar.collectors.PrimitiveCollectors;
+import tbp.land.java8.tutorial.auxiliar.collectors.ReductionTrace;
+import tbp.land.java8.tutorial.auxiliar.entities.EncodedPersonTable;
+import tbp.land.java8.tutorial.auxiliar.entities.IndexedPersons;
 import tbp.land.java8.tutorial.auxiliar.entities.Person;
+import tbp.land.java8.tutorial.auxiliar.entities.PersonArena;
+import tbp.land.java8.tutorial.auxiliar.entities.PersonFileFormat;
+import tbp.land.java8.tutorial.auxiliar.entities.PersonFileSink;
+import tbp.land.java8.tutorial.auxiliar.entities.PersonFileSource;
+import tbp.land.java8.tutorial.auxiliar.entities.PersonTable;
+import tbp.land.java8.tutorial.auxiliar.entities.PersonView;
+import tbp.land.java8.tutorial.auxiliar.streams.CachedStream;
+import tbp.land.java8.tutorial.auxiliar.streams.MapMulti;
+import tbp.land.java8.tutorial.auxiliar.streams.Pipeline;
+import tbp.land.java8.tutorial.auxiliar.streams.Traced;
 
 public class J3StreamOperationsAdvanced {
 
-  Collector<Object, StringJoiner, String> printListCollector = //
-    Collector.of(() -> new StringJoiner(", ", "[", "]") //
-      , (it1, it2) -> it1.add(it2.toString()) //
-      , (it1, it2) -> it1.merge(it2) //
-      , it -> {
-        System.out.println(it.toString());
-        return it.toString();
-      }
-    );
-
   List<Person> persons = Arrays.asList(   //
     new Person("Alin", 18), //
     new Person("Dan", 23), //
@@ -53,10 +66,165 @@ public class J3StreamOperationsAdvanced {
 //    howToCreateStreams();
 //    streamsAreLazySimpleFilter();
 //    streamsAreLazyOrderingCounts();
+//    streamsAreLazyTraced();
+//    streamsReordered();
 //    CANNOTReuseStreams();
 //    collectors();
 //    flatMap();
 //    reduce();
+//    primitiveColumns();
+//    personsFromFile();
+//    personsOffHeap();
+//    encodedNames();
+//    indexedPersons();
+//    liveAggregates();
+  }
+
+  /**
+   * The summary and the grouping of {@link #collectors()}, kept up to date person by person instead of recomputed
+   * over all of them.
+   */
+  private void liveAggregates() {
+    LiveSummary<Person> ages = LiveSummary.of(persons, Person::getAge);
+    LiveGrouping<Person, Integer> byAge = LiveGrouping.of(persons, Person::getAge, Person::getAge);
+    System.out.println(ages.snapshot());
+    System.out.println(byAge.snapshot());
+
+    // Oana leaves, Ofelia has a birthday: the max comes down from 88, group 12 becomes group 13
+    ages.delete(persons.get(3));
+    byAge.delete(persons.get(3));
+    Person olderOfelia = new Person("Ofelia", 13);
+    ages.update(persons.get(4), olderOfelia);
+    byAge.update(persons.get(4), olderOfelia);
+
+    // snapshots never change, and reading one does not stop the writers
+    LiveGrouping.Snapshot<Integer> snapshot = byAge.snapshot();
+    System.out.println(ages.snapshot());
+    System.out.println(snapshot + " " + snapshot.get(23).getCount());
+  }
+
+  /**
+   * The filters of {@link #collectors()}, answered by indexes instead of testing every person: worth it when the same
+   * kind of query runs again and again over persons which seldom change.
+   */
+  private void indexedPersons() {
+    IndexedPersons indexed = IndexedPersons.of(persons);
+
+    // the "O" filter: the persons under "O" in the name trie
+    System.out.println(indexed.query().nameStartsWith("O").toList());
+
+    // an age range: a sub-map of the age index; counted from the index alone
+    System.out.println(indexed.query().ageBetween(18, 30).count());
+
+    // both: the smaller of the two is read, the other condition is tested on it
+    IndexedPersons.Query query = indexed.query().nameStartsWith("O").ageAtLeast(18);
+    System.out.println(query.explain() + " " + query.toList());
+
+    // the indexes follow additions and removals
+    indexed.add(new Person("Olga", 42));
+    indexed.remove(persons.get(3));
+    System.out.println(query.toList());
+  }
+
+  /**
+   * {@link #collectors()} again, with the names replaced by int codes: few distinct names, many rows.
+   * The Strings only come back for the output.
+   */
+  private void encodedNames() {
+    EncodedPersonTable table = EncodedPersonTable.of(persons);
+    System.out.println(table.getDictionary());
+
+    // the "O" filter: one binary search in the dictionary, then a bit test per row
+    table.rowsWithNameStartingWith("O") //
+      .forEach(row -> System.out.println(table.getName(row) + " " + table.getAge(row)));
+
+    // grouping
+    System.out.println(table.countByName());
+    System.out.println(table.ageStatisticsByName());
+
+    // distinct, and equality
+    System.out.println(table.distinctNames());
+    System.out.println(table.rowsNamed("Oana").count());
+
+    // joining: the dictionary's Strings, no new String per row
+    System.out.println(table.names().collect(Collectors.joining(", ", "[", "]")));
+  }
+
+  /**
+   * The same persons, stored outside of the heap: no Person, String or byte[] per person for the garbage collector
+   * to trace, however many of them there are.
+   */
+  private void personsOffHeap() {
+    PersonArena arena = PersonArena.of(persons);
+
+    // reduce(): the ages column, without a Person per row
+    System.out.println(arena.sumOfAges());
+
+    // collectors(): one PersonView per thread, moved from row to row; fine as long as no view is kept
+    Map<Integer, Long> countByAge = arena.flyweightStream().parallel() //
+      .collect(Collectors.groupingBy(Person::getAge, Collectors.counting()));
+    System.out.println(countByAge);
+
+    // keeping persons needs copies
+    Set<Person> oPersons = arena.flyweightStream() //
+      .filter(it -> it.nameStartsWith("O")) //
+      .map(PersonView::toPerson) //
+      .collect(Collectors.toSet());
+    System.out.println(oPersons);
+  }
+
+  /**
+   * The same persons, written to a file and streamed back from it: the file is memory-mapped,
+   * so it can be far bigger than the heap.
+   */
+  private void personsFromFile() {
+    try {
+      Path file = Files.createTempFile("persons", ".csv");
+      PersonFileSink.write(persons.stream(), file, PersonFileFormat.CSV);
+
+      try (PersonFileSource source = PersonFileSource.open(file, PersonFileFormat.CSV)) {
+        source.stream().forEach(System.out::println);
+
+        // one PersonView per thread, moved from record to record, instead of a new Person per record
+        double averageAge = source.flyweightStream().parallel() //
+          .mapToInt(Person::getAge) //
+          .average() //
+          .orElse(0);
+        System.out.println(averageAge);
+
+        // a view is only valid until the stream moves on, so keep copies
+        List<Person> startingWithO = source.flyweightStream() //
+          .filter(it -> it.nameStartsWith("O")) //
+          .map(PersonView::toPerson) //
+          .collect(Collectors.toList());
+        System.out.println(startingWithO);
+      }
+      Files.delete(file);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * The same aggregations as in {@link #reduce()} and {@link #collectors()}, but over primitive columns.
+   *
+   * {@link IntStream} works directly on the ints, so there is no Integer boxing
+   * and no Person object per element.
+   */
+  private void primitiveColumns() {
+    PersonTable table = PersonTable.of(persons);
+
+    System.out.println(table.sumOfAges());
+    System.out.println(table.averageAge());
+    System.out.println(table.ageStatistics());
+
+    // how many are adults?
+    System.out.println(table.countAgedBetween(18, Integer.MAX_VALUE));
+
+    // both columns, still without creating any Person
+    table.rows() //
+      .filter(row -> table.getName(row).startsWith("O")) //
+      .forEach(row -> System.out.println(table.getName(row) + " " + table.getAge(row)));
   }
 
   private void reduce() {
@@ -75,21 +243,28 @@ public class J3StreamOperationsAdvanced {
 
     //
     //
-    Integer sumOfAgesDebug = persons.stream() //
+    // which thread ran the accumulator and the combiner how many times: counted, not printed per call
+    ReductionTrace trace = new ReductionTrace();
+    Integer sumOfAgesDebug = persons.parallelStream() //
       .reduce(
         0,
-        (accumulator, it) -> {
-          System.out.printf("in accumulator: acc=%d, person=%s%n", accumulator, it);
-          return accumulator += it.getAge();
-        },
-        (it1, it2) -> {
-          System.out.printf("in combiner: it1=%d, it2=%d%n", it1, it2);
-          return it1 + it2;
-        }
+        trace.accumulator((Integer accumulator, Person it) -> accumulator + it.getAge()),
+        trace.combiner((it1, it2) -> it1 + it2)
       );
 
     System.out.println(sumOfAgesDebug);
+    System.out.print(trace);
 
+    //
+    // the same without boxing: a long per leaf of the split tree, and a sum which does not overflow
+    long sumOfAgesUnboxed = persons.parallelStream() //
+      .collect(PrimitiveCollectors.summingIntToLong(Person::getAge));
+    System.out.println(sumOfAgesUnboxed);
+
+    // or which says so when it does
+    int sumOfAgesExact = persons.parallelStream() //
+      .collect(PrimitiveCollectors.summingIntExact(Person::getAge));
+    System.out.println(sumOfAgesExact);
   }
 
   /**
@@ -97,9 +272,25 @@ public class J3StreamOperationsAdvanced {
    * flatMap returns a stream of objects.
    */
   private void flatMap() {
+    String everything = persons.stream() //
+      .flatMap(it -> Stream.of(it.getName(), it.getAge())) //
+      .map(Object::toString) //
+      .collect(JoiningCollectors.joining(", ", "[", "]"));
+    System.out.println(everything);
+
+    // for really big joins, skip the String completely and write straight to the console (or a file)
     persons.stream() //
       .flatMap(it -> Stream.of(it.getName(), it.getAge())) //
-      .collect(printListCollector);
+      .map(Object::toString) //
+      .collect(JoiningCollectors.joiningTo(Channels.newChannel(System.out), StandardCharsets.UTF_8, ", ", "[", "]\n"));
+    // a fixed number of elements per person: pushed downstream, instead of a Stream per person
+    String everythingPushed = MapMulti.mapMulti(persons.stream(), (Person it, Consumer<Object> downstream) -> {
+      downstream.accept(it.getName());
+      downstream.accept(it.getAge());
+    }) //
+      .map(Object::toString) //
+      .collect(JoiningCollectors.joining(", ", "[", "]"));
+    System.out.println(everything.equals(everythingPushed));
     // any other example?
   }
 
@@ -123,6 +314,11 @@ public class J3StreamOperationsAdvanced {
 
     personsByAge.forEach((key, val) -> System.out.printf("key(age): %d, val(list of persons): %s%n", key, val));
 
+    // the same, but for small int keys: no hashing, one bucket per possible age
+    Map<Integer, List<Person>> personsByAgeBuckets = persons.parallelStream() //
+      .collect(GroupingCollectors.groupingByIntKey(Person::getAge, 150));
+    System.out.println(personsByAge.equals(personsByAgeBuckets));
+
     //
     // summary of age(s)
     IntSummaryStatistics statistics = persons.stream() //
@@ -170,6 +366,8 @@ public class J3StreamOperationsAdvanced {
    * However there are suppliers, as explained in {@link J1Lambda#suppliers()},
    * so a stream can be (re-)created as many times as it is needed (though this incurs the cost of
    * re-doing all the computations when the stream is used) by calling {@link Supplier<>.get}.
+   *
+   * A {@link CachedStream} does the computations only once, and replays their results.
    */
   private void CANNOTReuseStreams() {
     Stream<String> stream =
@@ -185,6 +383,14 @@ public class J3StreamOperationsAdvanced {
 
     streamSupplier.get().anyMatch(s -> true);
     streamSupplier.get().noneMatch(s -> true);
+
+    // or remember what the first stream delivered, and replay it afterwards: the filter only runs once per element
+    CachedStream<String> cachedStream =
+      CachedStream.of(() -> Stream.of("d2", "a2", "b1", "b3", "c")
+        .filter(s -> s.startsWith("a")));
+
+    cachedStream.stream().anyMatch(s -> true);
+    cachedStream.stream().noneMatch(s -> true);
   }
 
   private void streamsAreLazyOrderingCounts() {
@@ -242,6 +448,56 @@ public class J3StreamOperationsAdvanced {
       .forEach(s -> System.out.println("forEach: " + s));
   }
 
+  /**
+   * The same as {@link #streamsAreLazyOrderingCounts()}, but without a println in every lambda:
+   * {@link Traced} counts what goes in and out of every stage and prints a summary at the end.
+   *
+   * Compare how many elements reach "map" when it is before or after "filter",
+   * and how many comparisons "sorted" needs when it is before or after "filter".
+   */
+  private void streamsAreLazyTraced() {
+    Traced.stream(Stream.of("d2", "a2", "b1", "b3", "c")) //
+      .map("map", s -> s.toUpperCase()) //
+      .filter("filter", s -> s.startsWith("A")) //
+      .forEach(s -> {});
+
+    Traced.stream(Stream.of("d2", "a2", "b1", "b3", "c")) //
+      .filter("filter", s -> s.startsWith("a")) //
+      .map("map", s -> s.toUpperCase()) //
+      .forEach(s -> {});
+
+    Traced.stream(Stream.of("d2", "a2", "b1", "b3", "c")) //
+      .sorted("sort", (s1, s2) -> s1.compareTo(s2)) //
+      .filter("filter", s -> s.startsWith("a")) //
+      .forEach(s -> {});
+
+    Traced.stream(Stream.of("d2", "a2", "b1", "b3", "c")) //
+      .filter("filter", s -> s.startsWith("a")) //
+      .sorted("sort", (s1, s2) -> s1.compareTo(s2)) //
+      .forEach(s -> {});
+
+    // short-circuiting: anyMatch stops at the first "A"
+    Traced.stream(Stream.of("d2", "a2", "b1", "b3", "c")) //
+      .map("map", s -> s.toUpperCase()) //
+      .anyMatch(s -> s.startsWith("A"));
+  }
+
+  /**
+   * When a pipeline is put together at runtime, nobody reorders it by hand.
+   * {@link Pipeline} does it: it moves filters before sorted, fuses maps and turns sorted + limit into a top-k.
+   */
+  private void streamsReordered() {
+    Pipeline<String, String> pipeline = Pipeline.<String>builder() //
+      .sorted() //
+      .filter(s -> s.startsWith("a")) //
+      .map(s -> s.toUpperCase()) //
+      .limit(1) //
+      .build();
+
+    System.out.println(pipeline.explain());
+    pipeline.apply(Stream.of("d2", "a2", "b1", "b3", "c", "a1")).forEach(System.out::println);
+  }
+
   private void streamsAreLazySimpleFilter() {
     Stream.of("d2", "a2", "b1", "b3", "c")
       .filter(s -> {
@@ -0,0 +1,181 @@
+package tbp.land.java8.tutorial.auxiliar.collectors;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collector;
+import java.util.stream.Collectors;
+
+/**
+ * Alternatives to {@link Collectors#groupingBy(Function)} and {@link Collectors#groupingByConcurrent(Function)}
+ * for keys which are small non-negative ints, e.g. {@code groupingByIntKey(Person::getAge, 150)}.
+ *
+ * Instead of one HashMap per split (which the parallel combiner then has to merge key by key), every split
+ * (or every thread, for the concurrent version) fills an array of buckets indexed directly by the key.
+ * Combining only links these arrays together; the elements are copied exactly once, in the finisher,
+ * with a single pass over the keys.
+ */
+public final class GroupingCollectors {
+
+  private GroupingCollectors() {
+  }
+
+  /**
+   * Drop-in alternative to {@code Collectors.groupingBy(classifier)}: keeps the encounter order inside each list.
+   *
+   * @param maxKey the biggest key the classifier can return (inclusive); anything outside [0, maxKey] throws
+   *               an IllegalArgumentException
+   */
+  public static <T> Collector<T, ?, Map<Integer, List<T>>> groupingByIntKey(ToIntFunction<? super T> classifier, int maxKey) {
+    checkMaxKey(maxKey);
+    return Collector.of( //
+      () -> new Partials<T>(maxKey, false) //
+      , (partials, it) -> partials.first.add(key(classifier, it, maxKey), it) //
+      , Partials::combine //
+      , partials -> partials.finish(new HashMap<>()));
+  }
+
+  /**
+   * Drop-in alternative to {@code Collectors.groupingByConcurrent(classifier)}: all the threads of a parallel
+   * stream share one result container, in which every thread has its own bucket array.
+   * Like groupingByConcurrent, the order inside each list is not kept.
+   *
+   * @param maxKey the biggest key the classifier can return (inclusive); anything outside [0, maxKey] throws
+   *               an IllegalArgumentException
+   */
+  public static <T> Collector<T, ?, ConcurrentMap<Integer, List<T>>> groupingByIntKeyConcurrent(ToIntFunction<? super T> classifier, int maxKey) {
+    checkMaxKey(maxKey);
+    return Collector.of( //
+      () -> new Partials<T>(maxKey, true) //
+      , (partials, it) -> partials.local().add(key(classifier, it, maxKey), it) //
+      , Partials::combine //
+      , partials -> partials.finish(new ConcurrentHashMap<>()) //
+      , Collector.Characteristics.CONCURRENT //
+      , Collector.Characteristics.UNORDERED);
+  }
+
+  private static void checkMaxKey(int maxKey) {
+    if (maxKey < 0) {
+      throw new IllegalArgumentException("maxKey must not be negative: " + maxKey);
+    }
+  }
+
+  private static <T> int key(ToIntFunction<? super T> classifier, T element, int maxKey) {
+    int key = classifier.applyAsInt(element);
+    if (key < 0 || key > maxKey) {
+      throw new IllegalArgumentException("key " + key + " of " + element + " is outside [0, " + maxKey + "]");
+    }
+    return key;
+  }
+
+  /**
+   * One list per possible key, created only when the first element for that key arrives.
+   */
+  private static final class Buckets<T> {
+    private final List<T>[] byKey;
+
+    Buckets(int maxKey) {
+      byKey = newArray(maxKey + 1);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> List<T>[] newArray(int length) {
+      return (List<T>[]) new List<?>[length];
+    }
+
+    void add(int key, T element) {
+      List<T> bucket = byKey[key];
+      if (bucket == null) {
+        bucket = new ArrayList<>();
+        byKey[key] = bucket;
+      }
+      bucket.add(element);
+    }
+  }
+
+  /**
+   * All the bucket arrays filled so far, in encounter order.
+   *
+   * The sequential version accumulates into {@link #first}, the concurrent one into the buckets of the current thread,
+   * from {@link #local()}. These are kept here, and not in a ThreadLocal, so that nothing of the result stays reachable
+   * from the pool's threads once the collect is over.
+   */
+  private static final class Partials<T> {
+    private final int maxKey;
+    private final Queue<Buckets<T>> parts;
+    private final Buckets<T> first;
+    private final ConcurrentMap<Thread, Buckets<T>> byThread;
+
+    Partials(int maxKey, boolean concurrent) {
+      this.maxKey = maxKey;
+      if (concurrent) {
+        this.parts = new ConcurrentLinkedQueue<>();
+        this.first = null;
+        this.byThread = new ConcurrentHashMap<>();
+      } else {
+        this.parts = new ArrayDeque<>(1);
+        this.first = new Buckets<>(maxKey);
+        this.byThread = null;
+        this.parts.add(first);
+      }
+    }
+
+    Buckets<T> local() {
+      Thread thread = Thread.currentThread();
+      Buckets<T> buckets = byThread.get(thread);
+      if (buckets == null) {
+        // only this thread ever puts its own key
+        buckets = new Buckets<>(maxKey);
+        byThread.put(thread, buckets);
+        parts.add(buckets);
+      }
+      return buckets;
+    }
+
+    Partials<T> combine(Partials<T> right) {
+      parts.addAll(right.parts);
+      return this;
+    }
+
+    <M extends Map<Integer, List<T>>> M finish(M result) {
+      if (byThread != null) {
+        byThread.clear();
+      }
+      for (int key = 0; key <= maxKey; key++) {
+        List<T> only = null;
+        int total = 0;
+        int nonEmpty = 0;
+        for (Buckets<T> part : parts) {
+          List<T> bucket = part.byKey[key];
+          if (bucket != null) {
+            only = bucket;
+            total += bucket.size();
+            nonEmpty++;
+          }
+        }
+
+        if (nonEmpty == 1) {
+          result.put(key, only);
+        } else if (nonEmpty > 1) {
+          List<T> merged = new ArrayList<>(total);
+          for (Buckets<T> part : parts) {
+            List<T> bucket = part.byKey[key];
+            if (bucket != null) {
+              merged.addAll(bucket);
+            }
+          }
+          result.put(key, merged);
+        }
+      }
+      return result;
+    }
+  }
+}
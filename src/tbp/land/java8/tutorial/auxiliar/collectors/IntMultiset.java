@@ -0,0 +1,51 @@
+package tbp.land.java8.tutorial.auxiliar.collectors;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Ints with their number of occurrences, sorted, so that the min and the max are still known after a removal.
+ * Not thread safe: the writers of {@link LiveSummary} and {@link LiveGrouping} use it under their lock.
+ */
+final class IntMultiset {
+
+  private final TreeMap<Integer, int[]> occurrences = new TreeMap<>();
+  private long count;
+  private long sum;
+
+  void add(int value) {
+    int[] times = occurrences.get(value);
+    if (times == null) {
+      occurrences.put(value, new int[] { 1 });
+    } else {
+      times[0]++;
+    }
+    count++;
+    sum += value;
+  }
+
+  /**
+   * @return false, and nothing removed, if the value is not there
+   */
+  boolean remove(int value) {
+    int[] times = occurrences.get(value);
+    if (times == null) {
+      return false;
+    }
+    if (--times[0] == 0) {
+      occurrences.remove(value);
+    }
+    count--;
+    sum -= value;
+    return true;
+  }
+
+  IntSummary summary() {
+    if (count == 0) {
+      return IntSummary.EMPTY;
+    }
+    Map.Entry<Integer, int[]> min = occurrences.firstEntry();
+    Map.Entry<Integer, int[]> max = occurrences.lastEntry();
+    return new IntSummary(count, sum, min.getKey(), max.getKey());
+  }
+}
@@ -0,0 +1,74 @@
+package tbp.land.java8.tutorial.auxiliar.collectors;
+
+/**
+ * An immutable {@link java.util.IntSummaryStatistics}: count, sum, min and max of some ints, safe to hand out to any
+ * number of readers while the values it was taken from keep changing.
+ */
+public final class IntSummary {
+
+  public static final IntSummary EMPTY = new IntSummary(0, 0, Integer.MAX_VALUE, Integer.MIN_VALUE);
+
+  private final long count;
+  private final long sum;
+  private final int min;
+  private final int max;
+
+  IntSummary(long count, long sum, int min, int max) {
+    this.count = count;
+    this.sum = sum;
+    this.min = min;
+    this.max = max;
+  }
+
+  public long getCount() {
+    return count;
+  }
+
+  public long getSum() {
+    return sum;
+  }
+
+  /**
+   * {@code Integer.MAX_VALUE} when empty, like IntSummaryStatistics.
+   */
+  public int getMin() {
+    return min;
+  }
+
+  /**
+   * {@code Integer.MIN_VALUE} when empty, like IntSummaryStatistics.
+   */
+  public int getMax() {
+    return max;
+  }
+
+  public double getAverage() {
+    return count > 0 ? (double) sum / count : 0;
+  }
+
+  public IntSummary combine(IntSummary other) {
+    return new IntSummary(count + other.count, sum + other.sum, Math.min(min, other.min), Math.max(max, other.max));
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    if (!(other instanceof IntSummary)) {
+      return false;
+    }
+    IntSummary summary = (IntSummary) other;
+    return count == summary.count && sum == summary.sum && min == summary.min && max == summary.max;
+  }
+
+  @Override
+  public int hashCode() {
+    return Long.hashCode(31 * (31 * count + sum) + 31 * min + max);
+  }
+
+  /**
+   * The same text as IntSummaryStatistics.
+   */
+  @Override
+  public String toString() {
+    return String.format("%s{count=%d, sum=%d, min=%d, average=%f, max=%d}", getClass().getSimpleName(), count, sum, min, getAverage(), max);
+  }
+}
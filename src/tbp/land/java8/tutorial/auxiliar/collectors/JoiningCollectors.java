@@ -0,0 +1,279 @@
+package tbp.land.java8.tutorial.auxiliar.collectors;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.Objects;
+import java.util.stream.Collector;
+import java.util.stream.Collectors;
+
+/**
+ * Alternatives to {@link Collectors#joining(CharSequence, CharSequence, CharSequence)} for big parallel joins.
+ *
+ * {@code Collectors.joining} (and a {@code StringJoiner} based collector) copies all the characters of the right
+ * side every time two splits are combined. Here every split appends into its own list of pre-sized char chunks,
+ * combining two splits only links their chunk lists, and the characters are copied out exactly once:
+ * either into the final String, or straight into a {@link Writer} / {@link WritableByteChannel},
+ * in which case no String holding everything is ever built.
+ */
+public final class JoiningCollectors {
+
+  /**
+   * Size (in chars) of the chunks every split appends into.
+   */
+  public static final int DEFAULT_CHUNK_SIZE = 8 * 1024;
+
+  private static final int BYTE_BUFFER_SIZE = 64 * 1024;
+
+  private JoiningCollectors() {
+  }
+
+  public static Collector<CharSequence, ?, String> joining(CharSequence delimiter, CharSequence prefix, CharSequence suffix) {
+    String theDelimiter = delimiter.toString();
+    String thePrefix = prefix.toString();
+    String theSuffix = suffix.toString();
+    return Collector.of( //
+      () -> new Rope(theDelimiter, DEFAULT_CHUNK_SIZE) //
+      , Rope::add //
+      , Rope::merge //
+      , it -> it.materialize(thePrefix, theSuffix));
+  }
+
+  /**
+   * Writes the joined text to {@code writer} and returns the number of chars written.
+   *
+   * The writer is neither flushed nor closed; an IOException is rethrown as an UncheckedIOException.
+   */
+  public static Collector<CharSequence, ?, Long> joiningTo(Writer writer, CharSequence delimiter, CharSequence prefix, CharSequence suffix) {
+    Objects.requireNonNull(writer, "writer");
+    String theDelimiter = delimiter.toString();
+    String thePrefix = prefix.toString();
+    String theSuffix = suffix.toString();
+    return Collector.of( //
+      () -> new Rope(theDelimiter, DEFAULT_CHUNK_SIZE) //
+      , Rope::add //
+      , Rope::merge //
+      , it -> it.writeTo(writer, thePrefix, theSuffix));
+  }
+
+  /**
+   * Encodes the joined text with {@code charset} and writes it to {@code channel}, one chunk at a time,
+   * through a single reusable direct buffer. Returns the number of bytes written.
+   *
+   * Malformed and unmappable characters are replaced, the same as {@link String#getBytes(Charset)} does.
+   * The channel is not closed; an IOException is rethrown as an UncheckedIOException.
+   */
+  public static Collector<CharSequence, ?, Long> joiningTo(WritableByteChannel channel, Charset charset, CharSequence delimiter, CharSequence prefix, CharSequence suffix) {
+    Objects.requireNonNull(channel, "channel");
+    Objects.requireNonNull(charset, "charset");
+    String theDelimiter = delimiter.toString();
+    String thePrefix = prefix.toString();
+    String theSuffix = suffix.toString();
+    return Collector.of( //
+      () -> new Rope(theDelimiter, DEFAULT_CHUNK_SIZE) //
+      , Rope::add //
+      , Rope::merge //
+      , it -> it.writeTo(channel, charset, thePrefix, theSuffix));
+  }
+
+  private static final class Chunk {
+    final char[] chars;
+    int length;
+    Chunk next;
+
+    Chunk(int capacity) {
+      this.chars = new char[capacity];
+    }
+  }
+
+  /**
+   * A singly linked list of char chunks; only the last chunk is ever appended to.
+   */
+  private static final class Rope {
+    private final String delimiter;
+    private final int chunkSize;
+    private Chunk head;
+    private Chunk tail;
+    private long length;
+    private boolean empty = true;
+
+    Rope(String delimiter, int chunkSize) {
+      this.delimiter = delimiter;
+      this.chunkSize = chunkSize;
+    }
+
+    void add(CharSequence element) {
+      if (!empty) {
+        append(delimiter);
+      }
+      append(element);
+      empty = false;
+    }
+
+    Rope merge(Rope right) {
+      if (right.empty) {
+        return this;
+      }
+      if (empty) {
+        return right;
+      }
+      append(delimiter);
+      if (right.head != null) {
+        if (tail == null) {
+          head = right.head;
+        } else {
+          tail.next = right.head;
+        }
+        tail = right.tail;
+        length += right.length;
+      }
+      return this;
+    }
+
+    private void append(CharSequence text) {
+      int from = 0;
+      int to = text.length();
+      while (from < to) {
+        if (tail == null || tail.length == tail.chars.length) {
+          Chunk chunk = new Chunk(Math.max(chunkSize, to - from));
+          if (tail == null) {
+            head = chunk;
+          } else {
+            tail.next = chunk;
+          }
+          tail = chunk;
+        }
+        int count = Math.min(to - from, tail.chars.length - tail.length);
+        if (text instanceof String) {
+          ((String) text).getChars(from, from + count, tail.chars, tail.length);
+        } else {
+          for (int i = 0; i < count; i++) {
+            tail.chars[tail.length + i] = text.charAt(from + i);
+          }
+        }
+        tail.length += count;
+        length += count;
+        from += count;
+      }
+    }
+
+    String materialize(String prefix, String suffix) {
+      long total = prefix.length() + length + suffix.length();
+      if (total > Integer.MAX_VALUE) {
+        throw new OutOfMemoryError("joined text has " + total + " chars, which does not fit in a String");
+      }
+      char[] all = new char[(int) total];
+      int position = 0;
+      prefix.getChars(0, prefix.length(), all, position);
+      position += prefix.length();
+      for (Chunk chunk = head; chunk != null; chunk = chunk.next) {
+        System.arraycopy(chunk.chars, 0, all, position, chunk.length);
+        position += chunk.length;
+      }
+      suffix.getChars(0, suffix.length(), all, position);
+      return new String(all);
+    }
+
+    Long writeTo(Writer writer, String prefix, String suffix) {
+      try {
+        writer.write(prefix);
+        for (Chunk chunk = head; chunk != null; chunk = chunk.next) {
+          writer.write(chunk.chars, 0, chunk.length);
+        }
+        writer.write(suffix);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      return prefix.length() + length + suffix.length();
+    }
+
+    Long writeTo(WritableByteChannel channel, Charset charset, String prefix, String suffix) {
+      try {
+        ChannelEncoder encoder = new ChannelEncoder(channel, charset);
+        encoder.encode(CharBuffer.wrap(prefix));
+        for (Chunk chunk = head; chunk != null; chunk = chunk.next) {
+          encoder.encode(CharBuffer.wrap(chunk.chars, 0, chunk.length));
+        }
+        encoder.encode(CharBuffer.wrap(suffix));
+        return encoder.finish();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+  }
+
+  /**
+   * Encodes consecutive char buffers into a channel.
+   *
+   * A surrogate pair may be split between two chunks, so a trailing high surrogate is kept aside
+   * and encoded together with the first char of the next buffer.
+   */
+  private static final class ChannelEncoder {
+    private final WritableByteChannel channel;
+    private final CharsetEncoder encoder;
+    private final ByteBuffer out = ByteBuffer.allocateDirect(BYTE_BUFFER_SIZE);
+    private final CharBuffer pending = CharBuffer.allocate(2);
+    private long written;
+
+    ChannelEncoder(WritableByteChannel channel, Charset charset) {
+      this.channel = channel;
+      this.encoder = charset.newEncoder() //
+        .onMalformedInput(CodingErrorAction.REPLACE) //
+        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+
+    void encode(CharBuffer in) throws IOException {
+      while (pending.position() > 0 && in.hasRemaining()) {
+        pending.put(in.get());
+        pending.flip();
+        encode(pending, false);
+        pending.compact();
+      }
+      if (pending.position() > 0) {
+        return;
+      }
+      encode(in, false);
+      if (in.hasRemaining()) {
+        pending.put(in.get());
+      }
+    }
+
+    long finish() throws IOException {
+      pending.flip();
+      encode(pending, true);
+      while (encoder.flush(out).isOverflow()) {
+        drain();
+      }
+      drain();
+      return written;
+    }
+
+    private void encode(CharBuffer in, boolean endOfInput) throws IOException {
+      while (true) {
+        CoderResult result = encoder.encode(in, out, endOfInput);
+        if (result.isOverflow()) {
+          drain();
+        } else if (result.isUnderflow()) {
+          return;
+        } else {
+          result.throwException();
+        }
+      }
+    }
+
+    private void drain() throws IOException {
+      out.flip();
+      while (out.hasRemaining()) {
+        written += channel.write(out);
+      }
+      out.clear();
+    }
+  }
+}
@@ -0,0 +1,276 @@
+package tbp.land.java8.tutorial.auxiliar.collectors;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * {@code Collectors.groupingBy(classifier, summarizingInt(mapper))}, kept up to date as elements come and go:
+ *
+ * <pre>
+ * LiveGrouping&lt;Person, String&gt; byName = LiveGrouping.of(persons, Person::getName, Person::getAge);
+ * byName.update(oana, olderOana);
+ * LiveGrouping.Snapshot&lt;String&gt; snapshot = byName.snapshot();
+ * snapshot.get("Oana").getMax();
+ * snapshot.toMap();
+ * </pre>
+ *
+ * An update changes the group of the element (see {@link LiveSummary}) and publishes a new snapshot. Snapshots are
+ * immutable and share most of their state: the groups are kept in chunks of 64, and a write only copies the chunks of
+ * the groups it changed, plus the array of chunks (one reference per 64 groups). With 100000 groups that is a few
+ * microseconds per write, instead of summarizing every group again, and a reader holding a snapshot sees all the
+ * groups as they were at one and the same write, without ever locking.
+ *
+ * Groups are not forgotten when they become empty; they are left out of {@link Snapshot#toMap()}.
+ */
+public final class LiveGrouping<T, K> {
+
+  private static final int CHUNK_SHIFT = 6;
+  private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+  private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+  private final Function<? super T, ? extends K> classifier;
+  private final ToIntFunction<? super T> mapper;
+  private final Object lock = new Object();
+  /**
+   * Slots of the keys, in the order they were first seen; a slot, once given, never changes.
+   * Written under the lock, read by snapshots too.
+   */
+  private final ConcurrentMap<K, Integer> slots = new ConcurrentHashMap<>();
+  /**
+   * The values of each group, by slot; writers only.
+   */
+  private final List<IntMultiset> groups = new ArrayList<>();
+  /**
+   * The key of each slot; writers only.
+   */
+  private final List<K> slotKeys = new ArrayList<>();
+  private volatile Snapshot<K> snapshot = new Snapshot<>(slots, new Object[0][], 0, 0);
+
+  public LiveGrouping(Function<? super T, ? extends K> classifier, ToIntFunction<? super T> mapper) {
+    this.classifier = Objects.requireNonNull(classifier, "classifier");
+    this.mapper = Objects.requireNonNull(mapper, "mapper");
+  }
+
+  public static <T, K> LiveGrouping<T, K> of(Collection<? extends T> elements, Function<? super T, ? extends K> classifier,
+    ToIntFunction<? super T> mapper) {
+    LiveGrouping<T, K> grouping = new LiveGrouping<>(classifier, mapper);
+    grouping.insertAll(elements);
+    return grouping;
+  }
+
+  public void insert(T element) {
+    K key = Objects.requireNonNull(classifier.apply(element), "key");
+    int value = mapper.applyAsInt(element);
+    synchronized (lock) {
+      int slot = slotOf(key);
+      groups.get(slot).add(value);
+      snapshot = snapshot.with(slot, key, groups.get(slot).summary());
+    }
+  }
+
+  /**
+   * Published once, after all of them; if the classifier or the mapper throws, none of them is inserted.
+   */
+  public void insertAll(Collection<? extends T> elements) {
+    Object[] keys = elements.toArray();
+    int[] values = new int[keys.length];
+    for (int i = 0; i < keys.length; i++) {
+      @SuppressWarnings("unchecked")
+      T element = (T) keys[i];
+      keys[i] = Objects.requireNonNull(classifier.apply(element), "key");
+      values[i] = mapper.applyAsInt(element);
+    }
+    synchronized (lock) {
+      BitSet touched = new BitSet();
+      for (int i = 0; i < keys.length; i++) {
+        @SuppressWarnings("unchecked")
+        K key = (K) keys[i];
+        int slot = slotOf(key);
+        groups.get(slot).add(values[i]);
+        touched.set(slot);
+      }
+      snapshot = snapshot.with(touched, slotKeys, groups);
+    }
+  }
+
+  /**
+   * @return false if no inserted element has the key and value of this one
+   */
+  public boolean delete(T element) {
+    K key = classifier.apply(element);
+    int value = mapper.applyAsInt(element);
+    synchronized (lock) {
+      Integer slot = key == null ? null : slots.get(key);
+      if (slot == null || !groups.get(slot).remove(value)) {
+        return false;
+      }
+      snapshot = snapshot.with(slot, key, groups.get(slot).summary());
+      return true;
+    }
+  }
+
+  /**
+   * A changed element, which may move to another group: readers see both groups before, or both after.
+   *
+   * @return false, and nothing changed, if no inserted element has the key and value of the old one
+   */
+  public boolean update(T old, T updated) {
+    K oldKey = classifier.apply(old);
+    int oldValue = mapper.applyAsInt(old);
+    K newKey = Objects.requireNonNull(classifier.apply(updated), "key");
+    int newValue = mapper.applyAsInt(updated);
+    synchronized (lock) {
+      Integer oldSlot = oldKey == null ? null : slots.get(oldKey);
+      if (oldSlot == null || !groups.get(oldSlot).remove(oldValue)) {
+        return false;
+      }
+      int newSlot = slotOf(newKey);
+      groups.get(newSlot).add(newValue);
+      BitSet touched = new BitSet();
+      touched.set(oldSlot);
+      touched.set(newSlot);
+      snapshot = snapshot.with(touched, slotKeys, groups);
+      return true;
+    }
+  }
+
+  /**
+   * The groups as of the last write, without waiting for the writes in progress.
+   */
+  public Snapshot<K> snapshot() {
+    return snapshot;
+  }
+
+  private int slotOf(K key) {
+    Integer slot = slots.get(key);
+    if (slot == null) {
+      slot = groups.size();
+      groups.add(new IntMultiset());
+      slotKeys.add(key);
+      slots.put(key, slot);
+    }
+    return slot;
+  }
+
+  /**
+   * The summary of every group, as of one write.
+   */
+  public static final class Snapshot<K> {
+    private final Map<K, Integer> slots;
+    /**
+     * Chunks of {@code Map.Entry<K, IntSummary>}, by slot.
+     */
+    private final Object[][] chunks;
+    private final int size;
+    private final long version;
+
+    private Snapshot(Map<K, Integer> slots, Object[][] chunks, int size, long version) {
+      this.slots = slots;
+      this.chunks = chunks;
+      this.size = size;
+      this.version = version;
+    }
+
+    /**
+     * A copy with the group of the slot replaced: the chunk of the slot is copied, the others are shared.
+     */
+    private Snapshot<K> with(int slot, K key, IntSummary summary) {
+      int chunk = slot >>> CHUNK_SHIFT;
+      Object[][] chunks = Arrays.copyOf(this.chunks, Math.max(this.chunks.length, chunk + 1));
+      chunks[chunk] = chunks[chunk] == null ? new Object[CHUNK_SIZE] : chunks[chunk].clone();
+      chunks[chunk][slot & CHUNK_MASK] = new AbstractMap.SimpleImmutableEntry<>(key, summary);
+      return new Snapshot<>(slots, chunks, Math.max(size, slot + 1), version + 1);
+    }
+
+    /**
+     * A copy with the groups of the touched slots replaced: the array of chunks is copied once, and so is every chunk
+     * with a touched slot in it.
+     */
+    private Snapshot<K> with(BitSet touched, List<K> keys, List<IntMultiset> groups) {
+      int last = touched.length() - 1;
+      if (last < 0) {
+        return this;
+      }
+      Object[][] chunks = Arrays.copyOf(this.chunks, Math.max(this.chunks.length, (last >>> CHUNK_SHIFT) + 1));
+      int copied = -1;
+      for (int slot = touched.nextSetBit(0); slot >= 0; slot = touched.nextSetBit(slot + 1)) {
+        int chunk = slot >>> CHUNK_SHIFT;
+        // slots come in order, so the chunks do too
+        if (chunk != copied) {
+          chunks[chunk] = chunks[chunk] == null ? new Object[CHUNK_SIZE] : chunks[chunk].clone();
+          copied = chunk;
+        }
+        chunks[chunk][slot & CHUNK_MASK] =
+            new AbstractMap.SimpleImmutableEntry<>(keys.get(slot), groups.get(slot).summary());
+      }
+      return new Snapshot<>(slots, chunks, Math.max(size, last + 1), version + 1);
+    }
+
+    /**
+     * {@link IntSummary#EMPTY} for a key with no elements.
+     */
+    public IntSummary get(K key) {
+      Integer slot = slots.get(key);
+      // a slot past the size was given after this snapshot
+      return slot == null || slot >= size ? IntSummary.EMPTY : entry(slot).getValue();
+    }
+
+    /**
+     * The non-empty groups, in the order their keys were first seen.
+     */
+    public Map<K, IntSummary> toMap() {
+      Map<K, IntSummary> groups = new LinkedHashMap<>();
+      forEach(groups::put);
+      return groups;
+    }
+
+    public void forEach(BiConsumer<? super K, ? super IntSummary> action) {
+      for (int slot = 0; slot < size; slot++) {
+        Map.Entry<K, IntSummary> entry = entry(slot);
+        if (entry.getValue().getCount() > 0) {
+          action.accept(entry.getKey(), entry.getValue());
+        }
+      }
+    }
+
+    /**
+     * The summary of all the groups together.
+     */
+    public IntSummary total() {
+      IntSummary total = IntSummary.EMPTY;
+      for (int slot = 0; slot < size; slot++) {
+        total = total.combine(entry(slot).getValue());
+      }
+      return total;
+    }
+
+    /**
+     * Grows with every write, so a reader can tell whether anything changed since its last snapshot.
+     */
+    public long getVersion() {
+      return version;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map.Entry<K, IntSummary> entry(int slot) {
+      return (Map.Entry<K, IntSummary>) chunks[slot >>> CHUNK_SHIFT][slot & CHUNK_MASK];
+    }
+
+    @Override
+    public String toString() {
+      return toMap().toString();
+    }
+  }
+}
@@ -0,0 +1,106 @@
+package tbp.land.java8.tutorial.auxiliar.collectors;
+
+import java.util.Collection;
+import java.util.Objects;
+import java.util.function.ToIntFunction;
+
+/**
+ * {@code Collectors.summarizingInt(mapper)}, kept up to date as elements come and go, instead of recomputed over all
+ * of them every time:
+ *
+ * <pre>
+ * LiveSummary&lt;Person&gt; ages = LiveSummary.of(persons, Person::getAge);
+ * ages.insert(new Person("Olga", 42));
+ * ages.delete(dan);
+ * IntSummary summary = ages.snapshot(); // count, sum, min, max and average
+ * </pre>
+ *
+ * An update costs a lookup in a sorted multiset of the values, which is what keeps the min and the max right after
+ * a deletion. Writers take turns on a lock; readers never lock, they read the summary published by the last write.
+ */
+public final class LiveSummary<T> {
+
+  private final ToIntFunction<? super T> mapper;
+  private final Object lock = new Object();
+  private final IntMultiset values = new IntMultiset();
+  private volatile IntSummary summary = IntSummary.EMPTY;
+
+  public LiveSummary(ToIntFunction<? super T> mapper) {
+    this.mapper = Objects.requireNonNull(mapper, "mapper");
+  }
+
+  public static <T> LiveSummary<T> of(Collection<? extends T> elements, ToIntFunction<? super T> mapper) {
+    LiveSummary<T> summary = new LiveSummary<>(mapper);
+    summary.insertAll(elements);
+    return summary;
+  }
+
+  public void insert(T element) {
+    int value = mapper.applyAsInt(element);
+    synchronized (lock) {
+      values.add(value);
+      summary = values.summary();
+    }
+  }
+
+  /**
+   * Published once, after all of them; if the mapper throws, none of them is inserted.
+   */
+  public void insertAll(Collection<? extends T> elements) {
+    int[] mapped = new int[elements.size()];
+    int count = 0;
+    for (T element : elements) {
+      mapped[count++] = mapper.applyAsInt(element);
+    }
+    synchronized (lock) {
+      for (int i = 0; i < count; i++) {
+        values.add(mapped[i]);
+      }
+      summary = values.summary();
+    }
+  }
+
+  /**
+   * @return false if no inserted element has the value of this one
+   */
+  public boolean delete(T element) {
+    int value = mapper.applyAsInt(element);
+    synchronized (lock) {
+      if (!values.remove(value)) {
+        return false;
+      }
+      summary = values.summary();
+      return true;
+    }
+  }
+
+  /**
+   * A changed element: readers see the summary before or after, never with the element deleted but not inserted.
+   *
+   * @return false, and nothing changed, if no inserted element has the value of the old one
+   */
+  public boolean update(T old, T updated) {
+    int oldValue = mapper.applyAsInt(old);
+    int newValue = mapper.applyAsInt(updated);
+    synchronized (lock) {
+      if (!values.remove(oldValue)) {
+        return false;
+      }
+      values.add(newValue);
+      summary = values.summary();
+      return true;
+    }
+  }
+
+  /**
+   * The summary of the last write, without waiting for the writes in progress.
+   */
+  public IntSummary snapshot() {
+    return summary;
+  }
+
+  @Override
+  public String toString() {
+    return summary.toString();
+  }
+}
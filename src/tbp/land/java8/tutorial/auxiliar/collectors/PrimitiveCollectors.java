@@ -0,0 +1,236 @@
+package tbp.land.java8.tutorial.auxiliar.collectors;
+
+import java.util.Objects;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.IntBinaryOperator;
+import java.util.function.LongBinaryOperator;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collector;
+
+/**
+ * Reductions of a stream of objects to an int, a long or a double, without the boxing of
+ * {@code reduce(0, (Integer accumulator, Person it) -> accumulator += it.getAge(), Integer::sum)}:
+ *
+ * <pre>
+ * long sumOfAges = persons.parallelStream().collect(PrimitiveCollectors.summingIntToLong(Person::getAge));
+ * </pre>
+ *
+ * Every leaf of the stream's split tree (one per split of a parallel stream, a single one for a sequential stream)
+ * accumulates into a mutable cell of its own, and the cells are combined two by two on the way back up the tree,
+ * so a parallel reduction does as many combines as splits and never shares a cell between threads.
+ *
+ * The sums come in flavours which do not silently overflow or lose precision:
+ * <ul>
+ *   <li>{@link #summingIntToLong}: int values, long sum; it would take 2^32 values to overflow</li>
+ *   <li>{@link #summingIntExact} and {@link #summingLongExact}: an ArithmeticException when the sum overflows, instead
+ *   of a wrong sum</li>
+ *   <li>{@link #summingDoubleCompensated}: Kahan summation (Neumaier's variant), which keeps the low-order bits that
+ *   a plain {@code +=} of many doubles drops</li>
+ * </ul>
+ */
+public final class PrimitiveCollectors {
+
+  private PrimitiveCollectors() {
+  }
+
+  public static <T> Collector<T, ?, Long> summingIntToLong(ToIntFunction<? super T> mapper) {
+    Objects.requireNonNull(mapper, "mapper");
+    return Collector.of( //
+      LongCell::new //
+      , (cell, it) -> cell.value += mapper.applyAsInt(it) //
+      , (left, right) -> {
+        left.value += right.value;
+        return left;
+      } //
+      , cell -> cell.value //
+      , Collector.Characteristics.UNORDERED);
+  }
+
+  /**
+   * Sums in a long, and checks once, at the end: the partial sums may overflow an int on the way (with values of both
+   * signs, depending on the order and on how the stream was split), only the total has to fit.
+   *
+   * @throws ArithmeticException from the terminal operation, if the sum does not fit an int
+   */
+  public static <T> Collector<T, ?, Integer> summingIntExact(ToIntFunction<? super T> mapper) {
+    Objects.requireNonNull(mapper, "mapper");
+    return Collector.of( //
+      LongCell::new //
+      , (cell, it) -> cell.value += mapper.applyAsInt(it) //
+      , (left, right) -> {
+        left.value += right.value;
+        return left;
+      } //
+      , cell -> Math.toIntExact(cell.value) //
+      , Collector.Characteristics.UNORDERED);
+  }
+
+  /**
+   * Sums in 128 bits, and checks once, at the end: as for {@link #summingIntExact}, only the total has to fit.
+   *
+   * @throws ArithmeticException from the terminal operation, if the sum does not fit a long
+   */
+  public static <T> Collector<T, ?, Long> summingLongExact(ToLongFunction<? super T> mapper) {
+    Objects.requireNonNull(mapper, "mapper");
+    return Collector.of( //
+      WideSum::new //
+      , (sum, it) -> sum.add(mapper.applyAsLong(it)) //
+      , WideSum::combine //
+      , WideSum::result //
+      , Collector.Characteristics.UNORDERED);
+  }
+
+  public static <T> Collector<T, ?, Double> summingDoubleCompensated(ToDoubleFunction<? super T> mapper) {
+    Objects.requireNonNull(mapper, "mapper");
+    return Collector.of( //
+      CompensatedSum::new //
+      , (sum, it) -> sum.add(mapper.applyAsDouble(it)) //
+      , CompensatedSum::combine //
+      , CompensatedSum::result);
+  }
+
+  /**
+   * {@code reduce(identity, op)} over the mapped values, in an int cell.
+   *
+   * @param op associative, and {@code identity} must be its identity, as for {@code IntStream.reduce}
+   */
+  public static <T> Collector<T, ?, Integer> reducingInt(int identity, ToIntFunction<? super T> mapper, IntBinaryOperator op) {
+    Objects.requireNonNull(mapper, "mapper");
+    Objects.requireNonNull(op, "op");
+    return Collector.of( //
+      () -> new IntCell(identity) //
+      , (cell, it) -> cell.value = op.applyAsInt(cell.value, mapper.applyAsInt(it)) //
+      , (left, right) -> {
+        left.value = op.applyAsInt(left.value, right.value);
+        return left;
+      } //
+      , cell -> cell.value);
+  }
+
+  /**
+   * {@code reduce(identity, op)} over the mapped values, in a long cell.
+   */
+  public static <T> Collector<T, ?, Long> reducingLong(long identity, ToLongFunction<? super T> mapper, LongBinaryOperator op) {
+    Objects.requireNonNull(mapper, "mapper");
+    Objects.requireNonNull(op, "op");
+    return Collector.of( //
+      () -> new LongCell(identity) //
+      , (cell, it) -> cell.value = op.applyAsLong(cell.value, mapper.applyAsLong(it)) //
+      , (left, right) -> {
+        left.value = op.applyAsLong(left.value, right.value);
+        return left;
+      } //
+      , cell -> cell.value);
+  }
+
+  /**
+   * {@code reduce(identity, op)} over the mapped values, in a double cell.
+   */
+  public static <T> Collector<T, ?, Double> reducingDouble(double identity, ToDoubleFunction<? super T> mapper, DoubleBinaryOperator op) {
+    Objects.requireNonNull(mapper, "mapper");
+    Objects.requireNonNull(op, "op");
+    return Collector.of( //
+      () -> new DoubleCell(identity) //
+      , (cell, it) -> cell.value = op.applyAsDouble(cell.value, mapper.applyAsDouble(it)) //
+      , (left, right) -> {
+        left.value = op.applyAsDouble(left.value, right.value);
+        return left;
+      } //
+      , cell -> cell.value);
+  }
+
+  private static final class IntCell {
+    int value;
+
+    IntCell(int value) {
+      this.value = value;
+    }
+  }
+
+  private static final class LongCell {
+    long value;
+
+    LongCell() {
+    }
+
+    LongCell(long value) {
+      this.value = value;
+    }
+  }
+
+  private static final class DoubleCell {
+    double value;
+
+    DoubleCell(double value) {
+      this.value = value;
+    }
+  }
+
+  /**
+   * A 128 bit sum: {@code high * 2^64 + low}, {@code low} being signed.
+   */
+  private static final class WideSum {
+    long low;
+    long high;
+
+    void add(long value) {
+      long next = low + value;
+      // both had the sign the result does not have: it wrapped around, by 2^64 one way or the other
+      if (((low ^ next) & (value ^ next)) < 0) {
+        high += value < 0 ? -1 : 1;
+      }
+      low = next;
+    }
+
+    WideSum combine(WideSum other) {
+      add(other.low);
+      high += other.high;
+      return this;
+    }
+
+    Long result() {
+      if (high != 0) {
+        throw new ArithmeticException("long overflow");
+      }
+      return low;
+    }
+  }
+
+  /**
+   * The sum, plus what rounding took away from it so far.
+   */
+  private static final class CompensatedSum {
+    double sum;
+    double compensation;
+    /**
+     * The plain sum, which is the right result when the values contain infinities (the compensated one is then NaN).
+     */
+    double simpleSum;
+
+    void add(double value) {
+      double next = sum + value;
+      if (Math.abs(sum) >= Math.abs(value)) {
+        compensation += (sum - next) + value;
+      } else {
+        compensation += (value - next) + sum;
+      }
+      sum = next;
+      simpleSum += value;
+    }
+
+    CompensatedSum combine(CompensatedSum other) {
+      double simpleSum = this.simpleSum + other.simpleSum;
+      add(other.sum);
+      add(other.compensation);
+      this.simpleSum = simpleSum;
+      return this;
+    }
+
+    Double result() {
+      double result = sum + compensation;
+      return Double.isNaN(result) && Double.isInfinite(simpleSum) ? simpleSum : result;
+    }
+  }
+}
@@ -0,0 +1,126 @@
+package tbp.land.java8.tutorial.auxiliar.collectors;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.BinaryOperator;
+import java.util.function.Supplier;
+import java.util.stream.Collector;
+
+/**
+ * Counts what a reduction does, per thread, instead of printing a line per call:
+ *
+ * <pre>
+ * ReductionTrace trace = new ReductionTrace();
+ * Integer sum = persons.parallelStream() //
+ *   .reduce(0, trace.accumulator((Integer accumulator, Person it) -&gt; accumulator + it.getAge()), trace.combiner(Integer::sum));
+ * System.out.println(trace);
+ * </pre>
+ * prints a line per thread which took part, e.g. for the 5 persons of {@code J3StreamOperationsAdvanced} on 4 cores
+ * (which threads, and how the work is shared between them, changes from run to run):
+ * <pre>
+ * ForkJoinPool.commonPool-worker-1: 0 containers, 2 accumulations, 2 combines
+ * ForkJoinPool.commonPool-worker-2: 0 containers, 1 accumulations, 2 combines
+ * main: 0 containers, 2 accumulations, 0 combines
+ * </pre>
+ *
+ * Works for {@code reduce} (see {@link #accumulator} and {@link #combiner}) and for {@code collect}
+ * (see {@link #collector}). Each thread counts in a counter of its own, without synchronization, so read the trace
+ * once the terminal operation has returned.
+ */
+public final class ReductionTrace {
+
+  private final ThreadLocal<Counters> local = ThreadLocal.withInitial(this::register);
+  private final ConcurrentLinkedQueue<Counters> all = new ConcurrentLinkedQueue<>();
+
+  public <T, U> BiFunction<U, T, U> accumulator(BiFunction<U, T, U> accumulator) {
+    Objects.requireNonNull(accumulator, "accumulator");
+    return (partial, it) -> {
+      local.get().accumulations++;
+      return accumulator.apply(partial, it);
+    };
+  }
+
+  public <U> BinaryOperator<U> combiner(BinaryOperator<U> combiner) {
+    Objects.requireNonNull(combiner, "combiner");
+    return (left, right) -> {
+      local.get().combines++;
+      return combiner.apply(left, right);
+    };
+  }
+
+  /**
+   * The same collector, counting the containers it creates (one per leaf of the split tree) too.
+   */
+  public <T, A, R> Collector<T, A, R> collector(Collector<T, A, R> collector) {
+    Supplier<A> supplier = collector.supplier();
+    BiConsumer<A, T> accumulator = collector.accumulator();
+    BinaryOperator<A> combiner = combiner(collector.combiner());
+    return Collector.of( //
+      () -> {
+        local.get().containers++;
+        return supplier.get();
+      } //
+      , (container, it) -> {
+        local.get().accumulations++;
+        accumulator.accept(container, it);
+      } //
+      , combiner //
+      , collector.finisher() //
+      , collector.characteristics().toArray(new Collector.Characteristics[0]));
+  }
+
+  public long getAccumulations() {
+    return all.stream().mapToLong(it -> it.accumulations).sum();
+  }
+
+  public long getCombines() {
+    return all.stream().mapToLong(it -> it.combines).sum();
+  }
+
+  public long getContainers() {
+    return all.stream().mapToLong(it -> it.containers).sum();
+  }
+
+  /**
+   * Thread name to "containers, accumulations, combines".
+   */
+  public Map<String, long[]> byThread() {
+    Map<String, long[]> byThread = new TreeMap<>();
+    for (Counters counters : all) {
+      long[] sum = byThread.computeIfAbsent(counters.thread, it -> new long[3]);
+      sum[0] += counters.containers;
+      sum[1] += counters.accumulations;
+      sum[2] += counters.combines;
+    }
+    return byThread;
+  }
+
+  private Counters register() {
+    Counters counters = new Counters(Thread.currentThread().getName());
+    all.add(counters);
+    return counters;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    byThread().forEach((thread, counts) -> sb.append(String.format("%s: %d containers, %d accumulations, %d combines%n", //
+      thread, counts[0], counts[1], counts[2])));
+    return sb.toString();
+  }
+
+  private static final class Counters {
+    final String thread;
+    long containers;
+    long accumulations;
+    long combines;
+
+    Counters(String thread) {
+      this.thread = thread;
+    }
+  }
+}
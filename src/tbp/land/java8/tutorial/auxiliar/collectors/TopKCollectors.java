@@ -0,0 +1,176 @@
+package tbp.land.java8.tutorial.auxiliar.collectors;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collector;
+
+/**
+ * {@code sorted(comparator).limit(k)} as a collector: the same result, without sorting everything.
+ *
+ * Every split of the stream keeps only its k smallest elements so far in a bounded heap
+ * (O(n log k) time, O(k) memory), and the combiner merges two heaps into one.
+ * Ties are broken by encounter order, so the result is exactly the one of the stable {@code sorted()},
+ * sequential or parallel. An element which does not make it into the heap costs one comparison and no allocation.
+ *
+ * e.g. {@code values.parallelStream().collect(TopKCollectors.topK(10))}
+ */
+public final class TopKCollectors {
+
+  private TopKCollectors() {
+  }
+
+  /**
+   * The k smallest elements in natural order, smallest first.
+   */
+  public static <T extends Comparable<? super T>> Collector<T, ?, List<T>> topK(int k) {
+    return topK(k, Comparator.naturalOrder());
+  }
+
+  /**
+   * The k smallest elements according to {@code comparator}, smallest first.
+   */
+  public static <T> Collector<T, ?, List<T>> topK(int k, Comparator<? super T> comparator) {
+    if (k < 0) {
+      throw new IllegalArgumentException("k must not be negative: " + k);
+    }
+    Objects.requireNonNull(comparator, "comparator");
+    return Collector.of( //
+      () -> new BoundedHeap<T>(k, comparator) //
+      , BoundedHeap::add //
+      , BoundedHeap::merge //
+      , BoundedHeap::toSortedList);
+  }
+
+  /**
+   * A binary max-heap of at most k elements, ordered by (comparator, encounter position),
+   * so the root is always the one to evict next.
+   */
+  private static final class BoundedHeap<T> {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final int k;
+    private final Comparator<? super T> comparator;
+    private Object[] elements;
+    private long[] positions;
+    private int size;
+    private long seen;
+
+    BoundedHeap(int k, Comparator<? super T> comparator) {
+      this.k = k;
+      this.comparator = comparator;
+      int capacity = Math.min(k, INITIAL_CAPACITY);
+      this.elements = new Object[capacity];
+      this.positions = new long[capacity];
+    }
+
+    void add(T element) {
+      offer(element, seen++);
+    }
+
+    /**
+     * Everything in {@code right} comes after everything in this heap, hence the shifted positions.
+     */
+    BoundedHeap<T> merge(BoundedHeap<T> right) {
+      long offset = seen;
+      for (int i = 0; i < right.size; i++) {
+        offer(right.element(i), offset + right.positions[i]);
+      }
+      seen += right.seen;
+      return this;
+    }
+
+    List<T> toSortedList() {
+      Object[] sorted = new Object[size];
+      while (size > 0) {
+        sorted[size - 1] = elements[0];
+        removeRoot();
+      }
+      @SuppressWarnings("unchecked")
+      List<T> result = (List<T>) new ArrayList<>(Arrays.asList(sorted));
+      return result;
+    }
+
+    private void offer(T element, long position) {
+      if (size < k) {
+        if (size == elements.length) {
+          int capacity = (int) Math.min(k, Math.max(INITIAL_CAPACITY, 2L * size));
+          elements = Arrays.copyOf(elements, capacity);
+          positions = Arrays.copyOf(positions, capacity);
+        }
+        elements[size] = element;
+        positions[size] = position;
+        siftUp(size++);
+      } else if (k > 0 && compare(element, position, 0) < 0) {
+        elements[0] = element;
+        positions[0] = position;
+        siftDown(0);
+      }
+    }
+
+    private void removeRoot() {
+      size--;
+      elements[0] = elements[size];
+      positions[0] = positions[size];
+      elements[size] = null;
+      if (size > 0) {
+        siftDown(0);
+      }
+    }
+
+    private void siftUp(int index) {
+      while (index > 0) {
+        int parent = (index - 1) >>> 1;
+        if (compare(index, parent) <= 0) {
+          return;
+        }
+        swap(index, parent);
+        index = parent;
+      }
+    }
+
+    private void siftDown(int index) {
+      while (true) {
+        int biggest = index;
+        int left = 2 * index + 1;
+        int right = left + 1;
+        if (left < size && compare(left, biggest) > 0) {
+          biggest = left;
+        }
+        if (right < size && compare(right, biggest) > 0) {
+          biggest = right;
+        }
+        if (biggest == index) {
+          return;
+        }
+        swap(index, biggest);
+        index = biggest;
+      }
+    }
+
+    private int compare(int index1, int index2) {
+      return compare(element(index1), positions[index1], index2);
+    }
+
+    private int compare(T element, long position, int index) {
+      int compared = comparator.compare(element, element(index));
+      return compared != 0 ? compared : Long.compare(position, positions[index]);
+    }
+
+    private void swap(int index1, int index2) {
+      Object element = elements[index1];
+      elements[index1] = elements[index2];
+      elements[index2] = element;
+      long position = positions[index1];
+      positions[index1] = positions[index2];
+      positions[index2] = position;
+    }
+
+    @SuppressWarnings("unchecked")
+    private T element(int index) {
+      return (T) elements[index];
+    }
+  }
+}
@@ -0,0 +1,102 @@
+package tbp.land.java8.tutorial.auxiliar.concurrent;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A snapshot of what a {@link StreamPool} is doing; the counts of the fork/join pool are estimates, as documented there.
+ */
+public final class PoolMetrics {
+
+  private final String name;
+  private final int parallelism;
+  private final int poolSize;
+  private final int activeThreads;
+  private final int runningThreads;
+  private final long queuedTasks;
+  private final int queuedSubmissions;
+  private final long steals;
+  private final long pipelines;
+  private final long pipelineNanos;
+
+  PoolMetrics(String name, int parallelism, int poolSize, int activeThreads, int runningThreads, long queuedTasks, //
+    int queuedSubmissions, long steals, long pipelines, long pipelineNanos) {
+    this.name = name;
+    this.parallelism = parallelism;
+    this.poolSize = poolSize;
+    this.activeThreads = activeThreads;
+    this.runningThreads = runningThreads;
+    this.queuedTasks = queuedTasks;
+    this.queuedSubmissions = queuedSubmissions;
+    this.steals = steals;
+    this.pipelines = pipelines;
+    this.pipelineNanos = pipelineNanos;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public int getParallelism() {
+    return parallelism;
+  }
+
+  /**
+   * Threads started so far.
+   */
+  public int getPoolSize() {
+    return poolSize;
+  }
+
+  /**
+   * Threads busy with a task, or helping to finish one.
+   */
+  public int getActiveThreads() {
+    return activeThreads;
+  }
+
+  /**
+   * Active threads which are not blocked waiting on something.
+   */
+  public int getRunningThreads() {
+    return runningThreads;
+  }
+
+  /**
+   * Tasks waiting in the queues of the worker threads, i.e. the queue depth.
+   */
+  public long getQueuedTasks() {
+    return queuedTasks;
+  }
+
+  /**
+   * Pipelines submitted from outside the pool which no thread has picked up yet.
+   */
+  public int getQueuedSubmissions() {
+    return queuedSubmissions;
+  }
+
+  /**
+   * Tasks a thread took from the queue of another one.
+   */
+  public long getSteals() {
+    return steals;
+  }
+
+  /**
+   * Pipelines run through {@link StreamPool#run(java.util.function.Supplier)}.
+   */
+  public long getPipelines() {
+    return pipelines;
+  }
+
+  public long getPipelineNanos() {
+    return pipelineNanos;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%s: parallelism=%d, threads=%d, active=%d, running=%d, queued tasks=%d, queued submissions=%d, steals=%d, " //
+        + "pipelines=%d (avg %d us)", name, parallelism, poolSize, activeThreads, runningThreads, queuedTasks, queuedSubmissions, steals, //
+      pipelines, pipelines == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(pipelineNanos / pipelines));
+  }
+}
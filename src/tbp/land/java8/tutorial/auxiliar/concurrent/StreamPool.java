@@ -0,0 +1,146 @@
+package tbp.land.java8.tutorial.auxiliar.concurrent;
+
+import java.util.Collection;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import tbp.land.java8.tutorial.auxiliar.streams.ThresholdSpliterator;
+
+/**
+ * A fork/join pool of its own for parallel streams, instead of {@code ForkJoinPool.commonPool()},
+ * which every parallel stream of the JVM shares: one big parallel sort keeps all of its threads busy,
+ * and every other parallel stream waits meanwhile.
+ *
+ * <pre>
+ * try (StreamPool pool = StreamPool.of("sort", 4)) {
+ *   long count = pool.run(() -&gt; pool.stream(values).sorted().count());
+ *   System.out.println(pool.metrics());
+ * }
+ * </pre>
+ *
+ * A parallel stream runs its tasks in the pool of the thread which starts its terminal operation, so
+ * {@link #run(Supplier)} starts the whole pipeline on one of the pool's threads.
+ * {@link #stream(Collection)} only goes parallel when the source has at least {@code splitThreshold} elements,
+ * and never splits it into pieces smaller than that, so small inputs stay sequential.
+ */
+public final class StreamPool implements AutoCloseable {
+
+  public static final int DEFAULT_SPLIT_THRESHOLD = 1 << 12;
+
+  private final String name;
+  private final ForkJoinPool pool;
+  private final int splitThreshold;
+  private final LongAdder pipelines = new LongAdder();
+  private final LongAdder pipelineNanos = new LongAdder();
+
+  private StreamPool(String name, int parallelism, int splitThreshold) {
+    this.name = name;
+    this.splitThreshold = splitThreshold;
+    this.pool = new ForkJoinPool(parallelism, new NamedThreadFactory(name), null, false);
+  }
+
+  public static StreamPool of(String name, int parallelism) {
+    return of(name, parallelism, DEFAULT_SPLIT_THRESHOLD);
+  }
+
+  public static StreamPool of(String name, int parallelism, int splitThreshold) {
+    Objects.requireNonNull(name, "name");
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+    }
+    if (splitThreshold < 1) {
+      throw new IllegalArgumentException("splitThreshold must be positive: " + splitThreshold);
+    }
+    return new StreamPool(name, parallelism, splitThreshold);
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public int getParallelism() {
+    return pool.getParallelism();
+  }
+
+  public int getSplitThreshold() {
+    return splitThreshold;
+  }
+
+  /**
+   * Runs the pipeline (i.e. its terminal operation) on a thread of this pool, and waits for its result.
+   */
+  public <R> R run(Supplier<R> pipeline) {
+    long start = System.nanoTime();
+    try {
+      if (ForkJoinTask.inForkJoinPool() && ForkJoinTask.getPool() == pool) {
+        return pipeline.get();
+      }
+      return pool.submit(pipeline::get).join();
+    } finally {
+      pipelines.increment();
+      pipelineNanos.add(System.nanoTime() - start);
+    }
+  }
+
+  public void run(Runnable pipeline) {
+    run(() -> {
+      pipeline.run();
+      return null;
+    });
+  }
+
+  /**
+   * A parallel stream over the collection if it has at least {@code splitThreshold} elements, a sequential one otherwise.
+   */
+  public <T> Stream<T> stream(Collection<T> source) {
+    return stream(source.spliterator());
+  }
+
+  public <T> Stream<T> stream(Spliterator<T> source) {
+    long size = source.getExactSizeIfKnown();
+    if (size >= 0 && size < splitThreshold) {
+      return StreamSupport.stream(source, false);
+    }
+    return StreamSupport.stream(ThresholdSpliterator.of(source, splitThreshold), true);
+  }
+
+  public PoolMetrics metrics() {
+    return new PoolMetrics(name, pool.getParallelism(), pool.getPoolSize(), pool.getActiveThreadCount(), pool.getRunningThreadCount(), //
+      pool.getQueuedTaskCount(), pool.getQueuedSubmissionCount(), pool.getStealCount(), pipelines.sum(), pipelineNanos.sum());
+  }
+
+  @Override
+  public void close() {
+    pool.shutdown();
+  }
+
+  @Override
+  public String toString() {
+    return "StreamPool[" + name + ", parallelism=" + pool.getParallelism() + ", splitThreshold=" + splitThreshold + "]";
+  }
+
+  private static final class NamedThreadFactory implements ForkJoinPool.ForkJoinWorkerThreadFactory {
+    private final String name;
+    private final AtomicInteger threadNo = new AtomicInteger();
+
+    NamedThreadFactory(String name) {
+      this.name = name;
+    }
+
+    @Override
+    public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+      ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+      thread.setName(name + "-" + threadNo.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+}
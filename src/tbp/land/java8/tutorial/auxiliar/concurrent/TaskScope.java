@@ -0,0 +1,272 @@
+package tbp.land.java8.tutorial.auxiliar.concurrent;
+
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Runs the Runnable and Supplier lambdas of {@code J1Lambda.runnable()} concurrently, on virtual threads
+ * (see {@link VirtualThreads}), without any of them outliving the scope which started them:
+ *
+ * <pre>
+ * try (TaskScope scope = TaskScope.open(100)) {
+ *   scope.fork(() -&gt; System.out.println("runnable"));
+ *   TaskScope.Subtask&lt;String&gt; result = scope.fork(() -&gt; fetch(url));
+ *   scope.join();
+ *   System.out.println(result.get());
+ * }
+ * </pre>
+ *
+ * At most {@code maxConcurrency} tasks run at the same time: {@code fork} waits for a free permit before it starts
+ * a task, so forking a million tasks never creates a million threads at once.
+ * When a task fails, the scope shuts down: the tasks which are still running get interrupted, the ones which are
+ * forked afterwards never start, and {@code join} throws the first failure. Leaving the scope without joining
+ * shuts it down as well, and waits for the running tasks to stop.
+ *
+ * Like JDK 21's StructuredTaskScope (which this imitates, for java 8), a scope is meant to be used by the thread
+ * which opened it.
+ */
+public final class TaskScope implements AutoCloseable {
+
+  /**
+   * Parties of a {@link Phaser}, minus the one of the owner.
+   */
+  private static final int MAX_CONCURRENCY = 65534;
+
+  private final ExecutorService executor;
+  private final boolean ownsExecutor;
+  private final Semaphore permits;
+  /**
+   * The owner plus one party per forked task which did not end yet.
+   */
+  private final Phaser running = new Phaser(1);
+  private final Set<Subtask<?>> subtasks = ConcurrentHashMap.newKeySet();
+  private final AtomicReference<Throwable> failure = new AtomicReference<>();
+  private volatile boolean shutdown;
+  private boolean closed;
+  /**
+   * The phase of {@link #running} in which the owner last arrived; still the current one after an interrupted join.
+   */
+  private int ownerArrivedPhase = -1;
+
+  private TaskScope(int maxConcurrency, ExecutorService executor, boolean ownsExecutor) {
+    if (maxConcurrency < 1 || maxConcurrency > MAX_CONCURRENCY) {
+      throw new IllegalArgumentException("maxConcurrency must be between 1 and " + MAX_CONCURRENCY + ": " + maxConcurrency);
+    }
+    this.executor = executor;
+    this.ownsExecutor = ownsExecutor;
+    this.permits = new Semaphore(maxConcurrency);
+  }
+
+  /**
+   * Runs every task on a new virtual thread (a pooled platform thread before java 21).
+   */
+  public static TaskScope open(int maxConcurrency) {
+    return new TaskScope(maxConcurrency, VirtualThreads.newThreadPerTaskExecutor("task-scope"), true);
+  }
+
+  /**
+   * Runs the tasks on the given executor, which is left running when the scope is closed.
+   */
+  public static TaskScope open(int maxConcurrency, ExecutorService executor) {
+    return new TaskScope(maxConcurrency, Objects.requireNonNull(executor, "executor"), false);
+  }
+
+  public Subtask<Void> fork(Runnable task) {
+    Objects.requireNonNull(task, "task");
+    return fork(() -> {
+      task.run();
+      return null;
+    });
+  }
+
+  public <T> Subtask<T> fork(Supplier<? extends T> task) {
+    Objects.requireNonNull(task, "task");
+    if (closed) {
+      throw new IllegalStateException("the scope is closed");
+    }
+    Subtask<T> subtask = new Subtask<>();
+    if (shutdown) {
+      subtask.state = Subtask.State.CANCELLED;
+      return subtask;
+    }
+    permits.acquireUninterruptibly();
+    running.register();
+    subtasks.add(subtask);
+    try {
+      executor.execute(() -> run(subtask, task));
+    } catch (RejectedExecutionException e) {
+      subtask.state = Subtask.State.CANCELLED;
+      end(subtask);
+      throw e;
+    }
+    return subtask;
+  }
+
+  /**
+   * Waits until every forked task has ended.
+   *
+   * @throws RuntimeException (or Error) the first failure of a task, as it was thrown
+   */
+  public void join() throws InterruptedException {
+    running.awaitAdvanceInterruptibly(arrive());
+    Throwable first = failure.get();
+    if (first instanceof RuntimeException) {
+      throw (RuntimeException) first;
+    }
+    if (first instanceof Error) {
+      throw (Error) first;
+    }
+    if (first != null) {
+      throw new CompletionException(first);
+    }
+  }
+
+  /**
+   * Interrupts the tasks which are still running, and makes sure no new one starts.
+   */
+  public void shutdown() {
+    shutdown = true;
+    for (Subtask<?> subtask : subtasks) {
+      subtask.interrupt();
+    }
+  }
+
+  public boolean isShutdown() {
+    return shutdown;
+  }
+
+  /**
+   * Shuts the scope down and waits for its tasks to stop; a scope which was joined has none left.
+   */
+  @Override
+  public void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    if (running.getRegisteredParties() > 1) {
+      shutdown();
+    }
+    running.awaitAdvance(arrive());
+    if (ownsExecutor) {
+      executor.shutdown();
+    }
+  }
+
+  /**
+   * Arrives for the owner, unless it already did in the current phase, i.e. a join was interrupted: arriving twice
+   * would count for a task which is still running.
+   */
+  private int arrive() {
+    int phase = running.getPhase();
+    if (phase != ownerArrivedPhase) {
+      // only the owner's own arrival can advance the phase in between
+      phase = running.arrive();
+      ownerArrivedPhase = phase;
+    }
+    return phase;
+  }
+
+  private <T> void run(Subtask<T> subtask, Supplier<? extends T> task) {
+    subtask.start();
+    try {
+      if (shutdown) {
+        subtask.state = Subtask.State.CANCELLED;
+        return;
+      }
+      subtask.value = task.get();
+      subtask.state = Subtask.State.SUCCESS;
+    } catch (Throwable e) {
+      subtask.exception = e;
+      if (failure.compareAndSet(null, e)) {
+        subtask.state = Subtask.State.FAILED;
+        shutdown();
+      } else {
+        // most likely interrupted by the shutdown of the first failure
+        subtask.state = shutdown ? Subtask.State.CANCELLED : Subtask.State.FAILED;
+      }
+    } finally {
+      subtask.stop();
+      end(subtask);
+    }
+  }
+
+  private void end(Subtask<?> subtask) {
+    subtasks.remove(subtask);
+    permits.release();
+    running.arriveAndDeregister();
+  }
+
+  /**
+   * A forked task; its result can be read once the scope has been joined.
+   */
+  public static final class Subtask<T> implements Supplier<T> {
+
+    public enum State {
+      UNAVAILABLE, SUCCESS, FAILED, CANCELLED
+    }
+
+    private volatile State state = State.UNAVAILABLE;
+    private T value;
+    private Throwable exception;
+    /**
+     * Only set while the task runs, and only changed under the subtask's lock, so that a shutdown never
+     * interrupts a pooled thread which is already busy with something else.
+     */
+    private Thread runner;
+
+    Subtask() {
+    }
+
+    public State state() {
+      return state;
+    }
+
+    /**
+     * The result of a task which succeeded.
+     */
+    @Override
+    public T get() {
+      if (state != State.SUCCESS) {
+        throw new IllegalStateException("the task did not succeed: " + state);
+      }
+      return value;
+    }
+
+    /**
+     * What a failed task threw.
+     */
+    public Throwable exception() {
+      if (state != State.FAILED && state != State.CANCELLED) {
+        throw new IllegalStateException("the task did not fail: " + state);
+      }
+      return exception;
+    }
+
+    synchronized void start() {
+      runner = Thread.currentThread();
+    }
+
+    void stop() {
+      synchronized (this) {
+        runner = null;
+      }
+      // an interrupt meant for this task must not leak into the next task of a pooled thread
+      Thread.interrupted();
+    }
+
+    synchronized void interrupt() {
+      if (runner != null) {
+        runner.interrupt();
+      }
+    }
+  }
+}
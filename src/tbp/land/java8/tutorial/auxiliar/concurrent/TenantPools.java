@@ -0,0 +1,74 @@
+package tbp.land.java8.tutorial.auxiliar.concurrent;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * One {@link StreamPool} per tenant, created the first time the tenant runs something, so that the parallel streams
+ * of one tenant can only ever use that tenant's threads, and never slow the other tenants down.
+ *
+ * <pre>
+ * TenantPools pools = new TenantPools(2);
+ * pools.pool("reports").run(() -&gt; ...);
+ * pools.pool("search").run(() -&gt; ...);
+ * </pre>
+ */
+public final class TenantPools implements AutoCloseable {
+
+  private final int parallelismPerTenant;
+  private final int splitThreshold;
+  private final ConcurrentMap<String, StreamPool> pools = new ConcurrentHashMap<>();
+  private volatile boolean closed;
+
+  public TenantPools(int parallelismPerTenant) {
+    this(parallelismPerTenant, StreamPool.DEFAULT_SPLIT_THRESHOLD);
+  }
+
+  public TenantPools(int parallelismPerTenant, int splitThreshold) {
+    if (parallelismPerTenant < 1) {
+      throw new IllegalArgumentException("parallelismPerTenant must be positive: " + parallelismPerTenant);
+    }
+    this.parallelismPerTenant = parallelismPerTenant;
+    this.splitThreshold = splitThreshold;
+  }
+
+  public StreamPool pool(String tenant) {
+    Objects.requireNonNull(tenant, "tenant");
+    if (closed) {
+      throw new IllegalStateException("the pools are closed");
+    }
+    StreamPool pool =
+        pools.computeIfAbsent(tenant, it -> StreamPool.of("tenant-" + it, parallelismPerTenant, splitThreshold));
+    // close() may have run between the check and the put, and missed this pool: whoever removes it closes it
+    if (closed) {
+      if (pools.remove(tenant, pool)) {
+        pool.close();
+      }
+      throw new IllegalStateException("the pools are closed");
+    }
+    return pool;
+  }
+
+  /**
+   * The metrics of every tenant's pool, by tenant.
+   */
+  public Map<String, PoolMetrics> metrics() {
+    Map<String, PoolMetrics> metrics = new TreeMap<>();
+    pools.forEach((tenant, pool) -> metrics.put(tenant, pool.metrics()));
+    return metrics;
+  }
+
+  @Override
+  public void close() {
+    closed = true;
+    for (String tenant : pools.keySet()) {
+      StreamPool pool = pools.remove(tenant);
+      if (pool != null) {
+        pool.close();
+      }
+    }
+  }
+}
@@ -0,0 +1,101 @@
+package tbp.land.java8.tutorial.auxiliar.concurrent;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Virtual threads (java 21+) for code which is compiled for java 8.
+ *
+ * The java 21 methods are looked up once, through reflection; on an older JVM the same calls return
+ * daemon platform threads instead, so callers work everywhere and only get faster on a newer JVM.
+ * Virtual threads only pay off for tasks which block (I/O, sleeping, waiting on locks):
+ * CPU bound work belongs to a fork/join pool.
+ */
+public final class VirtualThreads {
+
+  private static final MethodHandle VIRTUAL_THREAD_FACTORY = lookupVirtualThreadFactory();
+  private static final MethodHandle THREAD_PER_TASK_EXECUTOR = lookupThreadPerTaskExecutor();
+
+  private VirtualThreads() {
+  }
+
+  /**
+   * Whether this JVM has virtual threads.
+   */
+  public static boolean isAvailable() {
+    return VIRTUAL_THREAD_FACTORY != null;
+  }
+
+  /**
+   * Creates virtual threads when they are available, otherwise daemon platform threads named {@code prefix-N}.
+   */
+  public static ThreadFactory factory(String prefix) {
+    if (VIRTUAL_THREAD_FACTORY != null) {
+      try {
+        return (ThreadFactory) VIRTUAL_THREAD_FACTORY.invoke(prefix + "-");
+      } catch (Throwable e) {
+        throw new IllegalStateException("cannot create a virtual thread factory", e);
+      }
+    }
+    AtomicInteger threadNo = new AtomicInteger();
+    return it -> {
+      Thread thread = new Thread(it, prefix + "-" + threadNo.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+
+  /**
+   * Starts a new thread for every task, as {@code Executors.newVirtualThreadPerTaskExecutor()} does.
+   * On an older JVM the platform threads are pooled instead, since starting them is expensive.
+   */
+  public static ExecutorService newThreadPerTaskExecutor(String prefix) {
+    if (VIRTUAL_THREAD_FACTORY != null && THREAD_PER_TASK_EXECUTOR != null) {
+      try {
+        return (ExecutorService) THREAD_PER_TASK_EXECUTOR.invoke(factory(prefix));
+      } catch (Throwable e) {
+        throw new IllegalStateException("cannot create a thread per task executor", e);
+      }
+    }
+    return Executors.newCachedThreadPool(factory(prefix));
+  }
+
+  /**
+   * {@code prefix -> Thread.ofVirtual().name(prefix, 1).factory()}, or null before java 21.
+   */
+  private static MethodHandle lookupVirtualThreadFactory() {
+    try {
+      MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+      Class<?> builder = Class.forName("java.lang.Thread$Builder");
+      Class<?> ofVirtual = Class.forName("java.lang.Thread$Builder$OfVirtual");
+      MethodHandle newBuilder = lookup.findStatic(Thread.class, "ofVirtual", MethodType.methodType(ofVirtual));
+      MethodHandle name = lookup.findVirtual(ofVirtual, "name", MethodType.methodType(ofVirtual, String.class, long.class));
+      MethodHandle factory = lookup.findVirtual(builder, "factory", MethodType.methodType(ThreadFactory.class));
+      MethodHandle named = MethodHandles.collectArguments(MethodHandles.insertArguments(name, 2, 1L), 0, newBuilder);
+      MethodHandle handle = MethodHandles.filterReturnValue(named, factory.asType(MethodType.methodType(ThreadFactory.class, ofVirtual)));
+      // preview builds (19, 20) have the methods but refuse to use them without --enable-preview
+      ((ThreadFactory) handle.invoke("probe-")).newThread(() -> {
+      });
+      return handle;
+    } catch (Throwable e) {
+      return null;
+    }
+  }
+
+  /**
+   * {@code Executors.newThreadPerTaskExecutor(ThreadFactory)}, or null before java 21.
+   */
+  private static MethodHandle lookupThreadPerTaskExecutor() {
+    try {
+      return MethodHandles.publicLookup().findStatic(Executors.class, "newThreadPerTaskExecutor", //
+        MethodType.methodType(ExecutorService.class, ThreadFactory.class));
+    } catch (ReflectiveOperationException e) {
+      return null;
+    }
+  }
+}
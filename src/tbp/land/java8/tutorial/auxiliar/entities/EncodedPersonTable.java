@@ -0,0 +1,221 @@
+package tbp.land.java8.tutorial.auxiliar.entities;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.IntSummaryStatistics;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * A {@link PersonTable} whose names column is dictionary encoded: an {@code int[]} of {@link NameDictionary} codes
+ * instead of a {@code String[]}.
+ *
+ * The name operations of {@code J3StreamOperationsAdvanced.collectors()} run on the codes, and only decode the names
+ * they output:
+ * <ul>
+ *   <li>{@link #countByName()} and {@link #ageStatisticsByName()} group by indexing an array with the code, instead of hashing Strings</li>
+ *   <li>{@link #distinctNames()} sets a bit per code</li>
+ *   <li>{@link #rowsNamed(String)} compares ints, after a single lookup of the name's code</li>
+ *   <li>{@link #rowsWithNameStartingWith(String)} looks the prefix up once in the sorted dictionary, then tests a bit per row</li>
+ * </ul>
+ *
+ * Like PersonTable, streams are views of the table at the moment they are created, the table itself is not thread safe,
+ * and its views can be traversed in parallel.
+ */
+public class EncodedPersonTable {
+
+  private static final int DEFAULT_CAPACITY = 16;
+
+  private final NameDictionary dictionary;
+  private int[] nameCodes;
+  private int[] ages;
+  private int size;
+
+  public EncodedPersonTable() {
+    this(new NameDictionary());
+  }
+
+  /**
+   * @param dictionary shared with other tables, so that their codes can be compared
+   */
+  public EncodedPersonTable(NameDictionary dictionary) {
+    this.dictionary = Objects.requireNonNull(dictionary, "dictionary");
+    this.nameCodes = new int[DEFAULT_CAPACITY];
+    this.ages = new int[DEFAULT_CAPACITY];
+  }
+
+  public static EncodedPersonTable of(Collection<Person> persons) {
+    return of(persons, new NameDictionary());
+  }
+
+  public static EncodedPersonTable of(Collection<Person> persons, NameDictionary dictionary) {
+    EncodedPersonTable table = new EncodedPersonTable(dictionary);
+    table.nameCodes = new int[Math.max(DEFAULT_CAPACITY, persons.size())];
+    table.ages = new int[table.nameCodes.length];
+    persons.forEach(table::add);
+    return table;
+  }
+
+  public void add(Person person) {
+    add(person.getName(), person.getAge());
+  }
+
+  public void add(String name, int age) {
+    if (size == ages.length) {
+      int newCapacity = Math.max(DEFAULT_CAPACITY, size + (size >> 1));
+      nameCodes = Arrays.copyOf(nameCodes, newCapacity);
+      ages = Arrays.copyOf(ages, newCapacity);
+    }
+    nameCodes[size] = dictionary.encode(name);
+    ages[size] = age;
+    size++;
+  }
+
+  public NameDictionary getDictionary() {
+    return dictionary;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public int getNameCode(int row) {
+    checkRow(row);
+    return nameCodes[row];
+  }
+
+  /**
+   * The dictionary's String: no new String per call, and the same instance for every row with that name.
+   */
+  public String getName(int row) {
+    return dictionary.decode(getNameCode(row));
+  }
+
+  public int getAge(int row) {
+    checkRow(row);
+    return ages[row];
+  }
+
+  public Person get(int row) {
+    return new Person(getName(row), getAge(row));
+  }
+
+  public IntStream nameCodes() {
+    return Arrays.stream(nameCodes, 0, size);
+  }
+
+  public IntStream ages() {
+    return Arrays.stream(ages, 0, size);
+  }
+
+  public IntStream rows() {
+    return IntStream.range(0, size);
+  }
+
+  /**
+   * The names in row order, as the dictionary's Strings, e.g. for {@code Collectors.joining}.
+   */
+  public Stream<String> names() {
+    return nameCodes().mapToObj(dictionary::decode);
+  }
+
+  public Stream<Person> stream() {
+    return rows().mapToObj(this::get);
+  }
+
+  /**
+   * The rows whose name is the given one; none if the dictionary has never seen it.
+   */
+  public IntStream rowsNamed(String name) {
+    int code = dictionary.codeOf(name);
+    if (code < 0) {
+      return IntStream.empty();
+    }
+    int[] nameCodes = this.nameCodes;
+    return rows().filter(row -> nameCodes[row] == code);
+  }
+
+  public IntStream rowsWithNameStartingWith(String prefix) {
+    BitSet codes = dictionary.codesStartingWith(prefix);
+    if (codes.isEmpty()) {
+      return IntStream.empty();
+    }
+    int[] nameCodes = this.nameCodes;
+    return rows().filter(row -> codes.get(nameCodes[row]));
+  }
+
+  /**
+   * The distinct names, in the order they were first added to the dictionary.
+   */
+  public List<String> distinctNames() {
+    BitSet seen = nameCodes().collect(BitSet::new, BitSet::set, BitSet::or);
+    List<String> names = new ArrayList<>(seen.cardinality());
+    seen.stream().forEach(code -> names.add(dictionary.decode(code)));
+    return names;
+  }
+
+  /**
+   * {@code groupingBy(Person::getName, counting())}, as a histogram of codes.
+   */
+  public Map<String, Long> countByName() {
+    int codes = dictionary.size();
+    int[] nameCodes = this.nameCodes;
+    long[] counts = rows().collect(() -> new long[codes], (histogram, row) -> histogram[nameCodes[row]]++, EncodedPersonTable::merge);
+    Map<String, Long> byName = new LinkedHashMap<>();
+    for (int code = 0; code < codes; code++) {
+      if (counts[code] > 0) {
+        byName.put(dictionary.decode(code), counts[code]);
+      }
+    }
+    return byName;
+  }
+
+  /**
+   * {@code groupingBy(Person::getName, summarizingInt(Person::getAge))}, with one statistics per code.
+   */
+  public Map<String, IntSummaryStatistics> ageStatisticsByName() {
+    int codes = dictionary.size();
+    int[] nameCodes = this.nameCodes;
+    int[] ages = this.ages;
+    IntSummaryStatistics[] statistics = rows().collect(() -> newStatistics(codes), //
+      (byCode, row) -> byCode[nameCodes[row]].accept(ages[row]), //
+      (left, right) -> {
+        for (int code = 0; code < left.length; code++) {
+          left[code].combine(right[code]);
+        }
+      });
+    Map<String, IntSummaryStatistics> byName = new LinkedHashMap<>();
+    for (int code = 0; code < codes; code++) {
+      if (statistics[code].getCount() > 0) {
+        byName.put(dictionary.decode(code), statistics[code]);
+      }
+    }
+    return byName;
+  }
+
+  private static IntSummaryStatistics[] newStatistics(int codes) {
+    IntSummaryStatistics[] statistics = new IntSummaryStatistics[codes];
+    for (int code = 0; code < codes; code++) {
+      statistics[code] = new IntSummaryStatistics();
+    }
+    return statistics;
+  }
+
+  private static void merge(long[] left, long[] right) {
+    for (int i = 0; i < left.length; i++) {
+      left[i] += right[i];
+    }
+  }
+
+  private void checkRow(int row) {
+    if (row < 0 || row >= size) {
+      throw new IndexOutOfBoundsException("row: " + row + ", size: " + size);
+    }
+  }
+}
@@ -0,0 +1,534 @@
+package tbp.land.java8.tutorial.auxiliar.entities;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A collection of persons with an index on the age and one on the name, for queries which are run over and over
+ * against persons which seldom change, e.g. the {@code filter(it -> it.getName().startsWith("O"))} of
+ * {@code J3StreamOperationsAdvanced.collectors()}:
+ *
+ * <pre>
+ * IndexedPersons persons = IndexedPersons.of(list);
+ * List&lt;Person&gt; result = persons.query() //
+ *   .nameStartsWith("O") //
+ *   .ageBetween(18, 65) //
+ *   .toList();
+ * </pre>
+ *
+ * The age index is a sorted map from an age to the persons of that age, so an age range is a sub-map; the name index
+ * is a trie with the persons stored at the node where their name ends, so a prefix is a sub-tree. A query reads the
+ * persons of one index, and only tests the other condition on those, instead of testing every person: the name index
+ * unless it has many more persons than the age index, as its entries keep the ages next to the persons (testing an
+ * age is reading an int, testing a name is following two references). Both indexes are kept up to date by
+ * {@link #add} and {@link #remove}.
+ *
+ * Persons have no equals, so this is a set of Person instances: adding the same instance twice does nothing.
+ * Like the JDK collections, it is not thread safe, and its streams fail with a ConcurrentModificationException
+ * if it is changed while they run.
+ */
+public class IndexedPersons extends AbstractCollection<Person> {
+
+  private static final int DEFAULT_CAPACITY = 16;
+  /**
+   * Testing a name reads the Person and then its String, both anywhere on the heap; testing an age reads the next int
+   * of the bucket. So the name index is read, and the ages tested, unless it has this many times more persons than the
+   * age index.
+   */
+  private static final int NAME_TEST_COST = 8;
+
+  /**
+   * Persons by id; the ids of removed persons are given to the next ones added.
+   */
+  private Person[] persons = new Person[DEFAULT_CAPACITY];
+  private int[] agePositions = new int[DEFAULT_CAPACITY];
+  private int[] namePositions = new int[DEFAULT_CAPACITY];
+  private int[] freeIds = new int[0];
+  private int freeCount;
+  private int nextId;
+  private final Map<Person, Integer> ids = new IdentityHashMap<>();
+  private final TreeMap<Integer, Bucket> byAge = new TreeMap<>();
+  private TrieNode byName = new TrieNode();
+  private int modCount;
+
+  public static IndexedPersons of(Collection<Person> persons) {
+    IndexedPersons indexed = new IndexedPersons();
+    indexed.addAll(persons);
+    return indexed;
+  }
+
+  @Override
+  public int size() {
+    return ids.size();
+  }
+
+  @Override
+  public boolean contains(Object person) {
+    return ids.containsKey(person);
+  }
+
+  @Override
+  public boolean add(Person person) {
+    Objects.requireNonNull(person.getName(), "name");
+    if (ids.containsKey(person)) {
+      return false;
+    }
+    int id = freeCount > 0 ? freeIds[--freeCount] : nextId++;
+    if (id == persons.length) {
+      int newCapacity = id + (id >> 1);
+      persons = Arrays.copyOf(persons, newCapacity);
+      agePositions = Arrays.copyOf(agePositions, newCapacity);
+      namePositions = Arrays.copyOf(namePositions, newCapacity);
+    }
+    persons[id] = person;
+    ids.put(person, id);
+    agePositions[id] = byAge.computeIfAbsent(person.getAge(), it -> new Bucket()).add(id, person);
+    namePositions[id] = byName.add(person.getName(), id, person);
+    modCount++;
+    return true;
+  }
+
+  @Override
+  public boolean remove(Object object) {
+    Integer id = ids.remove(object);
+    if (id == null) {
+      return false;
+    }
+    Person person = persons[id];
+    Bucket ages = byAge.get(person.getAge());
+    remove(ages, id, agePositions);
+    if (ages.size == 0) {
+      byAge.remove(person.getAge());
+    }
+    remove(byName.remove(person.getName()), id, namePositions);
+    persons[id] = null;
+    if (freeCount == freeIds.length) {
+      freeIds = Arrays.copyOf(freeIds, Math.max(DEFAULT_CAPACITY, 2 * freeCount));
+    }
+    freeIds[freeCount++] = id;
+    modCount++;
+    return true;
+  }
+
+  @Override
+  public void clear() {
+    Arrays.fill(persons, null);
+    freeCount = 0;
+    nextId = 0;
+    ids.clear();
+    byAge.clear();
+    byName = new TrieNode();
+    modCount++;
+  }
+
+  @Override
+  public Iterator<Person> iterator() {
+    return new Iterator<Person>() {
+      private int next = advance(0);
+      private int last = -1;
+      private int expectedModCount = modCount;
+
+      private int advance(int from) {
+        while (from < nextId && persons[from] == null) {
+          from++;
+        }
+        return from;
+      }
+
+      @Override
+      public boolean hasNext() {
+        return next < nextId;
+      }
+
+      @Override
+      public Person next() {
+        if (modCount != expectedModCount) {
+          throw new ConcurrentModificationException();
+        }
+        if (next >= nextId) {
+          throw new NoSuchElementException();
+        }
+        last = next;
+        next = advance(next + 1);
+        return persons[last];
+      }
+
+      @Override
+      public void remove() {
+        if (last < 0) {
+          throw new IllegalStateException();
+        }
+        IndexedPersons.this.remove(persons[last]);
+        last = -1;
+        expectedModCount = modCount;
+      }
+    };
+  }
+
+  public Query query() {
+    return new Query();
+  }
+
+  private void remove(Bucket bucket, int id, int[] positions) {
+    int moved = bucket.remove(positions[id]);
+    if (moved >= 0) {
+      positions[moved] = positions[id];
+    }
+  }
+
+  /**
+   * Conditions on the age and the name, combined with "and".
+   */
+  public final class Query {
+    private int minAge = Integer.MIN_VALUE;
+    private int maxAge = Integer.MAX_VALUE;
+    private String prefix;
+    private boolean none;
+
+    private Query() {
+    }
+
+    /**
+     * {@code minAge <= age <= maxAge}.
+     */
+    public Query ageBetween(int minAge, int maxAge) {
+      this.minAge = Math.max(this.minAge, minAge);
+      this.maxAge = Math.min(this.maxAge, maxAge);
+      none |= this.minAge > this.maxAge;
+      return this;
+    }
+
+    public Query ageEquals(int age) {
+      return ageBetween(age, age);
+    }
+
+    public Query ageAtLeast(int minAge) {
+      return ageBetween(minAge, Integer.MAX_VALUE);
+    }
+
+    public Query ageAtMost(int maxAge) {
+      return ageBetween(Integer.MIN_VALUE, maxAge);
+    }
+
+    public Query nameStartsWith(String prefix) {
+      Objects.requireNonNull(prefix, "prefix");
+      if (this.prefix == null || prefix.startsWith(this.prefix)) {
+        this.prefix = prefix;
+      } else if (!this.prefix.startsWith(prefix)) {
+        none = true;
+      }
+      return this;
+    }
+
+    public Stream<Person> stream() {
+      Plan plan = plan();
+      Stream<Person> candidates = StreamSupport.stream(new CandidateSpliterator(plan, modCount), false);
+      return plan.nameResidual == null ? candidates : candidates.filter(plan.nameResidual);
+    }
+
+    /**
+     * With a single condition, the sum of the sizes of the index entries; nothing is read one by one.
+     */
+    public long count() {
+      Plan plan = plan();
+      return plan.residual == null ? plan.candidates : stream().count();
+    }
+
+    public List<Person> toList() {
+      return stream().collect(Collectors.toList());
+    }
+
+    /**
+     * Which index the query reads, and how many persons it tests, e.g. {@code "age index: 120 candidates, then name"}.
+     */
+    public String explain() {
+      Plan plan = plan();
+      return plan.index + ": " + plan.candidates + " candidates" + (plan.residual == null ? "" : ", then " + plan.residual);
+    }
+
+    private Plan plan() {
+      if (none) {
+        return new Plan("nothing", new Bucket[0]);
+      }
+      boolean byAgeRange = minAge != Integer.MIN_VALUE || maxAge != Integer.MAX_VALUE;
+      Collection<Bucket> ages = byAgeRange ? byAge.subMap(minAge, true, maxAge, true).values() : null;
+      TrieNode names = prefix == null ? null : byName.nodeFor(prefix);
+      if (prefix != null && (names == null || names.subtreeSize == 0)) {
+        return new Plan("name index", new Bucket[0]);
+      }
+      if (ages == null && names == null) {
+        return new Plan("no index", byAge.values().toArray(new Bucket[0]));
+      }
+      long ageCandidates = ages == null ? Long.MAX_VALUE : ages.stream().mapToLong(it -> it.size).sum();
+      long nameCandidates = names == null ? Long.MAX_VALUE : names.subtreeSize;
+      if (names == null || ages != null && ageCandidates * NAME_TEST_COST < nameCandidates) {
+        Plan plan = new Plan("age index", ages.toArray(new Bucket[0]));
+        if (names != null) {
+          String prefix = this.prefix;
+          plan.residual = "name";
+          plan.nameResidual = it -> it.getName().startsWith(prefix);
+        }
+        return plan;
+      }
+      List<Bucket> buckets = new ArrayList<>();
+      names.collect(buckets);
+      Plan plan = new Plan("name index", buckets.toArray(new Bucket[0]));
+      if (ages != null) {
+        plan.residual = "age";
+        plan.minAge = minAge;
+        plan.maxAge = maxAge;
+      }
+      return plan;
+    }
+  }
+
+  private static long[] startsOf(Bucket[] buckets) {
+    long[] starts = new long[buckets.length + 1];
+    for (int i = 0; i < buckets.length; i++) {
+      starts[i + 1] = starts[i] + buckets[i].size;
+    }
+    return starts;
+  }
+
+  /**
+   * The buckets to read, and what is left to test on them: the name, on the Person, or the age, on the ages column
+   * of the buckets.
+   */
+  private static final class Plan {
+    final String index;
+    final Bucket[] buckets;
+    final long candidates;
+    String residual;
+    Predicate<Person> nameResidual;
+    int minAge = Integer.MIN_VALUE;
+    int maxAge = Integer.MAX_VALUE;
+
+    Plan(String index, Bucket[] buckets) {
+      this.index = index;
+      this.buckets = buckets;
+      this.candidates = Arrays.stream(buckets).mapToLong(it -> it.size).sum();
+    }
+  }
+
+  /**
+   * Persons, their ids and their ages, in no particular order; a removal moves the last one into the hole.
+   * The persons and ages are kept next to the ids, so that reading a bucket, or testing the ages of a name bucket,
+   * is reading arrays, not looking every id up.
+   */
+  private static class Bucket {
+    int[] ids = new int[4];
+    Person[] persons = new Person[4];
+    int[] ages = new int[4];
+    int size;
+
+    /**
+     * @return the position of the id
+     */
+    int add(int id, Person person) {
+      if (size == ids.length) {
+        ids = Arrays.copyOf(ids, 2 * size);
+        persons = Arrays.copyOf(persons, 2 * size);
+        ages = Arrays.copyOf(ages, 2 * size);
+      }
+      ids[size] = id;
+      persons[size] = person;
+      ages[size] = person.getAge();
+      return size++;
+    }
+
+    /**
+     * @return the id moved into the position, or -1
+     */
+    int remove(int position) {
+      size--;
+      int moved = -1;
+      if (position != size) {
+        ids[position] = ids[size];
+        persons[position] = persons[size];
+        ages[position] = ages[size];
+        moved = ids[position];
+      }
+      persons[size] = null;
+      return moved;
+    }
+  }
+
+  /**
+   * The ids of the persons whose name ends here, plus the number of them in the whole sub-tree.
+   */
+  private static final class TrieNode extends Bucket {
+    final Map<Character, TrieNode> children = new HashMap<>();
+    long subtreeSize;
+
+    /**
+     * @return the node of the prefix, or null if no name was ever added with it
+     */
+    TrieNode nodeFor(String prefix) {
+      TrieNode node = this;
+      for (int i = 0; i < prefix.length() && node != null; i++) {
+        node = node.children.get(prefix.charAt(i));
+      }
+      return node;
+    }
+
+    /**
+     * @return the position of the id in the node of the name
+     */
+    int add(String name, int id, Person person) {
+      TrieNode node = this;
+      node.subtreeSize++;
+      for (int i = 0; i < name.length(); i++) {
+        node = node.children.computeIfAbsent(name.charAt(i), it -> new TrieNode());
+        node.subtreeSize++;
+      }
+      return node.add(id, person);
+    }
+
+    /**
+     * Counts one name less on the way down; nodes are kept when they become empty, as names tend to come back.
+     *
+     * @return the node of the name, to remove the id from
+     */
+    TrieNode remove(String name) {
+      TrieNode node = this;
+      node.subtreeSize--;
+      for (int i = 0; i < name.length(); i++) {
+        node = node.children.get(name.charAt(i));
+        node.subtreeSize--;
+      }
+      return node;
+    }
+
+    void collect(List<Bucket> buckets) {
+      if (subtreeSize == 0) {
+        return;
+      }
+      if (size > 0) {
+        buckets.add(this);
+      }
+      for (TrieNode child : children.values()) {
+        child.collect(buckets);
+      }
+    }
+  }
+
+  /**
+   * The persons of a list of buckets, one after the other, split by position; those not aged between the minimum and
+   * the maximum of the plan are skipped.
+   */
+  private final class CandidateSpliterator implements Spliterator<Person> {
+    private final Bucket[] buckets;
+    /**
+     * Position of the first person of each bucket, plus the total at the end.
+     */
+    private final long[] starts;
+    private final int minAge;
+    private final int maxAge;
+    private final boolean filtered;
+    private final int expectedModCount;
+    private long from;
+    private final long to;
+
+    CandidateSpliterator(Plan plan, int expectedModCount) {
+      this(plan.buckets, startsOf(plan.buckets), plan.minAge, plan.maxAge, expectedModCount, 0, plan.candidates);
+    }
+
+    private CandidateSpliterator(Bucket[] buckets, long[] starts, int minAge, int maxAge, int expectedModCount, long from, long to) {
+      this.buckets = buckets;
+      this.starts = starts;
+      this.minAge = minAge;
+      this.maxAge = maxAge;
+      this.filtered = minAge != Integer.MIN_VALUE || maxAge != Integer.MAX_VALUE;
+      this.expectedModCount = expectedModCount;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super Person> action) {
+      checkForComodification();
+      while (from < to) {
+        int bucket = bucketOf(from);
+        int position = (int) (from - starts[bucket]);
+        from++;
+        int age = buckets[bucket].ages[position];
+        if (age >= minAge && age <= maxAge) {
+          action.accept(buckets[bucket].persons[position]);
+          return true;
+        }
+      }
+      return false;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super Person> action) {
+      for (int bucket = from < to ? bucketOf(from) : buckets.length; from < to; bucket++) {
+        Person[] persons = buckets[bucket].persons;
+        int[] ages = buckets[bucket].ages;
+        int end = (int) (Math.min(to, starts[bucket + 1]) - starts[bucket]);
+        for (int position = (int) (from - starts[bucket]); position < end; position++) {
+          if (!filtered || ages[position] >= minAge && ages[position] <= maxAge) {
+            action.accept(persons[position]);
+          }
+        }
+        from = starts[bucket] + end;
+      }
+      checkForComodification();
+    }
+
+    /**
+     * No bucket is empty, so starts are distinct.
+     */
+    private int bucketOf(long position) {
+      int found = Arrays.binarySearch(starts, position);
+      return found >= 0 ? found : -found - 2;
+    }
+
+    private void checkForComodification() {
+      if (modCount != expectedModCount) {
+        throw new ConcurrentModificationException();
+      }
+    }
+
+    @Override
+    public Spliterator<Person> trySplit() {
+      long mid = (from + to) >>> 1;
+      if (mid <= from) {
+        return null;
+      }
+      CandidateSpliterator prefix = new CandidateSpliterator(buckets, starts, minAge, maxAge, expectedModCount, from, mid);
+      from = mid;
+      return prefix;
+    }
+
+    /**
+     * Exact, unless ages are tested: then the number of persons left to test.
+     */
+    @Override
+    public long estimateSize() {
+      return to - from;
+    }
+
+    @Override
+    public int characteristics() {
+      return filtered ? NONNULL : SIZED | SUBSIZED | NONNULL;
+    }
+  }
+}
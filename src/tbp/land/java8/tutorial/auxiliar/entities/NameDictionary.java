@@ -0,0 +1,158 @@
+package tbp.land.java8.tutorial.auxiliar.entities;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Gives every distinct name an int code: 0 for the first name seen, 1 for the next one, and so on.
+ *
+ * A names column with few distinct values (the {@code persons} of J3 have 5 names, real data a few thousand for
+ * millions of rows) then becomes an {@code int[]} of codes, see {@link EncodedPersonTable}: 4 bytes per row instead of
+ * a String each, and comparing, hashing or grouping names means comparing, hashing or grouping ints.
+ *
+ * <pre>
+ * NameDictionary names = new NameDictionary();
+ * int oana = names.encode("Oana");        // 0
+ * names.decode(oana);                     // "Oana"
+ * names.codesStartingWith("O").get(oana); // true
+ * </pre>
+ *
+ * The dictionary is thread safe, and can be shared by several tables. A code, once given, never changes.
+ */
+public final class NameDictionary {
+
+  private final ConcurrentMap<String, Integer> codes = new ConcurrentHashMap<>();
+  private final Object lock = new Object();
+  /**
+   * Names by code; only ever replaced by a longer copy, under the lock.
+   */
+  private volatile String[] names = new String[16];
+  private volatile int size;
+  /**
+   * The names sorted, for prefix searches; rebuilt when the dictionary has grown since.
+   */
+  private volatile Sorted sorted = new Sorted(new String[0], new int[0]);
+
+  /**
+   * The code of the name, given now if the name is new.
+   */
+  public int encode(String name) {
+    Integer code = codes.get(Objects.requireNonNull(name, "name"));
+    if (code != null) {
+      return code;
+    }
+    synchronized (lock) {
+      code = codes.get(name);
+      if (code != null) {
+        return code;
+      }
+      int next = size;
+      if (next == names.length) {
+        names = Arrays.copyOf(names, next + (next >> 1));
+      }
+      names[next] = name;
+      size = next + 1;
+      codes.put(name, next);
+      return next;
+    }
+  }
+
+  /**
+   * The code of the name, or -1 if it has none.
+   */
+  public int codeOf(String name) {
+    Integer code = codes.get(name);
+    return code == null ? -1 : code;
+  }
+
+  public String decode(int code) {
+    if (code < 0 || code >= size) {
+      throw new IndexOutOfBoundsException("code: " + code + ", size: " + size);
+    }
+    return names[code];
+  }
+
+  /**
+   * The one String instance the dictionary keeps for the name, so that equal names share it.
+   */
+  public String intern(String name) {
+    return decode(encode(name));
+  }
+
+  public int size() {
+    return size;
+  }
+
+  /**
+   * The codes of the names which start with the prefix, found by a binary search over the sorted names instead of
+   * a {@code startsWith} per name (let alone per row).
+   */
+  public BitSet codesStartingWith(String prefix) {
+    Objects.requireNonNull(prefix, "prefix");
+    Sorted sorted = sorted();
+    int from = lowerBound(sorted.names, prefix);
+    BitSet matches = new BitSet(size);
+    for (int i = from; i < sorted.names.length && sorted.names[i].startsWith(prefix); i++) {
+      matches.set(sorted.codes[i]);
+    }
+    return matches;
+  }
+
+  private Sorted sorted() {
+    Sorted current = sorted;
+    int size = this.size;
+    if (current.names.length == size) {
+      return current;
+    }
+    String[] names = this.names;
+    Integer[] order = new Integer[size];
+    for (int i = 0; i < size; i++) {
+      order[i] = i;
+    }
+    Arrays.sort(order, (left, right) -> names[left].compareTo(names[right]));
+    String[] sortedNames = new String[size];
+    int[] sortedCodes = new int[size];
+    for (int i = 0; i < size; i++) {
+      sortedNames[i] = names[order[i]];
+      sortedCodes[i] = order[i];
+    }
+    current = new Sorted(sortedNames, sortedCodes);
+    sorted = current;
+    return current;
+  }
+
+  /**
+   * The index of the first name which is not less than the key.
+   */
+  private static int lowerBound(String[] names, String key) {
+    int low = 0;
+    int high = names.length;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (names[mid].compareTo(key) < 0) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  @Override
+  public String toString() {
+    return "NameDictionary[" + size + " names]";
+  }
+
+  private static final class Sorted {
+    final String[] names;
+    final int[] codes;
+
+    Sorted(String[] names, int[] codes) {
+      this.names = names;
+      this.codes = codes;
+    }
+  }
+}
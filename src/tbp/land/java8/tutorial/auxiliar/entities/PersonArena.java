@@ -0,0 +1,390 @@
+package tbp.land.java8.tutorial.auxiliar.entities;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.IntSummaryStatistics;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * The same columns as a {@link PersonTable}, but off the heap, in direct buffers: hundreds of millions of persons
+ * are a handful of buffers to the garbage collector, instead of a Person, a String and a byte[] each to trace
+ * on every full collection.
+ *
+ * The rows are stored in blocks of 1M. Each block has an ages column (an int per row), a name-end column (an int per row:
+ * where the UTF-8 bytes of the name end in the block's name region; a name starts where the previous one ends)
+ * and the name region itself.
+ *
+ * {@link #ages()} reads the ages column directly, and {@link #flyweightStream()} moves one {@link PersonView} per split
+ * from row to row, so
+ * <pre>
+ * arena.ages().asLongStream().sum();
+ * arena.flyweightStream().parallel().filter(it -&gt; it.nameStartsWith("O")).count();
+ * </pre>
+ * allocate (next to) nothing per row; only {@link PersonView#getName()} decodes a String.
+ *
+ * Like PersonTable, streams and spliterators are views of the arena at the moment they are created, the arena itself
+ * is not thread safe, and its views can be traversed in parallel. The buffers are freed by the garbage collector once
+ * the arena (and every view of it) is unreachable; their total is bounded by {@code -XX:MaxDirectMemorySize}.
+ */
+public class PersonArena {
+
+  static final int BLOCK_SHIFT = 20;
+  static final int BLOCK_ROWS = 1 << BLOCK_SHIFT;
+  private static final int BLOCK_MASK = BLOCK_ROWS - 1;
+
+  private static final int INITIAL_ROWS = 16;
+  private static final int INITIAL_NAME_BYTES = 128;
+
+  private Block[] blocks = new Block[0];
+  private int size;
+
+  public static PersonArena of(Collection<Person> persons) {
+    PersonArena arena = new PersonArena();
+    persons.forEach(arena::add);
+    return arena;
+  }
+
+  public static PersonArena of(Stream<? extends Person> persons) {
+    PersonArena arena = new PersonArena();
+    persons.forEachOrdered(arena::add);
+    return arena;
+  }
+
+  public void add(Person person) {
+    add(person.getName(), person.getAge());
+  }
+
+  public void add(String name, int age) {
+    if (size == Integer.MAX_VALUE) {
+      throw new IllegalStateException("the arena is full");
+    }
+    int blockNo = size >>> BLOCK_SHIFT;
+    if (blockNo == blocks.length) {
+      blocks = Arrays.copyOf(blocks, blockNo + 1);
+      blocks[blockNo] = new Block();
+    }
+    blocks[blockNo].add(name, age);
+    size++;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public String getName(int row) {
+    checkRow(row);
+    Block block = blocks[row >>> BLOCK_SHIFT];
+    int index = row & BLOCK_MASK;
+    int start = block.nameStart(index);
+    byte[] bytes = new byte[block.nameEnds.get(index) - start];
+    for (int i = 0; i < bytes.length; i++) {
+      bytes[i] = block.names.get(start + i);
+    }
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  public int getAge(int row) {
+    checkRow(row);
+    return blocks[row >>> BLOCK_SHIFT].ages.get(row & BLOCK_MASK);
+  }
+
+  /**
+   * Creates a new Person for the given row, so only use this when an actual object is needed.
+   */
+  public Person get(int row) {
+    return new Person(getName(row), getAge(row));
+  }
+
+  /**
+   * Bytes of direct memory taken by the arena, spare capacity included.
+   */
+  public long offHeapBytes() {
+    long bytes = 0;
+    for (Block block : blocks) {
+      bytes += 4L * block.ages.capacity() + 4L * block.nameEnds.capacity() + block.names.capacity();
+    }
+    return bytes;
+  }
+
+  /**
+   * The ages column: SIZED, SUBSIZED, ORDERED and IMMUTABLE, so it splits evenly for parallel streams.
+   */
+  public Spliterator.OfInt agesSpliterator() {
+    return new AgesSpliterator(snapshot(), 0, size);
+  }
+
+  public IntStream ages() {
+    return StreamSupport.intStream(agesSpliterator(), false);
+  }
+
+  /**
+   * The row numbers, for pipelines which use {@link #getAge(int)} and {@link #getName(int)}.
+   */
+  public IntStream rows() {
+    return IntStream.range(0, size);
+  }
+
+  /**
+   * One {@link PersonView} per split, moved from row to row: keep {@link PersonView#toPerson()}, not the view.
+   */
+  public Stream<PersonView> flyweightStream() {
+    return StreamSupport.stream(new ViewSpliterator(snapshot(), 0, size), false);
+  }
+
+  /**
+   * Adapter for code which still wants Person objects; creates one per row.
+   */
+  public Stream<Person> stream() {
+    return flyweightStream().map(PersonView::toPerson);
+  }
+
+  /**
+   * The sum is a long, so it does not silently overflow the way an int accumulator would.
+   */
+  public long sumOfAges() {
+    return ages().asLongStream().sum();
+  }
+
+  public double averageAge() {
+    return ages().average().orElse(0);
+  }
+
+  public IntSummaryStatistics ageStatistics() {
+    return ages().summaryStatistics();
+  }
+
+  /**
+   * Number of persons with {@code minAge <= age <= maxAge}.
+   */
+  public long countAgedBetween(int minAge, int maxAge) {
+    return ages().filter(it -> it >= minAge && it <= maxAge).count();
+  }
+
+  private Snapshot snapshot() {
+    Snapshot snapshot = new Snapshot(blocks.length);
+    for (int i = 0; i < blocks.length; i++) {
+      snapshot.ages[i] = blocks[i].ages;
+      snapshot.nameEnds[i] = blocks[i].nameEnds;
+      snapshot.names[i] = blocks[i].names;
+    }
+    return snapshot;
+  }
+
+  private void checkRow(int row) {
+    if (row < 0 || row >= size) {
+      throw new IndexOutOfBoundsException("row: " + row + ", size: " + size);
+    }
+  }
+
+  private static IntBuffer allocateInts(int capacity) {
+    return ByteBuffer.allocateDirect(capacity * Integer.BYTES).order(ByteOrder.nativeOrder()).asIntBuffer();
+  }
+
+  /**
+   * Up to {@link #BLOCK_ROWS} rows. Its buffers grow by copying into bigger ones, so buffers handed out to a
+   * {@link Snapshot} before keep their content.
+   */
+  private static final class Block {
+    IntBuffer ages = allocateInts(INITIAL_ROWS);
+    IntBuffer nameEnds = allocateInts(INITIAL_ROWS);
+    ByteBuffer names = ByteBuffer.allocateDirect(INITIAL_NAME_BYTES);
+    int size;
+    int nameBytes;
+
+    void add(String name, int age) {
+      if (size == ages.capacity()) {
+        int capacity = Math.min(BLOCK_ROWS, 2 * size);
+        ages = copy(ages, allocateInts(capacity), size);
+        nameEnds = copy(nameEnds, allocateInts(capacity), size);
+      }
+      if (!putAscii(name)) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        ensureNameCapacity(bytes.length);
+        for (byte b : bytes) {
+          names.put(nameBytes++, b);
+        }
+      }
+      ages.put(size, age);
+      nameEnds.put(size, nameBytes);
+      size++;
+    }
+
+    int nameStart(int index) {
+      return index == 0 ? 0 : nameEnds.get(index - 1);
+    }
+
+    private boolean putAscii(String name) {
+      int length = name.length();
+      ensureNameCapacity(length);
+      for (int i = 0; i < length; i++) {
+        if (name.charAt(i) >= 0x80) {
+          return false;
+        }
+      }
+      for (int i = 0; i < length; i++) {
+        names.put(nameBytes++, (byte) name.charAt(i));
+      }
+      return true;
+    }
+
+    private void ensureNameCapacity(int bytes) {
+      if ((long) nameBytes + bytes > names.capacity()) {
+        long capacity = Math.max((long) nameBytes + bytes, 2L * names.capacity());
+        if (capacity > Integer.MAX_VALUE) {
+          throw new IllegalStateException("the names of a block do not fit 2GB");
+        }
+        ByteBuffer grown = ByteBuffer.allocateDirect((int) capacity);
+        ByteBuffer used = names.duplicate();
+        used.position(0).limit(nameBytes);
+        grown.put(used);
+        names = grown;
+      }
+    }
+
+    private static IntBuffer copy(IntBuffer from, IntBuffer to, int length) {
+      IntBuffer used = from.duplicate();
+      used.position(0).limit(length);
+      to.put(used);
+      to.clear();
+      return to;
+    }
+  }
+
+  /**
+   * The buffers of every block when a view was created.
+   */
+  private static final class Snapshot {
+    final IntBuffer[] ages;
+    final IntBuffer[] nameEnds;
+    final ByteBuffer[] names;
+
+    Snapshot(int blocks) {
+      ages = new IntBuffer[blocks];
+      nameEnds = new IntBuffer[blocks];
+      names = new ByteBuffer[blocks];
+    }
+  }
+
+  private static final class AgesSpliterator implements Spliterator.OfInt {
+    private final Snapshot snapshot;
+    private int from;
+    private final int to;
+
+    AgesSpliterator(Snapshot snapshot, int from, int to) {
+      this.snapshot = snapshot;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    public boolean tryAdvance(IntConsumer action) {
+      if (from >= to) {
+        return false;
+      }
+      action.accept(snapshot.ages[from >>> BLOCK_SHIFT].get(from & BLOCK_MASK));
+      from++;
+      return true;
+    }
+
+    @Override
+    public void forEachRemaining(IntConsumer action) {
+      while (from < to) {
+        IntBuffer ages = snapshot.ages[from >>> BLOCK_SHIFT];
+        int blockEnd = Math.min(to, (from | BLOCK_MASK) + 1);
+        for (int index = from & BLOCK_MASK, end = index + blockEnd - from; index < end; index++) {
+          action.accept(ages.get(index));
+        }
+        from = blockEnd;
+      }
+    }
+
+    @Override
+    public Spliterator.OfInt trySplit() {
+      int mid = (from + to) >>> 1;
+      if (mid <= from) {
+        return null;
+      }
+      AgesSpliterator prefix = new AgesSpliterator(snapshot, from, mid);
+      from = mid;
+      return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+      return to - from;
+    }
+
+    @Override
+    public int characteristics() {
+      return ORDERED | SIZED | SUBSIZED | IMMUTABLE;
+    }
+  }
+
+  private static final class ViewSpliterator implements Spliterator<PersonView> {
+    private final Snapshot snapshot;
+    private int from;
+    private final int to;
+    private final PersonView view = new PersonView();
+
+    ViewSpliterator(Snapshot snapshot, int from, int to) {
+      this.snapshot = snapshot;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super PersonView> action) {
+      if (from >= to) {
+        return false;
+      }
+      action.accept(moveTo(from++));
+      return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super PersonView> action) {
+      while (from < to) {
+        action.accept(moveTo(from++));
+      }
+    }
+
+    private PersonView moveTo(int row) {
+      int block = row >>> BLOCK_SHIFT;
+      int index = row & BLOCK_MASK;
+      IntBuffer nameEnds = snapshot.nameEnds[block];
+      int start = index == 0 ? 0 : nameEnds.get(index - 1);
+      view.moveTo(snapshot.names[block], start, nameEnds.get(index) - start, snapshot.ages[block].get(index));
+      return view;
+    }
+
+    @Override
+    public Spliterator<PersonView> trySplit() {
+      int mid = (from + to) >>> 1;
+      if (mid <= from) {
+        return null;
+      }
+      ViewSpliterator prefix = new ViewSpliterator(snapshot, from, mid);
+      from = mid;
+      return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+      return to - from;
+    }
+
+    @Override
+    public int characteristics() {
+      return ORDERED | SIZED | SUBSIZED | NONNULL | IMMUTABLE;
+    }
+  }
+}
@@ -0,0 +1,28 @@
+package tbp.land.java8.tutorial.auxiliar.entities;
+
+/**
+ * The layouts {@link PersonFileSource} reads and {@link PersonFileSink} writes.
+ */
+public enum PersonFileFormat {
+
+  /**
+   * One {@code name,age} line per person, in UTF-8, without a header and without quoting:
+   * a name can not contain a comma or a line break.
+   */
+  CSV,
+
+  /**
+   * {@value #RECORD_BYTES} bytes per person: the name in UTF-8, padded with zeros to {@value #NAME_BYTES} bytes,
+   * followed by the age as a big-endian int.
+   */
+  BINARY;
+
+  public static final int NAME_BYTES = 28;
+
+  public static final int RECORD_BYTES = NAME_BYTES + Integer.BYTES;
+
+  /**
+   * The longest CSV line, line break included, so that a reader never needs more than that to find the end of a record.
+   */
+  public static final int MAX_CSV_RECORD_BYTES = 4096;
+}
@@ -0,0 +1,213 @@
+package tbp.land.java8.tutorial.auxiliar.entities;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Writes persons to a file which {@link PersonFileSource} can read back.
+ *
+ * <pre>
+ * try (PersonFileSink sink = PersonFileSink.create(path, PersonFileFormat.BINARY)) {
+ *   persons.stream().filter(it -&gt; it.getAge() &gt;= 18).forEachOrdered(sink);
+ * }
+ * </pre>
+ *
+ * The records are encoded straight into a direct buffer, which goes to the {@link FileChannel} in one write call
+ * once it is full, so there is no intermediate byte[] or String per record (for ASCII names), and no copy from the
+ * heap to native memory on the way to the file.
+ *
+ * A sink is not thread safe: write a parallel stream with {@code forEachOrdered}, or see {@link #write(Stream, Path, PersonFileFormat)}.
+ */
+public final class PersonFileSink implements Consumer<Person>, AutoCloseable {
+
+  public static final int DEFAULT_BUFFER_BYTES = 1 << 20;
+
+  private final PersonFileFormat format;
+  private final FileChannel channel;
+  private final ByteBuffer buffer;
+  private long written;
+
+  private PersonFileSink(PersonFileFormat format, FileChannel channel, int bufferBytes) {
+    this.format = format;
+    this.channel = channel;
+    this.buffer = ByteBuffer.allocateDirect(bufferBytes);
+  }
+
+  /**
+   * Creates the file, or truncates it if it already exists.
+   */
+  public static PersonFileSink create(Path path, PersonFileFormat format) throws IOException {
+    return create(path, format, DEFAULT_BUFFER_BYTES);
+  }
+
+  public static PersonFileSink create(Path path, PersonFileFormat format, int bufferBytes) throws IOException {
+    Objects.requireNonNull(path, "path");
+    Objects.requireNonNull(format, "format");
+    if (bufferBytes < 2 * PersonFileFormat.MAX_CSV_RECORD_BYTES) {
+      throw new IllegalArgumentException("bufferBytes must be at least " + 2 * PersonFileFormat.MAX_CSV_RECORD_BYTES + ": " + bufferBytes);
+    }
+    FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+    return new PersonFileSink(format, channel, bufferBytes);
+  }
+
+  /**
+   * Writes the stream in its encounter order, and returns the number of persons written.
+   */
+  public static long write(Stream<? extends Person> persons, Path path, PersonFileFormat format) throws IOException {
+    try (PersonFileSink sink = create(path, format)) {
+      persons.forEachOrdered(sink);
+      return sink.getWritten();
+    }
+  }
+
+  /**
+   * @throws IllegalArgumentException if the person does not fit the format, e.g. a CSV name with a comma
+   * @throws UncheckedIOException if the file can not be written
+   */
+  @Override
+  public void accept(Person person) {
+    String name = Objects.requireNonNull(person.getName(), "name");
+    if (format == PersonFileFormat.BINARY) {
+      writeBinary(name, person.getAge());
+    } else {
+      writeCsv(name, person.getAge());
+    }
+    written++;
+  }
+
+  public long getWritten() {
+    return written;
+  }
+
+  /**
+   * Writes what is buffered to the file.
+   */
+  public void flush() throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    buffer.clear();
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      flush();
+    } finally {
+      channel.close();
+    }
+  }
+
+  private void writeBinary(String name, int age) {
+    ensureRemaining(PersonFileFormat.RECORD_BYTES);
+    int start = buffer.position();
+    if (!putAscii(name, PersonFileFormat.NAME_BYTES)) {
+      byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+      if (bytes.length > PersonFileFormat.NAME_BYTES) {
+        throw new IllegalArgumentException("name longer than " + PersonFileFormat.NAME_BYTES + " bytes: " + name);
+      }
+      buffer.put(bytes);
+    }
+    while (buffer.position() < start + PersonFileFormat.NAME_BYTES) {
+      buffer.put((byte) 0);
+    }
+    buffer.putInt(age);
+  }
+
+  private void writeCsv(String name, int age) {
+    // a name of n chars is at most 3n bytes in UTF-8 (4 per surrogate pair); ",-2147483648\n" is 13 bytes
+    ensureRemaining(Math.min(3 * name.length(), PersonFileFormat.MAX_CSV_RECORD_BYTES) + 13);
+    if (!putAscii(name, PersonFileFormat.MAX_CSV_RECORD_BYTES - 13)) {
+      byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+      if (bytes.length > PersonFileFormat.MAX_CSV_RECORD_BYTES - 13) {
+        throw new IllegalArgumentException("name longer than a CSV record: " + name);
+      }
+      buffer.put(bytes);
+    }
+    buffer.put((byte) ',');
+    putDigits(age);
+    buffer.put((byte) '\n');
+  }
+
+  /**
+   * Puts the name if it is all ASCII and fits {@code maxBytes}; otherwise leaves the buffer as it was, for the UTF-8 path.
+   *
+   * @throws IllegalArgumentException for a name the format can not hold, whichever path it would take
+   */
+  private boolean putAscii(String name, int maxBytes) {
+    int start = buffer.position();
+    int length = name.length();
+    if (length > maxBytes) {
+      checkChars(name, 0);
+      return false;
+    }
+    for (int i = 0; i < length; i++) {
+      char c = name.charAt(i);
+      if (c >= 0x80) {
+        buffer.position(start);
+        checkChars(name, i);
+        return false;
+      }
+      if (isForbidden(c)) {
+        buffer.position(start);
+        throw cannotWrite(name);
+      }
+      buffer.put((byte) c);
+    }
+    return true;
+  }
+
+  private void checkChars(String name, int from) {
+    for (int i = from; i < name.length(); i++) {
+      if (isForbidden(name.charAt(i))) {
+        throw cannotWrite(name);
+      }
+    }
+  }
+
+  /**
+   * NUL ends a BINARY name; a comma or a line break ends a CSV field.
+   */
+  private boolean isForbidden(char c) {
+    return c == 0 || (format == PersonFileFormat.CSV && (c == ',' || c == '\n' || c == '\r'));
+  }
+
+  private IllegalArgumentException cannotWrite(String name) {
+    return new IllegalArgumentException("the name can not be written as " + format + ": " + name);
+  }
+
+  private void putDigits(int value) {
+    long remaining = value;
+    if (remaining < 0) {
+      buffer.put((byte) '-');
+      remaining = -remaining;
+    }
+    long divisor = 1;
+    while (divisor * 10 <= remaining) {
+      divisor *= 10;
+    }
+    for (; divisor > 0; divisor /= 10) {
+      buffer.put((byte) ('0' + remaining / divisor));
+      remaining %= divisor;
+    }
+  }
+
+  private void ensureRemaining(int bytes) {
+    if (buffer.remaining() < bytes) {
+      try {
+        flush();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+  }
+}
@@ -0,0 +1,300 @@
+package tbp.land.java8.tutorial.auxiliar.entities;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * The persons of a file (see {@link PersonFileFormat}), as a stream, for files far bigger than the
+ * {@code Arrays.asList(new Person(...))} of {@code J3StreamOperationsAdvanced}.
+ *
+ * <pre>
+ * try (PersonFileSource source = PersonFileSource.open(path, PersonFileFormat.CSV)) {
+ *   double averageAge = source.flyweightStream().parallel() //
+ *     .mapToInt(Person::getAge) //
+ *     .average() //
+ *     .orElse(0);
+ * }
+ * </pre>
+ *
+ * The file is memory-mapped, in regions of 1GB (a mapping can not be bigger than 2GB), so reading it is left to the
+ * page cache instead of going through read calls and heap buffers. Its spliterator splits on record boundaries:
+ * in the middle for fixed-width records, at the next line break for CSV. {@link #flyweightStream()} hands out
+ * one {@link PersonView} per split, moved from record to record, instead of a new Person per record.
+ *
+ * Closing the source closes the file; the mappings themselves go away when they are garbage collected, as java 8
+ * has no way to unmap a file.
+ */
+public final class PersonFileSource implements AutoCloseable {
+
+  static final int REGION_SHIFT = 30;
+  static final long REGION_BYTES = 1L << REGION_SHIFT;
+
+  private final PersonFileFormat format;
+  private final FileChannel channel;
+  private final long size;
+  /**
+   * Region i maps the bytes from {@code i * REGION_BYTES}, plus one CSV record past the end of the region, so that
+   * a record which starts in a region can always be read from that region alone.
+   */
+  private final MappedByteBuffer[] regions;
+  private final double bytesPerRecord;
+
+  private PersonFileSource(PersonFileFormat format, FileChannel channel) throws IOException {
+    this.format = format;
+    this.channel = channel;
+    this.size = channel.size();
+    if (format == PersonFileFormat.BINARY && size % PersonFileFormat.RECORD_BYTES != 0) {
+      throw new IOException("not a file of " + PersonFileFormat.RECORD_BYTES + " byte records: " + size + " bytes");
+    }
+    int overlap = format == PersonFileFormat.CSV ? PersonFileFormat.MAX_CSV_RECORD_BYTES : 0;
+    this.regions = new MappedByteBuffer[(int) ((size + REGION_BYTES - 1) >>> REGION_SHIFT)];
+    for (int i = 0; i < regions.length; i++) {
+      long start = i * REGION_BYTES;
+      regions[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(size - start, REGION_BYTES + overlap));
+    }
+    this.bytesPerRecord = format == PersonFileFormat.BINARY ? PersonFileFormat.RECORD_BYTES : sampleBytesPerRecord();
+  }
+
+  public static PersonFileSource open(Path path, PersonFileFormat format) throws IOException {
+    Objects.requireNonNull(path, "path");
+    Objects.requireNonNull(format, "format");
+    FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+    try {
+      return new PersonFileSource(format, channel);
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  public PersonFileFormat getFormat() {
+    return format;
+  }
+
+  public long sizeInBytes() {
+    return size;
+  }
+
+  /**
+   * The number of records: exact for {@link PersonFileFormat#BINARY}, estimated from the first lines for CSV.
+   */
+  public long estimateRecords() {
+    return (long) Math.ceil(size / bytesPerRecord);
+  }
+
+  /**
+   * A new Person per record.
+   */
+  public Stream<Person> stream() {
+    return StreamSupport.stream(spliterator(), false);
+  }
+
+  /**
+   * The same {@link PersonView} for all records of a split, so one per thread of a parallel stream.
+   */
+  public Stream<PersonView> flyweightStream() {
+    return StreamSupport.stream(flyweightSpliterator(), false);
+  }
+
+  public Spliterator<Person> spliterator() {
+    return new RecordSpliterator<>(0, size, false);
+  }
+
+  public Spliterator<PersonView> flyweightSpliterator() {
+    return new RecordSpliterator<>(0, size, true);
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  byte byteAt(long offset) {
+    return regions[(int) (offset >>> REGION_SHIFT)].get((int) (offset & (REGION_BYTES - 1)));
+  }
+
+  private double sampleBytesPerRecord() {
+    long sampled = Math.min(size, 1 << 16);
+    long lines = 0;
+    for (long i = 0; i < sampled; i++) {
+      if (byteAt(i) == '\n') {
+        lines++;
+      }
+    }
+    return lines == 0 ? Math.max(1, sampled) : (double) sampled / lines;
+  }
+
+  /**
+   * The records which start in {@code [from, to)}; {@code from} is always the start of a record.
+   *
+   * @param <P> Person, or PersonView for a flyweight spliterator
+   */
+  private final class RecordSpliterator<P extends Person> implements Spliterator<P> {
+    private long from;
+    private final long to;
+    private final boolean flyweight;
+    private final PersonView view;
+    private byte[] scratch;
+    /**
+     * This spliterator's own duplicate of the current region, so that bulk reads can move its position.
+     */
+    private ByteBuffer buffer;
+    private int bufferRegion = -1;
+
+    RecordSpliterator(long from, long to, boolean flyweight) {
+      this.from = from;
+      this.to = to;
+      this.flyweight = flyweight;
+      this.view = flyweight ? new PersonView() : null;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super P> action) {
+      P next = next();
+      if (next == null) {
+        return false;
+      }
+      action.accept(next);
+      return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super P> action) {
+      for (P next = next(); next != null; next = next()) {
+        action.accept(next);
+      }
+    }
+
+    @SuppressWarnings("unchecked")
+    private P next() {
+      while (from < to) {
+        int region = (int) (from >>> REGION_SHIFT);
+        if (region != bufferRegion) {
+          buffer = regions[region].duplicate();
+          bufferRegion = region;
+        }
+        int start = (int) (from & (REGION_BYTES - 1));
+        P next = format == PersonFileFormat.BINARY ? (P) readBinary(start) : (P) readCsv(start);
+        if (next != null) {
+          return next;
+        }
+      }
+      return null;
+    }
+
+    private Person readBinary(int start) {
+      int nameLength = 0;
+      while (nameLength < PersonFileFormat.NAME_BYTES && buffer.get(start + nameLength) != 0) {
+        nameLength++;
+      }
+      int age = buffer.getInt(start + PersonFileFormat.NAME_BYTES);
+      from += PersonFileFormat.RECORD_BYTES;
+      return person(start, nameLength, age);
+    }
+
+    /**
+     * @return null for an empty line
+     */
+    private Person readCsv(int start) {
+      int limit = buffer.limit();
+      int i = start;
+      byte b;
+      while (i < limit && (b = buffer.get(i)) != ',' && b != '\n') {
+        i++;
+      }
+      if (i < limit && buffer.get(i) == '\n' && i == start) {
+        from += 1;
+        return null;
+      }
+      if (i == limit || buffer.get(i) != ',') {
+        throw malformed(start, i);
+      }
+      int nameLength = i - start;
+      i++;
+      int age = 0;
+      boolean negative = i < limit && buffer.get(i) == '-';
+      if (negative) {
+        i++;
+      }
+      while (i < limit && (b = buffer.get(i)) != '\n') {
+        if (b >= '0' && b <= '9') {
+          age = age * 10 + (b - '0');
+        } else if (b != '\r') {
+          throw malformed(start, i);
+        }
+        i++;
+      }
+      if (i == limit && from + (i - start) < size) {
+        throw malformed(start, i);
+      }
+      from += i - start + 1;
+      return person(start, nameLength, negative ? -age : age);
+    }
+
+    private Person person(int nameOffset, int nameLength, int age) {
+      if (flyweight) {
+        view.moveTo(buffer, nameOffset, nameLength, age);
+        return view;
+      }
+      if (scratch == null || scratch.length < nameLength) {
+        scratch = new byte[Math.max(nameLength, PersonFileFormat.NAME_BYTES)];
+      }
+      buffer.position(nameOffset);
+      buffer.get(scratch, 0, nameLength);
+      return new Person(new String(scratch, 0, nameLength, StandardCharsets.UTF_8), age);
+    }
+
+    private IllegalStateException malformed(int start, int at) {
+      long offset = ((long) bufferRegion << REGION_SHIFT) + start;
+      return new IllegalStateException("malformed record at byte " + offset + ": "
+        + (at - start >= PersonFileFormat.MAX_CSV_RECORD_BYTES ? "longer than " + PersonFileFormat.MAX_CSV_RECORD_BYTES + " bytes" : "expected name,age"));
+    }
+
+    @Override
+    public Spliterator<P> trySplit() {
+      long mid;
+      if (format == PersonFileFormat.BINARY) {
+        long half = (to - from) / PersonFileFormat.RECORD_BYTES / 2;
+        if (half == 0) {
+          return null;
+        }
+        mid = from + half * PersonFileFormat.RECORD_BYTES;
+      } else {
+        if (to - from < 2L * PersonFileFormat.MAX_CSV_RECORD_BYTES) {
+          return null;
+        }
+        mid = (from + to) >>> 1;
+        while (mid < to && byteAt(mid - 1) != '\n') {
+          mid++;
+        }
+        if (mid >= to) {
+          return null;
+        }
+      }
+      RecordSpliterator<P> prefix = new RecordSpliterator<>(from, mid, flyweight);
+      from = mid;
+      return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+      return format == PersonFileFormat.BINARY ? (to - from) / PersonFileFormat.RECORD_BYTES : (long) Math.ceil((to - from) / bytesPerRecord);
+    }
+
+    @Override
+    public int characteristics() {
+      int characteristics = ORDERED | NONNULL | IMMUTABLE;
+      return format == PersonFileFormat.BINARY ? characteristics | SIZED | SUBSIZED : characteristics;
+    }
+  }
+}
@@ -0,0 +1,139 @@
+package tbp.land.java8.tutorial.auxiliar.entities;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.IntSummaryStatistics;
+import java.util.Spliterator;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * The same data as a {@code List<Person>}, but stored column by column: one {@code int[]} for the ages
+ * and one {@code String[]} for the names.
+ *
+ * Aggregations over the ages go through {@link IntStream}, so there is no Integer boxing
+ * and no Person object per row.
+ *
+ * Streams and spliterators are views of the table at the moment they are created:
+ * rows added afterwards are not seen by them.
+ * The table itself is not thread safe, but its views can be traversed in parallel.
+ */
+public class PersonTable {
+
+  private static final int DEFAULT_CAPACITY = 16;
+
+  private String[] names;
+  private int[] ages;
+  private int size;
+
+  public PersonTable() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  public PersonTable(int initialCapacity) {
+    if (initialCapacity < 0) {
+      throw new IllegalArgumentException("initialCapacity must not be negative: " + initialCapacity);
+    }
+    this.names = new String[initialCapacity];
+    this.ages = new int[initialCapacity];
+  }
+
+  public static PersonTable of(Collection<Person> persons) {
+    PersonTable table = new PersonTable(persons.size());
+    persons.forEach(table::add);
+    return table;
+  }
+
+  public void add(Person person) {
+    add(person.getName(), person.getAge());
+  }
+
+  public void add(String name, int age) {
+    if (size == ages.length) {
+      int newCapacity = Math.max(DEFAULT_CAPACITY, size + (size >> 1));
+      names = Arrays.copyOf(names, newCapacity);
+      ages = Arrays.copyOf(ages, newCapacity);
+    }
+    names[size] = name;
+    ages[size] = age;
+    size++;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public String getName(int row) {
+    checkRow(row);
+    return names[row];
+  }
+
+  public int getAge(int row) {
+    checkRow(row);
+    return ages[row];
+  }
+
+  /**
+   * Creates a new Person for the given row, so only use this when an actual object is needed.
+   */
+  public Person get(int row) {
+    checkRow(row);
+    return new Person(names[row], ages[row]);
+  }
+
+  /**
+   * The ages column: SIZED, SUBSIZED, ORDERED and IMMUTABLE, so it splits evenly for parallel streams.
+   */
+  public Spliterator.OfInt agesSpliterator() {
+    return Arrays.spliterator(ages, 0, size);
+  }
+
+  public IntStream ages() {
+    return Arrays.stream(ages, 0, size);
+  }
+
+  /**
+   * The row numbers, for pipelines which need both columns without creating Persons,
+   * e.g. {@code table.rows().filter(row -> table.getName(row).startsWith("O"))}.
+   */
+  public IntStream rows() {
+    return IntStream.range(0, size);
+  }
+
+  /**
+   * Adapter for code which still wants Person objects; creates one per row.
+   */
+  public Stream<Person> stream() {
+    String[] names = this.names;
+    int[] ages = this.ages;
+    return rows().mapToObj(row -> new Person(names[row], ages[row]));
+  }
+
+  /**
+   * The sum is a long, so it does not silently overflow the way an int accumulator would.
+   */
+  public long sumOfAges() {
+    return ages().asLongStream().sum();
+  }
+
+  public double averageAge() {
+    return ages().average().orElse(0);
+  }
+
+  public IntSummaryStatistics ageStatistics() {
+    return ages().summaryStatistics();
+  }
+
+  /**
+   * Number of persons with {@code minAge <= age <= maxAge}.
+   */
+  public long countAgedBetween(int minAge, int maxAge) {
+    return ages().filter(it -> it >= minAge && it <= maxAge).count();
+  }
+
+  private void checkRow(int row) {
+    if (row < 0 || row >= size) {
+      throw new IndexOutOfBoundsException("row: " + row + ", size: " + size);
+    }
+  }
+}
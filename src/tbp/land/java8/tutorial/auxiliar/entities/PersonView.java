@@ -0,0 +1,73 @@
+package tbp.land.java8.tutorial.auxiliar.entities;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A {@link Person} which is a window on a record of a {@link PersonFileSource} (or a row of a {@link PersonArena}),
+ * and is moved to the next record instead of allocating a new Person for it.
+ *
+ * The age is read right away; the name is only decoded when {@link #getName()} asks for it, so
+ * {@code mapToInt(Person::getAge)} over a flyweight stream allocates nothing per record.
+ * A view is only valid until the stream moves on: keep {@link #toPerson()} instead of the view itself.
+ */
+public final class PersonView extends Person {
+
+  private ByteBuffer buffer;
+  private int nameOffset;
+  private int nameLength;
+  private byte[] scratch = new byte[PersonFileFormat.NAME_BYTES];
+
+  PersonView() {
+    super(null, 0);
+  }
+
+  void moveTo(ByteBuffer buffer, int nameOffset, int nameLength, int age) {
+    this.buffer = buffer;
+    this.nameOffset = nameOffset;
+    this.nameLength = nameLength;
+    this.name = null;
+    this.age = age;
+  }
+
+  @Override
+  public String getName() {
+    if (name == null) {
+      if (scratch.length < nameLength) {
+        scratch = new byte[nameLength];
+      }
+      for (int i = 0; i < nameLength; i++) {
+        scratch[i] = buffer.get(nameOffset + i);
+      }
+      name = new String(scratch, 0, nameLength, StandardCharsets.UTF_8);
+    }
+    return name;
+  }
+
+  /**
+   * {@code getName().startsWith(prefix)}, for an ASCII prefix, without decoding the name.
+   */
+  public boolean nameStartsWith(String prefix) {
+    if (prefix.length() > nameLength) {
+      return false;
+    }
+    for (int i = 0; i < prefix.length(); i++) {
+      if (buffer.get(nameOffset + i) != prefix.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * A Person of its own, which stays valid after the view moved on.
+   */
+  public Person toPerson() {
+    return new Person(getName(), age);
+  }
+
+  @Override
+  public String toString() {
+    return getName() + " " + age;
+  }
+}
@@ -0,0 +1,220 @@
+package tbp.land.java8.tutorial.auxiliar.functions;
+
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * A pure function which remembers its last results, e.g. {@code mapToStringFunctional} from {@code J1Lambda.functions()}.
+ *
+ * <pre>
+ * Function&lt;Map, String&gt; mapToString = Memo.function(mapToStringFunctional, 1000);
+ * mapToString.apply(nameAndAge);  // computed
+ * mapToString.apply(nameAndAge);  // remembered
+ * </pre>
+ *
+ * Compared to {@code map.computeIfAbsent(key, fn)} on a ConcurrentHashMap:
+ * <ul>
+ * <li>the number of entries is bounded: once there are {@code maxEntries}, every new entry evicts one which was not
+ * used recently (CLOCK, i.e. an approximation of least recently used)</li>
+ * <li>the function runs outside of the map's locks, so a slow computation does not block the other keys of its bin;
+ * threads asking for a key which is being computed wait for that computation instead of starting their own</li>
+ * <li>a hit only reads the map, and marks its entry as used if it was not already;
+ * only misses take the (single) lock of the clock</li>
+ * </ul>
+ *
+ * Memo is a {@link Function}, so {@code memo.andThen(g)} and {@code memo.compose(g)} work as usual, and only memoize
+ * the memo's part of the chain; {@code Memo.function(f.andThen(g), n)} memoizes the whole chain.
+ *
+ * Keys must not be null, and must not change while they are in the memo. If the function throws, nothing is remembered:
+ * the threads waiting for that key get the same exception, and the next call computes again.
+ */
+public final class Memo<T, R> implements Function<T, R> {
+
+  private final Function<? super T, ? extends R> function;
+  private final int maxEntries;
+  private final ConcurrentMap<T, Entry<T, R>> entries;
+  private final Clock<T, R> clock;
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+
+  private Memo(Function<? super T, ? extends R> function, int maxEntries) {
+    this.function = function;
+    this.maxEntries = maxEntries;
+    this.entries = new ConcurrentHashMap<>(Math.min(maxEntries, 1 << 16));
+    this.clock = new Clock<>(maxEntries);
+  }
+
+  public static <T, R> Memo<T, R> function(Function<? super T, ? extends R> function, int maxEntries) {
+    Objects.requireNonNull(function, "function");
+    if (maxEntries < 0) {
+      throw new IllegalArgumentException("maxEntries must not be negative: " + maxEntries);
+    }
+    return new Memo<>(function, maxEntries);
+  }
+
+  @Override
+  public R apply(T key) {
+    Objects.requireNonNull(key, "key");
+    Entry<T, R> entry = entries.get(key);
+    if (entry == null) {
+      if (maxEntries == 0) {
+        misses.increment();
+        return function.apply(key);
+      }
+      Entry<T, R> created = new Entry<>(key);
+      entry = entries.putIfAbsent(key, created);
+      if (entry == null) {
+        misses.increment();
+        return compute(created);
+      }
+    }
+    hits.increment();
+    if (!entry.used) {
+      entry.used = true;
+    }
+    return entry.join();
+  }
+
+  public long getHits() {
+    return hits.sum();
+  }
+
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  public long getEvictions() {
+    return evictions.sum();
+  }
+
+  public int size() {
+    return entries.size();
+  }
+
+  public int getMaxEntries() {
+    return maxEntries;
+  }
+
+  /**
+   * Forgets everything; the counters are kept.
+   */
+  public void clear() {
+    clock.clear();
+    entries.clear();
+  }
+
+  @Override
+  public String toString() {
+    long hits = getHits();
+    long calls = hits + getMisses();
+    return String.format("Memo[size=%d/%d, hits=%d, misses=%d, evictions=%d, hit rate=%.1f%%]", //
+      size(), maxEntries, hits, getMisses(), getEvictions(), calls == 0 ? 0.0 : 100.0 * hits / calls);
+  }
+
+  private R compute(Entry<T, R> entry) {
+    Entry<T, R> evicted = clock.admit(entry);
+    if (evicted != null && entries.remove(evicted.key, evicted)) {
+      evictions.increment();
+    }
+    R value;
+    try {
+      value = function.apply(entry.key);
+    } catch (RuntimeException | Error e) {
+      entries.remove(entry.key, entry);
+      entry.dead = true;
+      entry.future.completeExceptionally(e);
+      throw e;
+    }
+    entry.future.complete(value);
+    return value;
+  }
+
+  private static final class Entry<T, R> {
+    final T key;
+    final CompletableFuture<R> future = new CompletableFuture<>();
+    final Thread computedBy = Thread.currentThread();
+    /**
+     * The reference bit of the clock: set by hits, cleared when the hand passes by.
+     */
+    volatile boolean used;
+    /**
+     * Removed from the map because its computation failed; the hand reuses its slot without counting an eviction.
+     */
+    volatile boolean dead;
+
+    Entry(T key) {
+      this.key = key;
+    }
+
+    R join() {
+      if (!future.isDone() && computedBy == Thread.currentThread()) {
+        throw new IllegalStateException("recursive call of the memoized function for " + key);
+      }
+      try {
+        return future.join();
+      } catch (CompletionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof RuntimeException) {
+          throw (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+          throw (Error) cause;
+        }
+        throw e;
+      }
+    }
+  }
+
+  /**
+   * A ring of {@code maxEntries} slots with a hand which goes round looking for an entry to evict:
+   * a used entry gets a second chance (its bit is cleared), an unused one is replaced.
+   * Entries which are still being computed are never evicted, unless everything else is.
+   */
+  private static final class Clock<T, R> {
+    private final Entry<T, R>[] slots;
+    private int filled;
+    private int hand;
+
+    @SuppressWarnings("unchecked")
+    Clock(int maxEntries) {
+      this.slots = (Entry<T, R>[]) new Entry<?, ?>[maxEntries];
+    }
+
+    /**
+     * @return the live entry which had to make room for this one, if any
+     */
+    synchronized Entry<T, R> admit(Entry<T, R> entry) {
+      if (filled < slots.length) {
+        slots[filled++] = entry;
+        return null;
+      }
+      for (int scanned = 0; ; scanned++) {
+        Entry<T, R> candidate = slots[hand];
+        boolean replace = candidate.dead //
+          || (!candidate.used && candidate.future.isDone()) //
+          || scanned >= 2 * slots.length;
+        if (replace) {
+          slots[hand] = entry;
+          hand = (hand + 1) % slots.length;
+          return candidate.dead ? null : candidate;
+        }
+        candidate.used = false;
+        hand = (hand + 1) % slots.length;
+      }
+    }
+
+    synchronized void clear() {
+      for (int i = 0; i < filled; i++) {
+        slots[i] = null;
+      }
+      filled = 0;
+      hand = 0;
+    }
+  }
+}
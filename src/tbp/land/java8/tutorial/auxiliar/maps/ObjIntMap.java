@@ -0,0 +1,235 @@
+package tbp.land.java8.tutorial.auxiliar.maps;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.StringJoiner;
+import java.util.function.IntBinaryOperator;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * A map from objects to ints which can be streamed as {@code (key, value)} pairs, see {@link ObjIntStream}.
+ *
+ * A {@code HashMap<String, Integer>} keeps a Node object plus an Integer per entry; this keeps the keys in one array
+ * and the values in another, at the same index (open addressing with linear probing), so there are no per entry objects
+ * at all and the values are plain ints. Streaming it just walks over both arrays, and a parallel stream splits them
+ * into ranges of slots.
+ *
+ * Keys must not be null. Like HashMap it is not thread safe, and it must not be modified while it is being streamed.
+ */
+public final class ObjIntMap<K> {
+
+  private static final int MIN_CAPACITY = 16;
+  private static final int MAX_CAPACITY = 1 << 30;
+
+  private Object[] keys;
+  private int[] values;
+  private int size;
+  /**
+   * Grow once there are this many keys, i.e. at 3/4 of the capacity.
+   */
+  private int threshold;
+
+  public ObjIntMap() {
+    this(MIN_CAPACITY);
+  }
+
+  /**
+   * Room for {@code expectedSize} keys before having to grow.
+   */
+  public ObjIntMap(int expectedSize) {
+    if (expectedSize < 0) {
+      throw new IllegalArgumentException("expectedSize must not be negative: " + expectedSize);
+    }
+    allocate(capacityFor(expectedSize));
+  }
+
+  public static <K> ObjIntMap<K> of(Map<? extends K, Integer> map) {
+    ObjIntMap<K> result = new ObjIntMap<>(map.size());
+    map.forEach(result::put);
+    return result;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  public boolean containsKey(K key) {
+    return indexOf(key) >= 0;
+  }
+
+  public int getOrDefault(K key, int defaultValue) {
+    int index = indexOf(key);
+    return index >= 0 ? values[index] : defaultValue;
+  }
+
+  public void put(K key, int value) {
+    int index = insertionIndexOf(key);
+    values[index] = value;
+  }
+
+  /**
+   * Puts {@code value} if the key is not there yet, otherwise combines both, e.g. {@code merge(word, 1, Integer::sum)}.
+   *
+   * @return the new value
+   */
+  public int merge(K key, int value, IntBinaryOperator remapping) {
+    int index = indexOf(key);
+    if (index >= 0) {
+      return values[index] = remapping.applyAsInt(values[index], value);
+    }
+    index = insertionIndexOf(key);   // may grow, i.e. replace the arrays
+    values[index] = value;
+    return value;
+  }
+
+  /**
+   * @return whether the key was there
+   */
+  public boolean remove(K key) {
+    int index = indexOf(key);
+    if (index < 0) {
+      return false;
+    }
+    // backward shift: move later keys of the same probe sequence into the hole, so lookups never stop at it
+    int mask = keys.length - 1;
+    int hole = index;
+    int next = hole;
+    while (true) {
+      next = (next + 1) & mask;
+      Object candidate = keys[next];
+      if (candidate == null) {
+        break;
+      }
+      int home = slot(candidate, mask);
+      boolean staysPut = hole <= next ? hole < home && home <= next : hole < home || home <= next;
+      if (!staysPut) {
+        keys[hole] = candidate;
+        values[hole] = values[next];
+        hole = next;
+      }
+    }
+    keys[hole] = null;
+    values[hole] = 0;
+    size--;
+    return true;
+  }
+
+  public void clear() {
+    Arrays.fill(keys, null);
+    Arrays.fill(values, 0);
+    size = 0;
+  }
+
+  @SuppressWarnings("unchecked")
+  public void forEach(ObjIntConsumer<? super K> action) {
+    Object[] keys = this.keys;
+    int[] values = this.values;
+    for (int i = 0; i < keys.length; i++) {
+      if (keys[i] != null) {
+        action.accept((K) keys[i], values[i]);
+      }
+    }
+  }
+
+  public ObjIntStream<K> stream() {
+    return new ObjIntStream<>(keys, values, size, false);
+  }
+
+  public ObjIntStream<K> parallelStream() {
+    return new ObjIntStream<>(keys, values, size, true);
+  }
+
+  @Override
+  public String toString() {
+    StringJoiner joiner = new StringJoiner(", ", "{", "}");
+    forEach((key, value) -> joiner.add(key + "=" + value));
+    return joiner.toString();
+  }
+
+  private int indexOf(Object key) {
+    Objects.requireNonNull(key, "key");
+    Object[] keys = this.keys;
+    int mask = keys.length - 1;
+    for (int index = slot(key, mask); ; index = (index + 1) & mask) {
+      Object candidate = keys[index];
+      if (candidate == null) {
+        return -1;
+      }
+      if (candidate == key || candidate.equals(key)) {
+        return index;
+      }
+    }
+  }
+
+  /**
+   * The slot of the key, after adding it (with value 0) if it was not there.
+   */
+  private int insertionIndexOf(K key) {
+    Objects.requireNonNull(key, "key");
+    int mask = keys.length - 1;
+    for (int index = slot(key, mask); ; index = (index + 1) & mask) {
+      Object candidate = keys[index];
+      if (candidate == null) {
+        if (size >= threshold) {
+          grow();
+          return insertionIndexOf(key);
+        }
+        keys[index] = key;
+        size++;
+        return index;
+      }
+      if (candidate == key || candidate.equals(key)) {
+        return index;
+      }
+    }
+  }
+
+  private void grow() {
+    if (keys.length == MAX_CAPACITY) {
+      throw new IllegalStateException("ObjIntMap cannot grow beyond " + threshold + " keys");
+    }
+    Object[] oldKeys = keys;
+    int[] oldValues = values;
+    allocate(keys.length * 2);
+    int mask = keys.length - 1;
+    for (int i = 0; i < oldKeys.length; i++) {
+      Object key = oldKeys[i];
+      if (key != null) {
+        int index = slot(key, mask);
+        while (keys[index] != null) {
+          index = (index + 1) & mask;
+        }
+        keys[index] = key;
+        values[index] = oldValues[i];
+      }
+    }
+  }
+
+  private void allocate(int capacity) {
+    keys = new Object[capacity];
+    values = new int[capacity];
+    threshold = capacity == MAX_CAPACITY ? MAX_CAPACITY - (MAX_CAPACITY >>> 3) : capacity - (capacity >>> 2);
+  }
+
+  private static int capacityFor(int expectedSize) {
+    long needed = Math.max(MIN_CAPACITY, (expectedSize * 4L + 2) / 3 + 1);
+    if (needed >= MAX_CAPACITY) {
+      return MAX_CAPACITY;
+    }
+    return Integer.highestOneBit((int) needed - 1) << 1;
+  }
+
+  /**
+   * Spreads the bits of the hash code, so that keys with similar hash codes (e.g. "a1", "a2") do not end up
+   * in long runs of neighbouring slots.
+   */
+  private static int slot(Object key, int mask) {
+    int h = key.hashCode() * 0x9E3779B9;
+    return (h ^ (h >>> 16)) & mask;
+  }
+}
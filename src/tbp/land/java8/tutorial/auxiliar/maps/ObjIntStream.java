@@ -0,0 +1,176 @@
+package tbp.land.java8.tutorial.auxiliar.maps;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntUnaryOperator;
+import java.util.function.ObjIntConsumer;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/**
+ * The {@code (key, value) -> ...} stream over an {@link ObjIntMap} which {@code J2StreamOperations.streamsForMaps()}
+ * wishes Map.Entry had.
+ *
+ * <pre>
+ * map.stream() //
+ *   .filter((key, value) -&gt; value % 2 == 0) //
+ *   .mapValues(value -&gt; value * 10) //
+ *   .forEach((key, value) -&gt; System.out.println(key + " " + value));
+ * </pre>
+ *
+ * Like a Stream it is lazy: nothing runs before the terminal operation. Every stage passes the key and the int value straight on
+ * to the next one, so no Entry is ever created and no value is boxed. A parallel stream cuts the backing arrays
+ * into ranges of {@value #CHUNK_SIZE} slots, and runs them as a parallel IntStream of ranges, i.e. in the
+ * fork/join pool of the calling thread.
+ */
+public final class ObjIntStream<K> {
+
+  /**
+   * Number of slots of the backing arrays per parallel task.
+   */
+  public static final int CHUNK_SIZE = 1 << 14;
+
+  @FunctionalInterface
+  public interface ObjIntPredicate<K> {
+    boolean test(K key, int value);
+  }
+
+  private final Object[] keys;
+  private final int[] values;
+  private final int size;
+  private final boolean parallel;
+  /**
+   * Given what comes after this stream, returns what has to receive the pairs of the map.
+   */
+  private final Function<ObjIntConsumer<K>, ObjIntConsumer<K>> stages;
+
+  ObjIntStream(Object[] keys, int[] values, int size, boolean parallel) {
+    this(keys, values, size, parallel, Function.identity());
+  }
+
+  private ObjIntStream(Object[] keys, int[] values, int size, boolean parallel, Function<ObjIntConsumer<K>, ObjIntConsumer<K>> stages) {
+    this.keys = keys;
+    this.values = values;
+    this.size = size;
+    this.parallel = parallel;
+    this.stages = stages;
+  }
+
+  public boolean isParallel() {
+    return parallel;
+  }
+
+  public ObjIntStream<K> parallel() {
+    return new ObjIntStream<>(keys, values, size, true, stages);
+  }
+
+  public ObjIntStream<K> sequential() {
+    return new ObjIntStream<>(keys, values, size, false, stages);
+  }
+
+  public ObjIntStream<K> filter(ObjIntPredicate<? super K> predicate) {
+    return then(downstream -> (key, value) -> {
+      if (predicate.test(key, value)) {
+        downstream.accept(key, value);
+      }
+    });
+  }
+
+  public ObjIntStream<K> mapValues(IntUnaryOperator mapper) {
+    return then(downstream -> (key, value) -> downstream.accept(key, mapper.applyAsInt(value)));
+  }
+
+  /**
+   * In no particular order; for parallel streams {@code action} is called from several threads at once.
+   */
+  public void forEach(ObjIntConsumer<? super K> action) {
+    run(() -> action::accept, it -> {
+    });
+  }
+
+  public long count() {
+    LongAdder count = new LongAdder();
+    run(Total<K>::new, it -> count.add(it.count));
+    return count.sum();
+  }
+
+  public long sumOfValues() {
+    LongAdder sum = new LongAdder();
+    run(Total<K>::new, it -> sum.add(it.sum));
+    return sum.sum();
+  }
+
+  /**
+   * Collects the remaining pairs into a new map; a parallel stream fills one map per range and merges them afterwards.
+   */
+  public ObjIntMap<K> toMap() {
+    ObjIntMap<K> result = new ObjIntMap<>(size);
+    if (!parallel) {
+      run(() -> result::put, it -> {
+      });
+      return result;
+    }
+    run(Collect<K>::new, it -> {
+      synchronized (result) {
+        it.map.forEach(result::put);
+      }
+    });
+    return result;
+  }
+
+  private ObjIntStream<K> then(Function<ObjIntConsumer<K>, ObjIntConsumer<K>> stage) {
+    return new ObjIntStream<>(keys, values, size, parallel, downstream -> stages.apply(stage.apply(downstream)));
+  }
+
+  /**
+   * Pushes every pair of every range of slots through the stages into a new terminal consumer for that range,
+   * and hands that consumer to {@code onRangeDone} once the range is done.
+   */
+  private <A extends ObjIntConsumer<K>> void run(Supplier<A> terminal, Consumer<A> onRangeDone) {
+    int chunks = (keys.length + CHUNK_SIZE - 1) / CHUNK_SIZE;
+    if (!parallel || chunks == 1) {
+      A consumer = terminal.get();
+      push(stages.apply(consumer), 0, keys.length);
+      onRangeDone.accept(consumer);
+      return;
+    }
+    IntStream.range(0, chunks).parallel().forEach(chunk -> {
+      A consumer = terminal.get();
+      push(stages.apply(consumer), chunk * CHUNK_SIZE, Math.min(keys.length, (chunk + 1) * CHUNK_SIZE));
+      onRangeDone.accept(consumer);
+    });
+  }
+
+  @SuppressWarnings("unchecked")
+  private void push(ObjIntConsumer<K> consumer, int from, int to) {
+    Object[] keys = this.keys;
+    int[] values = this.values;
+    for (int i = from; i < to; i++) {
+      Object key = keys[i];
+      if (key != null) {
+        consumer.accept((K) key, values[i]);
+      }
+    }
+  }
+
+  private static final class Total<K> implements ObjIntConsumer<K> {
+    long count;
+    long sum;
+
+    @Override
+    public void accept(K key, int value) {
+      count++;
+      sum += value;
+    }
+  }
+
+  private static final class Collect<K> implements ObjIntConsumer<K> {
+    final ObjIntMap<K> map = new ObjIntMap<>();
+
+    @Override
+    public void accept(K key, int value) {
+      map.put(key, value);
+    }
+  }
+}
@@ -0,0 +1,332 @@
+package tbp.land.java8.tutorial.auxiliar.streams;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import tbp.land.java8.tutorial.auxiliar.streams.ParallelismDecision.CostSource;
+import tbp.land.java8.tutorial.auxiliar.streams.ParallelismDecision.Reason;
+
+/**
+ * Picks {@code stream()} or {@code parallelStream()} for a pipeline, instead of leaving the choice to the caller as
+ * {@code J2StreamOperations.parallelStreamSpeed()} does: a parallel stream over the 8 strings of J2 is a lot slower
+ * than a sequential one, and a sequential stream over 10 million UUIDs a lot slower than a parallel one.
+ *
+ * <pre>
+ * AdaptiveParallelism adaptive = AdaptiveParallelism.builder().build();
+ * long sum = adaptive.run("sum of lengths", strings, s -&gt; s.mapToLong(String::length).sum());
+ * adaptive.decisions().forEach(System.out::println);
+ * </pre>
+ *
+ * The pipeline goes parallel when the source size times the cost of one element (in nanoseconds) adds up to enough work
+ * to pay for forking tasks ({@link Builder#minParallelMicros(long)}), and there is more than one core. The source is then
+ * never split into pieces of less than {@link Builder#targetTaskMicros(long)} of work (see {@link ThresholdSpliterator}).
+ *
+ * The cost of one element is measured by running the pipeline on the first few elements of the source (a sample of up to
+ * {@link Builder#sampleSize(int)} elements), and remembered for the next runs of the same pipeline: the same name, or the
+ * same lambda when there is no name. The first two runs sample it, sequential runs refine it, and it is sampled again
+ * every {@link Builder#resampleEvery(int)} runs. The estimate is the median of the last few measurements, so that a
+ * single slow run (a GC, a JIT compilation) does not send a pipeline parallel. When a parallel run turns out slower per
+ * element than the sequential ones, the pipeline stays sequential until the next sample.
+ *
+ * When the source is no bigger than the sample, every run is a sample, which is the sequential run, and its result is
+ * returned as is: such a pipeline never goes parallel. Like every stream pipeline, the pipeline has to be free of side
+ * effects, since a sample runs it one more time.
+ *
+ * Every decision is kept in a bounded log, {@link #decisions()}, and handed to {@link Builder#onDecision(Consumer)}.
+ */
+public final class AdaptiveParallelism {
+
+  /**
+   * Pipelines whose cost is remembered; when there are more, the costs are forgotten and sampled again.
+   */
+  private static final int MAX_REMEMBERED = 1024;
+
+  private final int cores;
+  private final int sampleSize;
+  private final long minParallelNanos;
+  private final long targetTaskNanos;
+  private final int resampleEvery;
+  private final int logSize;
+  private final Consumer<ParallelismDecision> listener;
+  private final ConcurrentMap<Object, Cost> costs = new ConcurrentHashMap<>();
+  private final ArrayDeque<ParallelismDecision> log = new ArrayDeque<>();
+
+  private AdaptiveParallelism(Builder builder) {
+    this.cores = builder.cores;
+    this.sampleSize = builder.sampleSize;
+    this.minParallelNanos = builder.minParallelNanos;
+    this.targetTaskNanos = builder.targetTaskNanos;
+    this.resampleEvery = builder.resampleEvery;
+    this.logSize = builder.logSize;
+    this.listener = builder.listener;
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * Runs the pipeline on a stream of the source, sequential or parallel; its cost is remembered by lambda.
+   */
+  public <T, R> R run(Collection<T> source, Function<? super Stream<T>, ? extends R> pipeline) {
+    return run(pipeline.getClass(), pipeline.getClass().getName(), source, pipeline);
+  }
+
+  /**
+   * Runs the pipeline on a stream of the source, sequential or parallel; its cost is remembered by name.
+   */
+  public <T, R> R run(String name, Collection<T> source, Function<? super Stream<T>, ? extends R> pipeline) {
+    return run(Objects.requireNonNull(name, "name"), name, source, pipeline);
+  }
+
+  private <T, R> R run(Object key, String name, Collection<T> source, Function<? super Stream<T>, ? extends R> pipeline) {
+    Objects.requireNonNull(source, "source");
+    Objects.requireNonNull(pipeline, "pipeline");
+    long start = System.nanoTime();
+    long size = source.size();
+    if (cores < 2) {
+      return sequential(name, source, pipeline, start, null, CostSource.NONE, Double.NaN, Reason.ONE_CORE);
+    }
+    if (size < 2) {
+      return sequential(name, source, pipeline, start, null, CostSource.NONE, Double.NaN, Reason.TOO_SMALL);
+    }
+
+    Cost cost = costs.get(key);
+    CostSource costSource;
+    if (size > sampleSize && cost != null && cost.samples > 1 && cost.runs++ < resampleEvery) {
+      costSource = CostSource.REMEMBERED;
+    } else {
+      int sampled = size <= sampleSize ? (int) size : Math.min(sampleSize, (int) Math.max(1, size / 8));
+      long sample0 = System.nanoTime();
+      R result = pipeline.apply(sampled == size ? source.stream() : source.stream().limit(sampled));
+      double nanosPerElement = (double) (System.nanoTime() - sample0) / sampled;
+      if (cost == null) {
+        cost = remember(key, nanosPerElement);
+      } else if (sampled == size) {
+        cost.refine(nanosPerElement);
+      } else {
+        cost.resampled(nanosPerElement);
+      }
+      costSource = CostSource.SAMPLED;
+      if (sampled == size) {
+        log(new ParallelismDecision(name, size, cores, costSource, nanosPerElement, false, 0, Reason.SAMPLED_WHOLE_SOURCE, //
+          minParallelNanos, System.nanoTime() - start));
+        return result;
+      }
+    }
+
+    double nanosPerElement = cost.nanosPerElement;
+    if (nanosPerElement * size < minParallelNanos) {
+      return sequential(name, source, pipeline, start, cost, costSource, nanosPerElement, Reason.LITTLE_WORK);
+    }
+    if (cost.parallelNanosPerElement >= nanosPerElement) {
+      return sequential(name, source, pipeline, start, cost, costSource, nanosPerElement, Reason.PARALLEL_SLOWER);
+    }
+
+    long splitThreshold = (long) Math.ceil(targetTaskNanos / Math.max(nanosPerElement, Double.MIN_NORMAL));
+    splitThreshold = Math.max(1, Math.min(splitThreshold, size / 2));
+    long run0 = System.nanoTime();
+    R result = pipeline.apply(StreamSupport.stream(ThresholdSpliterator.of(source.spliterator(), splitThreshold), true));
+    long end = System.nanoTime();
+    cost.parallelNanosPerElement = (double) (end - run0) / size;
+    log(new ParallelismDecision(name, size, cores, costSource, nanosPerElement, true, splitThreshold, Reason.ENOUGH_WORK, //
+      minParallelNanos, end - start));
+    return result;
+  }
+
+  private <T, R> R sequential(String name, Collection<T> source, Function<? super Stream<T>, ? extends R> pipeline, long start, Cost cost,
+    CostSource costSource, double nanosPerElement, Reason reason) {
+    long run0 = System.nanoTime();
+    R result = pipeline.apply(source.stream());
+    long end = System.nanoTime();
+    if (cost != null) {
+      cost.refine((double) (end - run0) / source.size());
+    }
+    log(new ParallelismDecision(name, source.size(), cores, costSource, nanosPerElement, false, 0, reason, minParallelNanos, end - start));
+    return result;
+  }
+
+  private Cost remember(Object key, double nanosPerElement) {
+    if (costs.size() >= MAX_REMEMBERED) {
+      costs.clear();
+    }
+    Cost cost = new Cost(nanosPerElement);
+    costs.put(key, cost);
+    return cost;
+  }
+
+  private void log(ParallelismDecision decision) {
+    synchronized (log) {
+      if (log.size() == logSize) {
+        log.removeFirst();
+      }
+      log.addLast(decision);
+    }
+    if (listener != null) {
+      listener.accept(decision);
+    }
+  }
+
+  /**
+   * The latest decisions, oldest first.
+   */
+  public List<ParallelismDecision> decisions() {
+    synchronized (log) {
+      return new ArrayList<>(log);
+    }
+  }
+
+  public void clearDecisions() {
+    synchronized (log) {
+      log.clear();
+    }
+  }
+
+  /**
+   * Nanoseconds per element of one pipeline, sequential: the median of the last {@link #WINDOW} measurements (samples and
+   * sequential runs). Runs of the same pipeline may race on the run count; a lost update only costs precision.
+   *
+   * The very first sample also measures class loading and lambda linkage, so it is only trusted for the run it was taken in:
+   * the next run samples again, and drops it.
+   */
+  private static final class Cost {
+    static final int WINDOW = 5;
+
+    private final double[] measured = new double[WINDOW];
+    private int filled;
+    private int next;
+    volatile double nanosPerElement;
+    /**
+     * Wall time per element of the last parallel run since the last sample, or NaN.
+     */
+    volatile double parallelNanosPerElement = Double.NaN;
+    int samples = 1;
+    int runs;
+
+    Cost(double nanosPerElement) {
+      add(nanosPerElement);
+    }
+
+    synchronized void resampled(double measured) {
+      if (samples == 1) {
+        filled = 0;
+        next = 0;
+      }
+      add(measured);
+      parallelNanosPerElement = Double.NaN;
+      samples++;
+      runs = 0;
+    }
+
+    synchronized void refine(double measured) {
+      add(measured);
+    }
+
+    private void add(double value) {
+      measured[next] = value;
+      next = (next + 1) % WINDOW;
+      filled = Math.min(filled + 1, WINDOW);
+      double[] sorted = Arrays.copyOf(measured, filled);
+      Arrays.sort(sorted);
+      nanosPerElement = sorted[sorted.length / 2];
+    }
+  }
+
+  public static final class Builder {
+    private int cores = Runtime.getRuntime().availableProcessors();
+    private int sampleSize = 32;
+    private long minParallelNanos = TimeUnit.MICROSECONDS.toNanos(100);
+    private long targetTaskNanos = TimeUnit.MICROSECONDS.toNanos(50);
+    private int resampleEvery = 100;
+    private int logSize = 256;
+    private Consumer<ParallelismDecision> listener;
+
+    private Builder() {
+    }
+
+    /**
+     * Defaults to the available processors.
+     */
+    public Builder cores(int cores) {
+      this.cores = positive(cores, "cores");
+      return this;
+    }
+
+    /**
+     * Elements the cost of one element is measured on; defaults to 32.
+     */
+    public Builder sampleSize(int sampleSize) {
+      this.sampleSize = positive(sampleSize, "sampleSize");
+      return this;
+    }
+
+    /**
+     * Less (estimated) work than that runs sequentially; defaults to 100 us.
+     */
+    public Builder minParallelMicros(long minParallelMicros) {
+      this.minParallelNanos = TimeUnit.MICROSECONDS.toNanos(positive(minParallelMicros, "minParallelMicros"));
+      return this;
+    }
+
+    /**
+     * The least (estimated) work of a piece of a parallel run; defaults to 50 us.
+     */
+    public Builder targetTaskMicros(long targetTaskMicros) {
+      this.targetTaskNanos = TimeUnit.MICROSECONDS.toNanos(positive(targetTaskMicros, "targetTaskMicros"));
+      return this;
+    }
+
+    /**
+     * Runs of a pipeline on its remembered cost before it is sampled again; defaults to 100.
+     */
+    public Builder resampleEvery(int resampleEvery) {
+      this.resampleEvery = positive(resampleEvery, "resampleEvery");
+      return this;
+    }
+
+    /**
+     * Decisions kept by {@link AdaptiveParallelism#decisions()}; defaults to 256.
+     */
+    public Builder logSize(int logSize) {
+      this.logSize = positive(logSize, "logSize");
+      return this;
+    }
+
+    /**
+     * Called after every run, on the thread which ran it.
+     */
+    public Builder onDecision(Consumer<ParallelismDecision> listener) {
+      this.listener = Objects.requireNonNull(listener, "listener");
+      return this;
+    }
+
+    public AdaptiveParallelism build() {
+      return new AdaptiveParallelism(this);
+    }
+
+    private static int positive(int value, String name) {
+      if (value < 1) {
+        throw new IllegalArgumentException(name + " must be positive: " + value);
+      }
+      return value;
+    }
+
+    private static long positive(long value, String name) {
+      if (value < 1) {
+        throw new IllegalArgumentException(name + " must be positive: " + value);
+      }
+      return value;
+    }
+  }
+}
@@ -0,0 +1,642 @@
+package tbp.land.java8.tutorial.auxiliar.streams;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.IntSummaryStatistics;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.Spliterator;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+import java.util.function.IntPredicate;
+import java.util.function.IntUnaryOperator;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collector;
+import java.util.stream.Stream;
+
+/**
+ * A pipeline of the same lambdas as a {@link Stream}, which runs a batch of elements through one stage at a time,
+ * instead of one element through all the stages:
+ *
+ * <pre>
+ * Predicate&lt;String&gt; divisibleBy2 = (it) -&gt; Integer.parseInt(it.substring(1, 2)) % 2 == 0;
+ * long count = Batched.of(strings) //
+ *   .filter(divisibleBy2.negate()) //
+ *   .count();
+ * long sumOfAges = Batched.of(persons) //
+ *   .filter(it -&gt; it.getName().startsWith("O")) //
+ *   .mapToInt(Person::getAge) //
+ *   .sum();
+ * </pre>
+ *
+ * The source fills an array of {@link #batchSize(int)} elements (1024 by default; 256 to 4096 keeps a batch, and what
+ * its stages write, in the L1/L2 caches). Then every stage is one loop over the batch:
+ * <ul>
+ *   <li>a filter does not move elements, it writes the positions of those which pass into a selection vector, which
+ *   the next stages loop over</li>
+ *   <li>a map writes its results over its inputs, in place; {@link #mapToInt} writes to an int column, so an
+ *   {@link OfInt} pipeline has no boxing at all</li>
+ *   <li>{@link #sorted} collects everything before it, sorts it, and is then the source of the stages after it</li>
+ * </ul>
+ * So there is one call per stage and batch between the stages, instead of one {@code Sink.accept} chain per element,
+ * each loop only calls its own lambda, and {@link #count()} after filters never reads the elements again.
+ *
+ * A Batched pipeline is immutable and can be run any number of times; every run gets its own batch. It runs on the
+ * calling thread: for parallel runs, split the source and use one pipeline per part.
+ */
+public final class Batched<T> {
+
+  public static final int DEFAULT_BATCH_SIZE = 1024;
+
+  private final Plan plan;
+
+  private Batched(Plan plan) {
+    this.plan = plan;
+  }
+
+  public static <T> Batched<T> of(List<? extends T> list) {
+    Objects.requireNonNull(list, "list");
+    return new Batched<>(new Plan(list instanceof RandomAccess ? new ListSource(list) : new SpliteratorSource(list::spliterator)));
+  }
+
+  @SafeVarargs
+  public static <T> Batched<T> of(T... values) {
+    Objects.requireNonNull(values, "values");
+    return new Batched<>(new Plan(new ArraySource(() -> values)));
+  }
+
+  /**
+   * The stream is consumed by the first run.
+   */
+  public static <T> Batched<T> of(Stream<? extends T> stream) {
+    Objects.requireNonNull(stream, "stream");
+    return new Batched<>(new Plan(new SpliteratorSource(stream::spliterator)));
+  }
+
+  public static OfInt ofInts(int... values) {
+    Objects.requireNonNull(values, "values");
+    return new OfInt(new Plan(new IntArraySource(values)));
+  }
+
+  /**
+   * @param batchSize the number of elements per batch, for the whole pipeline: the stages before a {@link #sorted}
+   *                  too, whether they were added before or after this
+   */
+  public Batched<T> batchSize(int batchSize) {
+    return new Batched<>(plan.withBatchSize(batchSize));
+  }
+
+  public Batched<T> filter(Predicate<? super T> predicate) {
+    return new Batched<>(plan.with(new Filter(Objects.requireNonNull(predicate, "predicate"))));
+  }
+
+  public <R> Batched<R> map(Function<? super T, ? extends R> mapper) {
+    return new Batched<>(plan.with(new ObjMap(Objects.requireNonNull(mapper, "mapper"))));
+  }
+
+  public OfInt mapToInt(ToIntFunction<? super T> mapper) {
+    return new OfInt(plan.with(new MapToInt(Objects.requireNonNull(mapper, "mapper"))));
+  }
+
+  /**
+   * Natural order; the elements must be Comparable.
+   */
+  @SuppressWarnings("unchecked")
+  public Batched<T> sorted() {
+    return sorted((Comparator<? super T>) Comparator.naturalOrder());
+  }
+
+  @SuppressWarnings("unchecked")
+  public Batched<T> sorted(Comparator<? super T> comparator) {
+    Objects.requireNonNull(comparator, "comparator");
+    return new Batched<>(new Plan(new SortedSource(plan, (Comparator<Object>) comparator)).withBatchSize(plan.batchSize));
+  }
+
+  /**
+   * The sizes of the selections; with only filters before it, no element is read after the last filter.
+   */
+  public long count() {
+    long[] count = { 0 };
+    plan.run(batch -> count[0] += batch.size);
+    return count[0];
+  }
+
+  @SuppressWarnings("unchecked")
+  public void forEach(Consumer<? super T> action) {
+    plan.run(batch -> {
+      Object[] objects = batch.objects;
+      if (batch.dense) {
+        for (int i = 0; i < batch.size; i++) {
+          action.accept((T) objects[i]);
+        }
+      } else {
+        int[] selection = batch.selection;
+        for (int k = 0; k < batch.size; k++) {
+          action.accept((T) objects[selection[k]]);
+        }
+      }
+    });
+  }
+
+  public List<T> toList() {
+    List<T> list = new ArrayList<>();
+    forEach(list::add);
+    return list;
+  }
+
+  /**
+   * Runs the collector sequentially: its combiner is not used.
+   */
+  public <R, A> R collect(Collector<? super T, A, R> collector) {
+    A container = collector.supplier().get();
+    BiConsumer<A, ? super T> accumulator = collector.accumulator();
+    forEach(it -> accumulator.accept(container, it));
+    return collector.finisher().apply(container);
+  }
+
+  /**
+   * The int version: the pipeline's elements are in an {@code int[]} column.
+   */
+  public static final class OfInt {
+    private final Plan plan;
+
+    private OfInt(Plan plan) {
+      this.plan = plan;
+    }
+
+    public OfInt batchSize(int batchSize) {
+      return new OfInt(plan.withBatchSize(batchSize));
+    }
+
+    public OfInt filter(IntPredicate predicate) {
+      return new OfInt(plan.with(new IntFilter(Objects.requireNonNull(predicate, "predicate"))));
+    }
+
+    public OfInt map(IntUnaryOperator mapper) {
+      return new OfInt(plan.with(new IntMap(Objects.requireNonNull(mapper, "mapper"))));
+    }
+
+    public <R> Batched<R> mapToObj(IntFunction<? extends R> mapper) {
+      return new Batched<>(plan.with(new MapToObj(Objects.requireNonNull(mapper, "mapper"))));
+    }
+
+    public long count() {
+      long[] count = { 0 };
+      plan.run(batch -> count[0] += batch.size);
+      return count[0];
+    }
+
+    /**
+     * A long, unlike {@code IntStream.sum()}, so it does not silently overflow.
+     */
+    public long sum() {
+      long[] sum = { 0 };
+      plan.run(batch -> {
+        int[] ints = batch.ints;
+        long batchSum = 0;
+        if (batch.dense) {
+          for (int i = 0; i < batch.size; i++) {
+            batchSum += ints[i];
+          }
+        } else {
+          int[] selection = batch.selection;
+          for (int k = 0; k < batch.size; k++) {
+            batchSum += ints[selection[k]];
+          }
+        }
+        sum[0] += batchSum;
+      });
+      return sum[0];
+    }
+
+    public void forEach(IntConsumer action) {
+      plan.run(batch -> {
+        int[] ints = batch.ints;
+        if (batch.dense) {
+          for (int i = 0; i < batch.size; i++) {
+            action.accept(ints[i]);
+          }
+        } else {
+          int[] selection = batch.selection;
+          for (int k = 0; k < batch.size; k++) {
+            action.accept(ints[selection[k]]);
+          }
+        }
+      });
+    }
+
+    public IntSummaryStatistics summaryStatistics() {
+      IntSummaryStatistics statistics = new IntSummaryStatistics();
+      forEach(statistics);
+      return statistics;
+    }
+
+    public int[] toArray() {
+      int[][] all = { new int[16] };
+      int[] size = { 0 };
+      forEach(it -> {
+        if (size[0] == all[0].length) {
+          all[0] = Arrays.copyOf(all[0], 2 * size[0]);
+        }
+        all[0][size[0]++] = it;
+      });
+      return Arrays.copyOf(all[0], size[0]);
+    }
+  }
+
+  /**
+   * One batch of a run: a column of objects and a column of ints (a stage reads one and writes one), and which of
+   * their positions are still selected.
+   */
+  private static final class Batch {
+    final Object[] objects;
+    final int[] ints;
+    final int[] selection;
+    /**
+     * Positions {@code 0..size-1} are selected; else {@code selection[0..size-1]} are.
+     */
+    boolean dense;
+    int size;
+
+    Batch(int batchSize) {
+      objects = new Object[batchSize];
+      ints = new int[batchSize];
+      selection = new int[batchSize];
+    }
+
+    /**
+     * For the source: the first {@code size} positions are filled.
+     */
+    void filled(int size) {
+      this.size = size;
+      this.dense = true;
+    }
+  }
+
+  private interface BatchConsumer {
+    void accept(Batch batch);
+  }
+
+  /**
+   * The source, the stages, and the batch size: everything but the terminal operation.
+   */
+  private static final class Plan {
+    final Source source;
+    final Stage[] stages;
+    final int batchSize;
+
+    Plan(Source source) {
+      this(source, new Stage[0], DEFAULT_BATCH_SIZE);
+    }
+
+    private Plan(Source source, Stage[] stages, int batchSize) {
+      this.source = source;
+      this.stages = stages;
+      this.batchSize = batchSize;
+    }
+
+    Plan with(Stage stage) {
+      Stage[] stages = Arrays.copyOf(this.stages, this.stages.length + 1);
+      stages[this.stages.length] = stage;
+      return new Plan(source, stages, batchSize);
+    }
+
+    Plan withBatchSize(int batchSize) {
+      if (batchSize < 1) {
+        throw new IllegalArgumentException("batchSize: " + batchSize);
+      }
+      return new Plan(source.withBatchSize(batchSize), stages, batchSize);
+    }
+
+    void run(BatchConsumer terminal) {
+      Stage[] stages = this.stages;
+      source.fill(new Batch(batchSize), batch -> {
+        for (int i = 0; i < stages.length && batch.size > 0; i++) {
+          stages[i].apply(batch);
+        }
+        if (batch.size > 0) {
+          terminal.accept(batch);
+        }
+      });
+    }
+
+    Object[] toArray() {
+      List<Object> all = new ArrayList<>();
+      run(batch -> {
+        if (batch.dense) {
+          all.addAll(Arrays.asList(batch.objects).subList(0, batch.size));
+        } else {
+          for (int k = 0; k < batch.size; k++) {
+            all.add(batch.objects[batch.selection[k]]);
+          }
+        }
+      });
+      return all.toArray();
+    }
+  }
+
+  private interface Source {
+    /**
+     * Fills the batch again and again, handing it to the consumer every time, until there is nothing left.
+     */
+    void fill(Batch batch, BatchConsumer consumer);
+
+    /**
+     * The same source, for a pipeline whose batch size changed; only matters to a source which runs a pipeline itself.
+     */
+    default Source withBatchSize(int batchSize) {
+      return this;
+    }
+  }
+
+  private static final class ListSource implements Source {
+    private final List<?> list;
+
+    ListSource(List<?> list) {
+      this.list = list;
+    }
+
+    @Override
+    public void fill(Batch batch, BatchConsumer consumer) {
+      int batchSize = batch.objects.length;
+      for (int from = 0, size = list.size(); from < size; from += batchSize) {
+        int n = Math.min(batchSize, size - from);
+        for (int i = 0; i < n; i++) {
+          batch.objects[i] = list.get(from + i);
+        }
+        batch.filled(n);
+        consumer.accept(batch);
+      }
+    }
+  }
+
+  private static final class ArraySource implements Source {
+    private final Supplier<Object[]> values;
+
+    ArraySource(Supplier<Object[]> values) {
+      this.values = values;
+    }
+
+    @Override
+    public void fill(Batch batch, BatchConsumer consumer) {
+      fill(values.get(), batch, consumer);
+    }
+
+    static void fill(Object[] values, Batch batch, BatchConsumer consumer) {
+      int batchSize = batch.objects.length;
+      for (int from = 0; from < values.length; from += batchSize) {
+        int n = Math.min(batchSize, values.length - from);
+        System.arraycopy(values, from, batch.objects, 0, n);
+        batch.filled(n);
+        consumer.accept(batch);
+      }
+    }
+  }
+
+  /**
+   * The barrier of {@link #sorted}: runs the pipeline before it to the end, sorts what came out, and hands that on.
+   */
+  private static final class SortedSource implements Source {
+    private final Plan upstream;
+    private final Comparator<Object> comparator;
+
+    SortedSource(Plan upstream, Comparator<Object> comparator) {
+      this.upstream = upstream;
+      this.comparator = comparator;
+    }
+
+    @Override
+    public void fill(Batch batch, BatchConsumer consumer) {
+      Object[] all = upstream.toArray();
+      Arrays.sort(all, comparator);
+      ArraySource.fill(all, batch, consumer);
+    }
+
+    @Override
+    public Source withBatchSize(int batchSize) {
+      return new SortedSource(upstream.withBatchSize(batchSize), comparator);
+    }
+  }
+
+  private static final class IntArraySource implements Source {
+    private final int[] values;
+
+    IntArraySource(int[] values) {
+      this.values = values;
+    }
+
+    @Override
+    public void fill(Batch batch, BatchConsumer consumer) {
+      int batchSize = batch.ints.length;
+      for (int from = 0; from < values.length; from += batchSize) {
+        int n = Math.min(batchSize, values.length - from);
+        System.arraycopy(values, from, batch.ints, 0, n);
+        batch.filled(n);
+        consumer.accept(batch);
+      }
+    }
+  }
+
+  private static final class SpliteratorSource implements Source {
+    private final Supplier<? extends Spliterator<?>> spliterator;
+
+    SpliteratorSource(Supplier<? extends Spliterator<?>> spliterator) {
+      this.spliterator = spliterator;
+    }
+
+    @Override
+    public void fill(Batch batch, BatchConsumer consumer) {
+      int[] n = { 0 };
+      spliterator.get().forEachRemaining(it -> {
+        batch.objects[n[0]++] = it;
+        if (n[0] == batch.objects.length) {
+          batch.filled(n[0]);
+          consumer.accept(batch);
+          n[0] = 0;
+        }
+      });
+      if (n[0] > 0) {
+        batch.filled(n[0]);
+        consumer.accept(batch);
+      }
+    }
+  }
+
+  /**
+   * One loop over the selected positions of a batch.
+   */
+  private abstract static class Stage {
+    abstract void apply(Batch batch);
+  }
+
+  @SuppressWarnings({ "rawtypes", "unchecked" })
+  private static final class Filter extends Stage {
+    private final Predicate predicate;
+
+    Filter(Predicate<?> predicate) {
+      this.predicate = predicate;
+    }
+
+    @Override
+    void apply(Batch batch) {
+      Object[] objects = batch.objects;
+      int[] selection = batch.selection;
+      int selected = 0;
+      if (batch.dense) {
+        for (int i = 0; i < batch.size; i++) {
+          if (predicate.test(objects[i])) {
+            selection[selected++] = i;
+          }
+        }
+      } else {
+        for (int k = 0; k < batch.size; k++) {
+          int i = selection[k];
+          if (predicate.test(objects[i])) {
+            selection[selected++] = i;
+          }
+        }
+      }
+      // everything passed: the batch stays dense
+      batch.dense &= selected == batch.size;
+      batch.size = selected;
+    }
+  }
+
+  private static final class IntFilter extends Stage {
+    private final IntPredicate predicate;
+
+    IntFilter(IntPredicate predicate) {
+      this.predicate = predicate;
+    }
+
+    @Override
+    void apply(Batch batch) {
+      int[] ints = batch.ints;
+      int[] selection = batch.selection;
+      int selected = 0;
+      if (batch.dense) {
+        for (int i = 0; i < batch.size; i++) {
+          if (predicate.test(ints[i])) {
+            selection[selected++] = i;
+          }
+        }
+      } else {
+        for (int k = 0; k < batch.size; k++) {
+          int i = selection[k];
+          if (predicate.test(ints[i])) {
+            selection[selected++] = i;
+          }
+        }
+      }
+      batch.dense &= selected == batch.size;
+      batch.size = selected;
+    }
+  }
+
+  @SuppressWarnings({ "rawtypes", "unchecked" })
+  private static final class ObjMap extends Stage {
+    private final Function mapper;
+
+    ObjMap(Function<?, ?> mapper) {
+      this.mapper = mapper;
+    }
+
+    @Override
+    void apply(Batch batch) {
+      Object[] objects = batch.objects;
+      if (batch.dense) {
+        for (int i = 0; i < batch.size; i++) {
+          objects[i] = mapper.apply(objects[i]);
+        }
+      } else {
+        int[] selection = batch.selection;
+        for (int k = 0; k < batch.size; k++) {
+          int i = selection[k];
+          objects[i] = mapper.apply(objects[i]);
+        }
+      }
+    }
+  }
+
+  private static final class IntMap extends Stage {
+    private final IntUnaryOperator mapper;
+
+    IntMap(IntUnaryOperator mapper) {
+      this.mapper = mapper;
+    }
+
+    @Override
+    void apply(Batch batch) {
+      int[] ints = batch.ints;
+      if (batch.dense) {
+        for (int i = 0; i < batch.size; i++) {
+          ints[i] = mapper.applyAsInt(ints[i]);
+        }
+      } else {
+        int[] selection = batch.selection;
+        for (int k = 0; k < batch.size; k++) {
+          int i = selection[k];
+          ints[i] = mapper.applyAsInt(ints[i]);
+        }
+      }
+    }
+  }
+
+  @SuppressWarnings({ "rawtypes", "unchecked" })
+  private static final class MapToInt extends Stage {
+    private final ToIntFunction mapper;
+
+    MapToInt(ToIntFunction<?> mapper) {
+      this.mapper = mapper;
+    }
+
+    @Override
+    void apply(Batch batch) {
+      Object[] objects = batch.objects;
+      int[] ints = batch.ints;
+      if (batch.dense) {
+        for (int i = 0; i < batch.size; i++) {
+          ints[i] = mapper.applyAsInt(objects[i]);
+        }
+      } else {
+        int[] selection = batch.selection;
+        for (int k = 0; k < batch.size; k++) {
+          int i = selection[k];
+          ints[i] = mapper.applyAsInt(objects[i]);
+        }
+      }
+    }
+  }
+
+  private static final class MapToObj extends Stage {
+    private final IntFunction<?> mapper;
+
+    MapToObj(IntFunction<?> mapper) {
+      this.mapper = mapper;
+    }
+
+    @Override
+    void apply(Batch batch) {
+      Object[] objects = batch.objects;
+      int[] ints = batch.ints;
+      if (batch.dense) {
+        for (int i = 0; i < batch.size; i++) {
+          objects[i] = mapper.apply(ints[i]);
+        }
+      } else {
+        int[] selection = batch.selection;
+        for (int k = 0; k < batch.size; k++) {
+          int i = selection[k];
+          objects[i] = mapper.apply(ints[i]);
+        }
+      }
+    }
+  }
+}
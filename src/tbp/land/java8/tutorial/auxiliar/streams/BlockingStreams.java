@@ -0,0 +1,154 @@
+package tbp.land.java8.tutorial.auxiliar.streams;
+
+import java.util.ArrayDeque;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import tbp.land.java8.tutorial.auxiliar.concurrent.VirtualThreads;
+
+/**
+ * Stream stages for functions which block, e.g. a remote call per element.
+ *
+ * A plain {@code map} calls them one after the other; a parallel {@code map} only overlaps as many of them
+ * as the fork/join pool has threads, and blocks those threads meanwhile.
+ */
+public final class BlockingStreams {
+
+  private BlockingStreams() {
+  }
+
+  /**
+   * {@code source.map(function)}, with up to {@code maxConcurrency} calls of the function running at the same time
+   * on virtual threads (pooled platform threads before java 21), in the same order as the source.
+   *
+   * <pre>
+   * BlockingStreams.mapBlocking(urls.stream(), it -&gt; fetch(it), 100) //
+   *   .forEach(System.out::println);
+   * </pre>
+   *
+   * The calls are started ahead of the consumer: while the first result is awaited, the next
+   * {@code maxConcurrency - 1} elements are already being mapped. If a call fails, the stream throws its exception
+   * when that element is reached, and the calls started for later elements are abandoned.
+   *
+   * The calls in flight are cancelled, and the executor shut down, when the stream is read to its end, fails or is
+   * closed. A terminal operation which may stop early (findFirst, anyMatch, limit, ...) does none of these, so such a
+   * stream has to be closed, like {@code Files.lines}:
+   *
+   * <pre>
+   * try (Stream&lt;String&gt; pages = BlockingStreams.mapBlocking(urls.stream(), it -&gt; fetch(it), 100)) {
+   *   return pages.filter(it -&gt; it.contains("java")).findFirst();
+   * }
+   * </pre>
+   */
+  public static <T, R> Stream<R> mapBlocking(Stream<T> source, Function<? super T, ? extends R> function, int maxConcurrency) {
+    return mapBlocking(source, function, maxConcurrency, VirtualThreads.newThreadPerTaskExecutor("map-blocking"), true);
+  }
+
+  /**
+   * Runs the calls on the given executor, which is left running afterwards.
+   */
+  public static <T, R> Stream<R> mapBlocking(Stream<T> source, Function<? super T, ? extends R> function, int maxConcurrency, //
+    ExecutorService executor) {
+    return mapBlocking(source, function, maxConcurrency, Objects.requireNonNull(executor, "executor"), false);
+  }
+
+  private static <T, R> Stream<R> mapBlocking(Stream<T> source, Function<? super T, ? extends R> function, int maxConcurrency, //
+    ExecutorService executor, boolean ownsExecutor) {
+    Objects.requireNonNull(function, "function");
+    if (maxConcurrency < 1) {
+      throw new IllegalArgumentException("maxConcurrency must be positive: " + maxConcurrency);
+    }
+    Window<T, R> window = new Window<>(source.spliterator(), function, maxConcurrency, executor, ownsExecutor);
+    return StreamSupport.stream(window, false) //
+      .onClose(window::close) //
+      .onClose(source::close);
+  }
+
+  /**
+   * Keeps up to maxConcurrency calls in flight, and hands their results on in the order they were started.
+   */
+  private static final class Window<T, R> implements Spliterator<R> {
+    private final Spliterator<T> upstream;
+    private final Function<? super T, ? extends R> function;
+    private final int maxConcurrency;
+    private final ExecutorService executor;
+    private final boolean ownsExecutor;
+    private final ArrayDeque<CompletableFuture<R>> inFlight = new ArrayDeque<>();
+    private final Consumer<T> start;
+    private boolean exhausted;
+
+    Window(Spliterator<T> upstream, Function<? super T, ? extends R> function, int maxConcurrency, ExecutorService executor,
+      boolean ownsExecutor) {
+      this.upstream = upstream;
+      this.function = function;
+      this.maxConcurrency = maxConcurrency;
+      this.executor = executor;
+      this.ownsExecutor = ownsExecutor;
+      this.start = it -> inFlight.add(CompletableFuture.supplyAsync(() -> this.function.apply(it), this.executor));
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super R> action) {
+      while (!exhausted && inFlight.size() < maxConcurrency) {
+        if (!upstream.tryAdvance(start)) {
+          exhausted = true;
+        }
+      }
+      CompletableFuture<R> next = inFlight.poll();
+      if (next == null) {
+        close();
+        return false;
+      }
+      R result;
+      try {
+        result = next.join();
+      } catch (CompletionException e) {
+        close();
+        Throwable cause = e.getCause();
+        if (cause instanceof RuntimeException) {
+          throw (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+          throw (Error) cause;
+        }
+        throw e;
+      }
+      action.accept(result);
+      return true;
+    }
+
+    @Override
+    public Spliterator<R> trySplit() {
+      return null;
+    }
+
+    @Override
+    public long estimateSize() {
+      long upstreamSize = upstream.estimateSize();
+      return upstreamSize == Long.MAX_VALUE ? Long.MAX_VALUE : upstreamSize + inFlight.size();
+    }
+
+    @Override
+    public int characteristics() {
+      return upstream.characteristics() & (ORDERED | SIZED);
+    }
+
+    void close() {
+      exhausted = true;
+      for (CompletableFuture<R> future : inFlight) {
+        future.cancel(false);
+      }
+      inFlight.clear();
+      if (ownsExecutor) {
+        executor.shutdown();
+      }
+    }
+  }
+}
@@ -0,0 +1,358 @@
+package tbp.land.java8.tutorial.auxiliar.streams;
+
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A stream source which can be used more than once, without redoing the upstream work every time,
+ * as the {@code Supplier<Stream<T>>} of {@code J3StreamOperationsAdvanced.CANNOTReuseStreams()} does.
+ *
+ * <pre>
+ * CachedStream&lt;String&gt; cached = CachedStream.of(() -&gt; Stream.of("d2", "a2", "b1", "b3", "c").filter(s -&gt; s.startsWith("a")));
+ * cached.stream().anyMatch(s -&gt; true);   // filters "d2" and "a2"
+ * cached.stream().noneMatch(s -&gt; true);  // replays "a2", the filter is not called again
+ * </pre>
+ *
+ * The upstream stream is only created by the first traversal, and is only pulled as far as some traversal needs:
+ * everything it delivers is appended to a buffer made of fixed size segments (so growing it never copies the elements),
+ * and every later traversal replays the buffer first, then continues pulling from where the upstream stopped.
+ * Several traversals may run at the same time, sequential or parallel; only pulling from the upstream is synchronized.
+ * Parallel traversals split the buffered part by index, like an array, and the rest in growing batches.
+ *
+ * At most {@code maxElements} elements are kept. When the upstream has more than that, the buffer is evicted,
+ * and from then on every traversal gets a fresh upstream stream from the supplier, as if there was no cache,
+ * until {@link #invalidate()}. Traversals which were already running finish on their own copy of the upstream.
+ *
+ * {@link #invalidate()} is the hook for when the data behind the supplier changes: it closes the upstream stream
+ * and drops the buffer, and the next traversal starts over. Traversals which already started still replay the old
+ * elements which were buffered; one which needs more than that throws a ConcurrentModificationException, rather than
+ * going on with the new data and mixing the two.
+ *
+ * As with the supplier, the upstream has to deliver the same elements, in the same order, every time it is created.
+ */
+public final class CachedStream<T> {
+
+  /**
+   * Number of elements in a segment of the buffer.
+   */
+  private static final int SEGMENT_SHIFT = 10;
+  private static final int SEGMENT_SIZE = 1 << SEGMENT_SHIFT;
+  private static final int SEGMENT_MASK = SEGMENT_SIZE - 1;
+
+  /**
+   * Number of elements a traversal pulls from the upstream at once; short-circuiting traversals pull one at a time.
+   */
+  private static final int BATCH_SIZE = 1 << 10;
+  private static final int MAX_BATCH_SIZE = 1 << 25;
+
+  private final Supplier<? extends Stream<? extends T>> supplier;
+  private final int maxElements;
+  private final AtomicReference<Generation<T>> current = new AtomicReference<>();
+  private volatile boolean evicted;
+
+  private CachedStream(Supplier<? extends Stream<? extends T>> supplier, int maxElements) {
+    this.supplier = supplier;
+    this.maxElements = maxElements;
+  }
+
+  public static <T> CachedStream<T> of(Supplier<? extends Stream<? extends T>> supplier) {
+    return of(supplier, Integer.MAX_VALUE - 8);
+  }
+
+  public static <T> CachedStream<T> of(Supplier<? extends Stream<? extends T>> supplier, int maxElements) {
+    Objects.requireNonNull(supplier, "supplier");
+    if (maxElements < 0) {
+      throw new IllegalArgumentException("maxElements must not be negative: " + maxElements);
+    }
+    return new CachedStream<>(supplier, maxElements);
+  }
+
+  public Stream<T> stream() {
+    return stream(false);
+  }
+
+  public Stream<T> parallelStream() {
+    return stream(true);
+  }
+
+  /**
+   * Drops the buffer and closes the upstream stream; the next traversal starts over with a fresh one from the supplier.
+   */
+  public void invalidate() {
+    evicted = false;
+    Generation<T> generation = current.getAndSet(null);
+    if (generation != null) {
+      generation.invalidate();
+    }
+  }
+
+  /**
+   * Number of elements currently buffered.
+   */
+  public int getCachedCount() {
+    Generation<T> generation = current.get();
+    return generation == null ? 0 : generation.count;
+  }
+
+  /**
+   * Whether the upstream has been read until its end, so traversals no longer touch it.
+   */
+  public boolean isComplete() {
+    Generation<T> generation = current.get();
+    return generation != null && generation.complete;
+  }
+
+  /**
+   * Whether the upstream turned out to be bigger than {@code maxElements}, so nothing is cached until {@link #invalidate()}.
+   */
+  public boolean isEvicted() {
+    return evicted;
+  }
+
+  @SuppressWarnings("unchecked")
+  private Stream<T> stream(boolean parallel) {
+    if (evicted) {
+      Stream<T> stream = (Stream<T>) supplier.get();
+      return parallel ? stream.parallel() : stream.sequential();
+    }
+    Generation<T> generation = current.get();
+    while (generation == null) {
+      current.compareAndSet(null, new Generation<>(this));
+      generation = current.get();
+    }
+    Replay<T> replay = new Replay<>(generation, 0, -1);
+    return StreamSupport.stream(replay, parallel).onClose(replay::close);
+  }
+
+  private void evict(Generation<T> generation) {
+    if (current.compareAndSet(generation, null)) {
+      evicted = true;
+    }
+  }
+
+  /**
+   * What one upstream stream delivered, until it is exhausted, evicted or invalidated.
+   *
+   * Elements are only appended, under the lock of the generation; {@code count} is written after the element,
+   * so a traversal which reads {@code count} first can read every element below it without locking.
+   */
+  private static final class Generation<T> {
+    private final CachedStream<T> owner;
+    private Stream<? extends T> upstream;
+    private Spliterator<? extends T> source;
+    private Object[][] segments = new Object[1][];
+    volatile int count;
+    volatile boolean complete;
+    private volatile boolean detached;
+    /**
+     * Detached by {@link CachedStream#invalidate()}, i.e. a fresh upstream may deliver other elements.
+     */
+    volatile boolean invalidated;
+
+    Generation(CachedStream<T> owner) {
+      this.owner = owner;
+    }
+
+    @SuppressWarnings("unchecked")
+    T get(int index) {
+      return (T) segments[index >>> SEGMENT_SHIFT][index & SEGMENT_MASK];
+    }
+
+    /**
+     * Pulls from the upstream until {@code batch} elements past {@code index} are buffered, or it ends.
+     *
+     * @return whether the element at {@code index} is available; if not, the traversal is over when the generation is
+     * complete, or has to continue on a fresh upstream when it is detached
+     */
+    synchronized boolean pull(int index, int batch) {
+      if (source == null && !complete && !detached) {
+        upstream = owner.supplier.get();
+        source = upstream.sequential().spliterator();
+      }
+      long target = Math.min((long) index + batch, Integer.MAX_VALUE);
+      while (count < target && !complete && !detached) {
+        if (!source.tryAdvance(this::append)) {
+          complete = true;
+          closeUpstream();
+        }
+      }
+      if (detached) {
+        closeUpstream();
+      }
+      return index < count;
+    }
+
+    private void append(T element) {
+      int index = count;
+      if (index >= owner.maxElements) {
+        detached = true;
+        owner.evict(this);
+        return;
+      }
+      int segment = index >>> SEGMENT_SHIFT;
+      if (segment == segments.length) {
+        segments = Arrays.copyOf(segments, segments.length * 2);
+      }
+      if (segments[segment] == null) {
+        segments[segment] = new Object[SEGMENT_SIZE];
+      }
+      segments[segment][index & SEGMENT_MASK] = element;
+      count = index + 1;
+    }
+
+    synchronized void invalidate() {
+      invalidated = true;
+      detached = true;
+      closeUpstream();
+    }
+
+    private void closeUpstream() {
+      source = null;
+      if (upstream != null) {
+        Stream<? extends T> stream = upstream;
+        upstream = null;
+        stream.close();
+      }
+    }
+  }
+
+  /**
+   * Replays [position, end) of a generation, or everything from position on when end is -1.
+   *
+   * Only the unbounded one pulls from the upstream; the ones it splits off cover elements which are already buffered.
+   */
+  private static final class Replay<T> implements Spliterator<T> {
+    private final Generation<T> generation;
+    private int position;
+    private int end;
+    private int batch = BATCH_SIZE;
+    /**
+     * A fresh upstream of its own, once the generation got detached before this traversal was done.
+     */
+    private Stream<? extends T> upstream;
+    private Spliterator<? extends T> fallback;
+
+    Replay(Generation<T> generation, int position, int end) {
+      this.generation = generation;
+      this.position = position;
+      this.end = end;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+      if (fallback != null) {
+        return fallback.tryAdvance(action);
+      }
+      if (end >= 0) {
+        if (position >= end) {
+          return false;
+        }
+        action.accept(generation.get(position++));
+        return true;
+      }
+      if (position < generation.count || generation.pull(position, 1)) {
+        action.accept(generation.get(position++));
+        return true;
+      }
+      return !generation.complete && fallBack() && fallback.tryAdvance(action);
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super T> action) {
+      if (fallback != null) {
+        fallback.forEachRemaining(action);
+        return;
+      }
+      if (end >= 0) {
+        for (int i = position; i < end; i++) {
+          action.accept(generation.get(i));
+        }
+        position = end;
+        return;
+      }
+      while (true) {
+        int count = generation.count;
+        for (; position < count; position++) {
+          action.accept(generation.get(position));
+        }
+        if (!generation.pull(position, BATCH_SIZE)) {
+          break;
+        }
+      }
+      if (!generation.complete && fallBack()) {
+        fallback.forEachRemaining(action);
+      }
+    }
+
+    @Override
+    public Spliterator<T> trySplit() {
+      if (fallback != null) {
+        return null;
+      }
+      if (end < 0) {
+        if (generation.complete) {
+          end = generation.count;
+        } else {
+          // hand the buffered elements over, pulling a batch first if there are none
+          if (position >= generation.count && !generation.pull(position, batch)) {
+            return null;
+          }
+          batch = Math.min(batch + BATCH_SIZE, MAX_BATCH_SIZE);
+          int from = position;
+          position = generation.count;
+          return new Replay<>(generation, from, position);
+        }
+      }
+      int middle = (position + end) >>> 1;
+      if (middle <= position) {
+        return null;
+      }
+      Replay<T> prefix = new Replay<>(generation, position, middle);
+      position = middle;
+      return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+      if (fallback != null) {
+        return fallback.estimateSize();
+      }
+      if (end >= 0) {
+        return end - position;
+      }
+      return generation.complete ? generation.count - position : Long.MAX_VALUE;
+    }
+
+    @Override
+    public int characteristics() {
+      return end >= 0 ? ORDERED | SIZED | SUBSIZED : ORDERED;
+    }
+
+    /**
+     * Continues on a fresh upstream, skipping what this traversal has already seen: the same elements, unless the
+     * generation was invalidated.
+     */
+    @SuppressWarnings("unchecked")
+    private boolean fallBack() {
+      if (generation.invalidated) {
+        throw new ConcurrentModificationException("invalidated after " + position + " elements of this traversal");
+      }
+      upstream = generation.owner.supplier.get();
+      fallback = ((Stream<T>) upstream).sequential().skip(position).spliterator();
+      return true;
+    }
+
+    void close() {
+      if (upstream != null) {
+        upstream.close();
+      }
+    }
+  }
+}
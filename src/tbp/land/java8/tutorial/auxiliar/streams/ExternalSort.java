@@ -0,0 +1,255 @@
+package tbp.land.java8.tutorial.auxiliar.streams;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * {@code sorted()} for streams which do not fit in memory.
+ *
+ * The elements are gathered in runs of at most {@code memoryBudget} bytes (as estimated by
+ * {@link RecordCodec#heapSize}). Each run is sorted with {@link Arrays#parallelSort(Object[], Comparator)}
+ * (fork/join) and spilled to a memory-mapped temporary file, in the binary form given by the {@link RecordCodec}.
+ * The result is a lazy k-way merge of these files, so only one element per run is on the heap at any time.
+ * If everything fits in a single run, nothing is written to disk at all.
+ *
+ * Like {@code sorted()}, the sort is stable and nothing happens until the terminal operation.
+ * The temporary files are deleted when the merge is done or when the returned stream is closed.
+ *
+ * e.g. {@code sortedExternal(values.parallelStream(), Comparator.naturalOrder(), 64 << 20, RecordCodecs.uuidStrings())}
+ */
+public final class ExternalSort {
+
+  /**
+   * A mapped file can not be bigger than this, so a run is also cut when its binary form reaches it.
+   */
+  private static final long MAX_RUN_BYTES = Integer.MAX_VALUE - 8;
+
+  private static final int CHARACTERISTICS = Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED;
+
+  private ExternalSort() {
+  }
+
+  public static <T> Stream<T> sortedExternal(Stream<T> source, Comparator<? super T> comparator, long memoryBudget, RecordCodec<T> codec) {
+    return sortedExternal(source, comparator, memoryBudget, codec, Paths.get(System.getProperty("java.io.tmpdir")));
+  }
+
+  /**
+   * @param tempDirectory where the runs are spilled
+   */
+  public static <T> Stream<T> sortedExternal(Stream<T> source, Comparator<? super T> comparator, long memoryBudget, RecordCodec<T> codec, Path tempDirectory) {
+    Objects.requireNonNull(source, "source");
+    Objects.requireNonNull(comparator, "comparator");
+    Objects.requireNonNull(codec, "codec");
+    Objects.requireNonNull(tempDirectory, "tempDirectory");
+    if (memoryBudget <= 0) {
+      throw new IllegalArgumentException("memoryBudget must be positive: " + memoryBudget);
+    }
+
+    Runs<T> runs = new Runs<>(comparator, memoryBudget, codec, tempDirectory);
+    return StreamSupport.stream( //
+      () -> runs.sort(source.spliterator()) //
+      , CHARACTERISTICS //
+      , source.isParallel()) //
+      .onClose(runs::delete) //
+      .onClose(source::close);
+  }
+
+  /**
+   * One sorted run, spilled to a file which is kept mapped until the merge is done with it.
+   */
+  private static final class Run {
+    final Path file;
+    final MappedByteBuffer buffer;
+    final int count;
+
+    Run(Path file, MappedByteBuffer buffer, int count) {
+      this.file = file;
+      this.buffer = buffer;
+      this.count = count;
+    }
+  }
+
+  private static final class Runs<T> {
+    private final Comparator<? super T> comparator;
+    private final long memoryBudget;
+    private final RecordCodec<T> codec;
+    private final Path tempDirectory;
+    private final List<Run> spilled = new ArrayList<>();
+
+    private List<T> current = new ArrayList<>();
+    private long currentHeapSize;
+    private long currentEncodedSize;
+    private long count;
+
+    Runs(Comparator<? super T> comparator, long memoryBudget, RecordCodec<T> codec, Path tempDirectory) {
+      this.comparator = comparator;
+      this.memoryBudget = memoryBudget;
+      this.codec = codec;
+      this.tempDirectory = tempDirectory;
+    }
+
+    Spliterator<T> sort(Spliterator<T> source) {
+      try {
+        source.forEachRemaining(this::add);
+        T[] last = sortCurrent();
+        if (spilled.isEmpty()) {
+          return Spliterators.spliterator(last, Spliterator.ORDERED);
+        }
+        spill(last);
+        return new MergingSpliterator<>(this);
+      } catch (RuntimeException | Error e) {
+        delete();
+        throw e;
+      }
+    }
+
+    private void add(T element) {
+      long heapSize = codec.heapSize(element);
+      long encodedSize = codec.encodedSize(element);
+      if (!current.isEmpty() && (currentHeapSize + heapSize > memoryBudget || currentEncodedSize + encodedSize > MAX_RUN_BYTES)) {
+        spill(sortCurrent());
+      }
+      current.add(element);
+      currentHeapSize += heapSize;
+      currentEncodedSize += encodedSize;
+      count++;
+    }
+
+    @SuppressWarnings("unchecked")
+    private T[] sortCurrent() {
+      T[] run = (T[]) current.toArray();
+      current = new ArrayList<>();
+      currentHeapSize = 0;
+      Arrays.parallelSort(run, comparator);
+      return run;
+    }
+
+    /**
+     * No deleteOnExit(): the JDK keeps its paths until the JVM exits, which would grow with every sort. A run is
+     * deleted by {@link #delete()}, or right here if it could not be written.
+     */
+    private void spill(T[] run) {
+      Path file = null;
+      try {
+        file = Files.createTempFile(tempDirectory, "sorted-external-", ".run");
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+          buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, currentEncodedSize);
+        }
+        for (T it : run) {
+          codec.encode(it, buffer);
+        }
+        buffer.flip();
+        spilled.add(new Run(file, buffer, run.length));
+        currentEncodedSize = 0;
+      } catch (IOException e) {
+        deleteQuietly(file);
+        throw new UncheckedIOException(e);
+      } catch (RuntimeException | Error e) {
+        deleteQuietly(file);
+        throw e;
+      }
+    }
+
+    void delete() {
+      for (Run run : spilled) {
+        deleteQuietly(run.file);
+      }
+      spilled.clear();
+    }
+
+    private static void deleteQuietly(Path file) {
+      if (file == null) {
+        return;
+      }
+      try {
+        Files.deleteIfExists(file);
+      } catch (IOException e) {
+        // left to the cleanup of the temporary directory
+      }
+    }
+  }
+
+  /**
+   * The next element of one run.
+   */
+  private static final class Cursor<T> {
+    final int runIndex;
+    final Run run;
+    int remaining;
+    T head;
+
+    Cursor(int runIndex, Run run) {
+      this.runIndex = runIndex;
+      this.run = run;
+      this.remaining = run.count;
+    }
+  }
+
+  /**
+   * Merges all the runs through a heap of cursors; on equal elements the earlier run wins,
+   * which keeps the sort stable.
+   */
+  private static final class MergingSpliterator<T> extends Spliterators.AbstractSpliterator<T> {
+    private final Runs<T> runs;
+    private final PriorityQueue<Cursor<T>> heap;
+
+    MergingSpliterator(Runs<T> runs) {
+      super(runs.count, CHARACTERISTICS);
+      this.runs = runs;
+      Comparator<? super T> comparator = runs.comparator;
+      this.heap = new PriorityQueue<>(runs.spilled.size(), (Cursor<T> it1, Cursor<T> it2) -> {
+        int compared = comparator.compare(it1.head, it2.head);
+        return compared != 0 ? compared : Integer.compare(it1.runIndex, it2.runIndex);
+      });
+      for (int i = 0; i < runs.spilled.size(); i++) {
+        Cursor<T> cursor = new Cursor<>(i, runs.spilled.get(i));
+        if (advance(cursor)) {
+          heap.add(cursor);
+        }
+      }
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+      Cursor<T> cursor = heap.poll();
+      if (cursor == null) {
+        runs.delete();
+        return false;
+      }
+      T element = cursor.head;
+      if (advance(cursor)) {
+        heap.add(cursor);
+      }
+      action.accept(element);
+      return true;
+    }
+
+    private boolean advance(Cursor<T> cursor) {
+      if (cursor.remaining == 0) {
+        cursor.head = null;
+        return false;
+      }
+      cursor.head = runs.codec.decode(cursor.run.buffer);
+      cursor.remaining--;
+      return true;
+    }
+  }
+}
@@ -0,0 +1,168 @@
+package tbp.land.java8.tutorial.auxiliar.streams;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * {@code Stream.mapMulti} (java 16) for java 8: replaces every element by zero or more elements, which the mapper pushes
+ * to a consumer instead of returning them as a Stream.
+ *
+ * <pre>
+ * // flatMap(it -&gt; Stream.of(it.getName(), it.getAge())), without a Stream, an array and a spliterator per person
+ * MapMulti.mapMulti(persons.stream(), (Person it, Consumer&lt;Object&gt; downstream) -&gt; {
+ *   downstream.accept(it.getName());
+ *   downstream.accept(it.getAge());
+ * })
+ * </pre>
+ *
+ * On java 16 and later, this is the JDK's own {@code mapMulti}, found once by reflection. Before that, it is
+ * {@link #backport}: a stream over the spliterator of the source, whose {@code forEachRemaining} hands the mapper the
+ * downstream consumer itself, so a terminal operation which pushes (forEach, collect, reduce, ...) allocates nothing
+ * per element. Only a short-circuiting operation (findFirst, anyMatch, limit, ...), which pulls element by element,
+ * goes through a small buffer, reused for the whole split.
+ */
+public final class MapMulti {
+
+  /**
+   * {@code Stream.mapMulti(BiConsumer)}, or null before java 16.
+   */
+  private static final MethodHandle NATIVE = findNative();
+
+  private MapMulti() {
+  }
+
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  public static <T, R> Stream<R> mapMulti(Stream<T> stream, BiConsumer<? super T, ? super Consumer<R>> mapper) {
+    Objects.requireNonNull(mapper, "mapper");
+    if (NATIVE != null) {
+      try {
+        return (Stream<R>) NATIVE.invokeExact(stream, (BiConsumer) mapper);
+      } catch (RuntimeException | Error e) {
+        throw e;
+      } catch (Throwable e) {
+        throw new IllegalStateException(e);
+      }
+    }
+    return backport(stream, mapper);
+  }
+
+  /**
+   * The java 8 implementation, whatever the java version.
+   */
+  public static <T, R> Stream<R> backport(Stream<T> stream, BiConsumer<? super T, ? super Consumer<R>> mapper) {
+    Objects.requireNonNull(mapper, "mapper");
+    return StreamSupport.stream(new MapMultiSpliterator<>(stream.spliterator(), mapper), stream.isParallel()) //
+      .onClose(stream::close);
+  }
+
+  /**
+   * Whether {@link #mapMulti} is the JDK's own.
+   */
+  public static boolean isNative() {
+    return NATIVE != null;
+  }
+
+  private static MethodHandle findNative() {
+    try {
+      return MethodHandles.publicLookup() //
+        .findVirtual(Stream.class, "mapMulti", MethodType.methodType(Stream.class, BiConsumer.class)) //
+        .asType(MethodType.methodType(Stream.class, Stream.class, BiConsumer.class));
+    } catch (NoSuchMethodException | IllegalAccessException e) {
+      return null;
+    }
+  }
+
+  private static final class MapMultiSpliterator<T, R> implements Spliterator<R>, Consumer<R> {
+    private final Spliterator<T> source;
+    private final BiConsumer<? super T, ? super Consumer<R>> mapper;
+    /**
+     * What the mapper pushed for the last element pulled by {@link #tryAdvance}, not handed out yet.
+     */
+    private Object[] buffer;
+    private int head;
+    private int tail;
+    /**
+     * Feeds the mapper's output to the buffer, for {@link #tryAdvance}.
+     */
+    private final Consumer<T> pull;
+
+    MapMultiSpliterator(Spliterator<T> source, BiConsumer<? super T, ? super Consumer<R>> mapper) {
+      this.source = source;
+      this.mapper = mapper;
+      this.pull = it -> mapper.accept(it, this);
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super R> action) {
+      while (head < tail) {
+        action.accept(next());
+      }
+      @SuppressWarnings("unchecked")
+      Consumer<R> downstream = (Consumer<R>) action;
+      source.forEachRemaining(it -> mapper.accept(it, downstream));
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super R> action) {
+      while (head == tail) {
+        head = 0;
+        tail = 0;
+        if (!source.tryAdvance(pull)) {
+          return false;
+        }
+      }
+      action.accept(next());
+      return true;
+    }
+
+    /**
+     * Buffers what the mapper pushes during {@link #tryAdvance}.
+     */
+    @Override
+    public void accept(R value) {
+      if (buffer == null) {
+        buffer = new Object[4];
+      } else if (tail == buffer.length) {
+        buffer = Arrays.copyOf(buffer, 2 * tail);
+      }
+      buffer[tail++] = value;
+    }
+
+    @SuppressWarnings("unchecked")
+    private R next() {
+      R value = (R) buffer[head];
+      buffer[head++] = null;
+      return value;
+    }
+
+    @Override
+    public Spliterator<R> trySplit() {
+      if (head < tail) {
+        return null;
+      }
+      Spliterator<T> prefix = source.trySplit();
+      return prefix == null ? null : new MapMultiSpliterator<>(prefix, mapper);
+    }
+
+    /**
+     * The size of the source: a guess, as an element can become any number of them.
+     */
+    @Override
+    public long estimateSize() {
+      return source.estimateSize();
+    }
+
+    @Override
+    public int characteristics() {
+      return source.characteristics() & ORDERED;
+    }
+  }
+}
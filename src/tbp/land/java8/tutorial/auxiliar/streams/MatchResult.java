@@ -0,0 +1,72 @@
+package tbp.land.java8.tutorial.auxiliar.streams;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The result of a {@link ParallelMatch}, together with how long it took to know it.
+ */
+public final class MatchResult {
+
+  private final boolean matched;
+  private final boolean shortCircuited;
+  private final long decisionNanos;
+  private final long elapsedNanos;
+  private final long evaluated;
+  private final int workers;
+
+  MatchResult(boolean matched, boolean shortCircuited, long decisionNanos, long elapsedNanos, long evaluated, int workers) {
+    this.matched = matched;
+    this.shortCircuited = shortCircuited;
+    this.decisionNanos = decisionNanos;
+    this.elapsedNanos = elapsedNanos;
+    this.evaluated = evaluated;
+    this.workers = workers;
+  }
+
+  /**
+   * What {@code anyMatch}/{@code allMatch}/{@code noneMatch} would have returned.
+   */
+  public boolean isMatched() {
+    return matched;
+  }
+
+  /**
+   * Whether a decisive element was found, so not every element had to be tested.
+   */
+  public boolean isShortCircuited() {
+    return shortCircuited;
+  }
+
+  /**
+   * Time from the start until a worker found the decisive element; the whole elapsed time if there was none.
+   */
+  public long getDecisionNanos() {
+    return decisionNanos;
+  }
+
+  /**
+   * Time from the start until every worker stopped; the difference to {@link #getDecisionNanos()} is
+   * how long the other workers took to notice.
+   */
+  public long getElapsedNanos() {
+    return elapsedNanos;
+  }
+
+  /**
+   * Number of times the predicate was called, by all the workers together.
+   */
+  public long getEvaluated() {
+    return evaluated;
+  }
+
+  public int getWorkers() {
+    return workers;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%s (%s after %d of the elements, decided in %d us, stopped in %d us, %d workers)", //
+      matched, shortCircuited ? "short-circuited" : "done", evaluated, //
+      TimeUnit.NANOSECONDS.toMicros(decisionNanos), TimeUnit.NANOSECONDS.toMicros(elapsedNanos), workers);
+  }
+}
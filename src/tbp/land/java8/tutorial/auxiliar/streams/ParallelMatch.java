@@ -0,0 +1,273 @@
+package tbp.land.java8.tutorial.auxiliar.streams;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.Spliterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import tbp.land.java8.tutorial.auxiliar.concurrent.VirtualThreads;
+
+/**
+ * {@code anyMatch}/{@code allMatch}/{@code noneMatch} for big sources and expensive predicates.
+ *
+ * <pre>
+ * MatchResult result = ParallelMatch.of(values) //
+ *   .parallelism(8) //
+ *   .anyMatch(it -&gt; expensiveCheck(it));
+ * </pre>
+ *
+ * The source is split into a few pieces per worker, and the workers take pieces from a shared queue
+ * until one of them finds a decisive element (one which matches for anyMatch/noneMatch, one which does not for allMatch).
+ * That worker raises a shared flag, and every other worker stops at the end of its current batch:
+ * the flag is only read once per {@link #batchSize(int) batch}, so the predicate loop itself has no volatile reads.
+ *
+ * The workers run in the fork/join pool of the calling thread (or the common pool), like parallel streams,
+ * and the calling thread works too. {@link #onVirtualThreads()} runs them on virtual threads instead (java 21+,
+ * platform threads before), for predicates which block on I/O; use a higher parallelism and a small batch size then,
+ * since a worker only notices the flag between batches.
+ *
+ * The match returns once every worker has stopped, so the predicate is never called after it returned.
+ */
+public final class ParallelMatch<T> {
+
+  public static final int DEFAULT_BATCH_SIZE = 256;
+
+  /**
+   * Pieces the source is split into, per worker, so that workers which are done early can help the others.
+   */
+  private static final int PIECES_PER_WORKER = 4;
+
+  private final Supplier<Spliterator<T>> source;
+  private final int parallelism;
+  private final int batchSize;
+  private final boolean virtualThreads;
+
+  private ParallelMatch(Supplier<Spliterator<T>> source, int parallelism, int batchSize, boolean virtualThreads) {
+    this.source = source;
+    this.parallelism = parallelism;
+    this.batchSize = batchSize;
+    this.virtualThreads = virtualThreads;
+  }
+
+  public static <T> ParallelMatch<T> of(Collection<T> source) {
+    Objects.requireNonNull(source, "source");
+    return new ParallelMatch<>(source::spliterator, defaultParallelism(), DEFAULT_BATCH_SIZE, false);
+  }
+
+  /**
+   * Consumes the stream, so only one match can be run on it.
+   */
+  public static <T> ParallelMatch<T> of(Stream<T> source) {
+    Objects.requireNonNull(source, "source");
+    return new ParallelMatch<>(source::spliterator, defaultParallelism(), DEFAULT_BATCH_SIZE, false);
+  }
+
+  /**
+   * Number of workers, including the calling thread.
+   */
+  public ParallelMatch<T> parallelism(int parallelism) {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+    }
+    return new ParallelMatch<>(source, parallelism, batchSize, virtualThreads);
+  }
+
+  /**
+   * Number of elements a worker tests between two looks at the shared flag.
+   */
+  public ParallelMatch<T> batchSize(int batchSize) {
+    if (batchSize < 1) {
+      throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+    }
+    return new ParallelMatch<>(source, parallelism, batchSize, virtualThreads);
+  }
+
+  public ParallelMatch<T> onVirtualThreads() {
+    return new ParallelMatch<>(source, parallelism, batchSize, true);
+  }
+
+  public MatchResult anyMatch(Predicate<? super T> predicate) {
+    return run(predicate, true, true);
+  }
+
+  public MatchResult allMatch(Predicate<? super T> predicate) {
+    return run(predicate, false, false);
+  }
+
+  public MatchResult noneMatch(Predicate<? super T> predicate) {
+    return run(predicate, true, false);
+  }
+
+  /**
+   * @param decisiveWhen what the predicate returns for a decisive element
+   * @param resultIfDecided the result when a decisive element was found
+   */
+  private MatchResult run(Predicate<? super T> predicate, boolean decisiveWhen, boolean resultIfDecided) {
+    Objects.requireNonNull(predicate, "predicate");
+    Match<T> match = new Match<>(predicate, decisiveWhen, batchSize);
+    match.pieces.addAll(split(source.get(), parallelism * PIECES_PER_WORKER));
+    int workers = Math.min(parallelism, match.pieces.size());
+
+    List<Runnable> joins = new ArrayList<>(workers);
+    ExecutorService executor = null;
+    try {
+      if (virtualThreads) {
+        executor = VirtualThreads.newThreadPerTaskExecutor("match");
+        for (int i = 1; i < workers; i++) {
+          joins.add(CompletableFuture.runAsync(match::work, executor)::join);
+        }
+      } else {
+        for (int i = 1; i < workers; i++) {
+          ForkJoinTask<?> task = ForkJoinTask.adapt(match::work);
+          if (ForkJoinTask.inForkJoinPool()) {
+            task.fork();
+          } else {
+            ForkJoinPool.commonPool().execute(task);
+          }
+          joins.add(task::join);
+        }
+      }
+      match.work();
+      joins.forEach(Runnable::run);
+    } finally {
+      if (executor != null) {
+        executor.shutdown();
+      }
+    }
+
+    long elapsedNanos = System.nanoTime() - match.startNanos;
+    Throwable failure = match.failure.get();
+    if (failure instanceof RuntimeException) {
+      throw (RuntimeException) failure;
+    }
+    if (failure instanceof Error) {
+      throw (Error) failure;
+    }
+    boolean decided = match.decisionNanos >= 0;
+    return new MatchResult(decided == resultIfDecided, decided, //
+      decided ? match.decisionNanos : elapsedNanos, elapsedNanos, match.evaluated.sum(), workers);
+  }
+
+  /**
+   * Splits the biggest piece until there are {@code pieces} of them, or nothing splits any more.
+   */
+  private static <T> List<Spliterator<T>> split(Spliterator<T> source, int pieces) {
+    PriorityQueue<Spliterator<T>> bySize = new PriorityQueue<>(Comparator.comparingLong(Spliterator<T>::estimateSize).reversed());
+    Queue<Spliterator<T>> unsplittable = new ArrayDeque<>();
+    bySize.add(source);
+    while (!bySize.isEmpty() && bySize.size() + unsplittable.size() < pieces) {
+      Spliterator<T> biggest = bySize.poll();
+      Spliterator<T> prefix = biggest.estimateSize() > 1 ? biggest.trySplit() : null;
+      if (prefix == null) {
+        unsplittable.add(biggest);
+      } else {
+        bySize.add(prefix);
+        bySize.add(biggest);
+      }
+    }
+    List<Spliterator<T>> result = new ArrayList<>(bySize);
+    result.addAll(unsplittable);
+    return result;
+  }
+
+  private static int defaultParallelism() {
+    return ForkJoinTask.inForkJoinPool() ? ForkJoinTask.getPool().getParallelism() : ForkJoinPool.getCommonPoolParallelism();
+  }
+
+  /**
+   * State shared by the workers of one match.
+   */
+  private static final class Match<T> {
+    final Predicate<? super T> predicate;
+    final boolean decisiveWhen;
+    final int batchSize;
+    final Queue<Spliterator<T>> pieces = new ConcurrentLinkedQueue<>();
+    final AtomicBoolean stop = new AtomicBoolean();
+    final AtomicReference<Throwable> failure = new AtomicReference<>();
+    final LongAdder evaluated = new LongAdder();
+    final long startNanos = System.nanoTime();
+    /**
+     * Written once, by the worker which won the race to raise the flag, before its task ends (and is joined).
+     */
+    volatile long decisionNanos = -1;
+
+    Match(Predicate<? super T> predicate, boolean decisiveWhen, int batchSize) {
+      this.predicate = predicate;
+      this.decisiveWhen = decisiveWhen;
+      this.batchSize = batchSize;
+    }
+
+    void work() {
+      Probe<T> probe = new Probe<>(predicate, decisiveWhen);
+      try {
+        Spliterator<T> piece;
+        pieces:
+        while (!stop.get() && (piece = pieces.poll()) != null) {
+          boolean exhausted = false;
+          while (!exhausted) {
+            for (int i = 0; i < batchSize && !probe.decisive; i++) {
+              if (!piece.tryAdvance(probe)) {
+                exhausted = true;
+                break;
+              }
+            }
+            if (probe.decisive) {
+              if (stop.compareAndSet(false, true)) {
+                decisionNanos = System.nanoTime() - startNanos;
+              }
+              break pieces;
+            }
+            if (stop.get()) {
+              break pieces;
+            }
+          }
+        }
+      } catch (Throwable e) {
+        failure.compareAndSet(null, e);
+        stop.set(true);
+      } finally {
+        evaluated.add(probe.evaluated);
+      }
+    }
+  }
+
+  /**
+   * Tests the element it is given; plain fields, since it is only used by one worker.
+   */
+  private static final class Probe<T> implements Consumer<T> {
+    private final Predicate<? super T> predicate;
+    private final boolean decisiveWhen;
+    boolean decisive;
+    long evaluated;
+
+    Probe(Predicate<? super T> predicate, boolean decisiveWhen) {
+      this.predicate = predicate;
+      this.decisiveWhen = decisiveWhen;
+    }
+
+    @Override
+    public void accept(T element) {
+      evaluated++;
+      if (predicate.test(element) == decisiveWhen) {
+        decisive = true;
+      }
+    }
+  }
+}
@@ -0,0 +1,133 @@
+package tbp.land.java8.tutorial.auxiliar.streams;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How {@link AdaptiveParallelism} ran one pipeline, and why.
+ */
+public final class ParallelismDecision {
+
+  /**
+   * Where the per-element cost the decision is based on came from.
+   */
+  public enum CostSource {
+    /**
+     * Measured on the first elements of the source, just before the run.
+     */
+    SAMPLED,
+    /**
+     * Measured by earlier runs of the same pipeline.
+     */
+    REMEMBERED,
+    /**
+     * Not needed, e.g. with a single core.
+     */
+    NONE
+  }
+
+  public enum Reason {
+    ONE_CORE, TOO_SMALL, SAMPLED_WHOLE_SOURCE, LITTLE_WORK, ENOUGH_WORK, PARALLEL_SLOWER
+  }
+
+  private final String pipeline;
+  private final long sourceSize;
+  private final int cores;
+  private final CostSource costSource;
+  private final double nanosPerElement;
+  private final boolean parallel;
+  private final long splitThreshold;
+  private final Reason reason;
+  private final long minParallelNanos;
+  private final long elapsedNanos;
+
+  ParallelismDecision(String pipeline, long sourceSize, int cores, CostSource costSource, double nanosPerElement, boolean parallel,
+    long splitThreshold, Reason reason, long minParallelNanos, long elapsedNanos) {
+    this.pipeline = pipeline;
+    this.sourceSize = sourceSize;
+    this.cores = cores;
+    this.costSource = costSource;
+    this.nanosPerElement = nanosPerElement;
+    this.parallel = parallel;
+    this.splitThreshold = splitThreshold;
+    this.reason = reason;
+    this.minParallelNanos = minParallelNanos;
+    this.elapsedNanos = elapsedNanos;
+  }
+
+  public String getPipeline() {
+    return pipeline;
+  }
+
+  public long getSourceSize() {
+    return sourceSize;
+  }
+
+  public int getCores() {
+    return cores;
+  }
+
+  public CostSource getCostSource() {
+    return costSource;
+  }
+
+  /**
+   * The estimated cost of one element, or {@code NaN} when there was no need to estimate it.
+   */
+  public double getNanosPerElement() {
+    return nanosPerElement;
+  }
+
+  public boolean isParallel() {
+    return parallel;
+  }
+
+  /**
+   * The smallest piece the source was split into, in elements; 0 for a sequential run.
+   */
+  public long getSplitThreshold() {
+    return splitThreshold;
+  }
+
+  public Reason getReason() {
+    return reason;
+  }
+
+  /**
+   * The estimated work of the whole source, or {@code NaN}.
+   */
+  public double getEstimatedNanos() {
+    return nanosPerElement * sourceSize;
+  }
+
+  /**
+   * The reason, for humans.
+   */
+  public String explain() {
+    switch (reason) {
+      case ONE_CORE:
+        return "one core";
+      case TOO_SMALL:
+        return "fewer than 2 elements";
+      case SAMPLED_WHOLE_SOURCE:
+        return "the sample was the whole source";
+      case PARALLEL_SLOWER:
+        return "the last parallel run was slower per element than the sequential ones";
+      default:
+        return String.format("estimated %d us %s %d us", (long) (getEstimatedNanos() / 1000), reason == Reason.ENOUGH_WORK ? ">=" : "<", //
+          TimeUnit.NANOSECONDS.toMicros(minParallelNanos));
+    }
+  }
+
+  /**
+   * Time spent in the run, sampling included.
+   */
+  public long getElapsedNanos() {
+    return elapsedNanos;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%s: %d elements, %s%s (%s; %s, %d us)", pipeline, sourceSize, parallel ? "parallel" : "sequential", //
+      parallel ? " in pieces of >= " + splitThreshold : "", explain(), costSource.name().toLowerCase(), TimeUnit.NANOSECONDS.toMicros(elapsedNanos));
+  }
+}
@@ -0,0 +1,362 @@
+package tbp.land.java8.tutorial.auxiliar.streams;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import tbp.land.java8.tutorial.auxiliar.collectors.TopKCollectors;
+
+/**
+ * A pipeline which is declared first and turned into a plain {@link Stream} later, after its stages have been
+ * put in a cheaper order, the way {@code J3StreamOperationsAdvanced.streamsAreLazyOrderingCounts()} shows by hand.
+ *
+ * <pre>
+ * Pipeline&lt;String, String&gt; pipeline = Pipeline.&lt;String&gt;builder() //
+ *   .sorted() //
+ *   .filter(s -> s.startsWith("a")) //
+ *   .map(s -> s.toUpperCase()) //
+ *   .limit(10) //
+ *   .build();
+ * // runs as: filter -> topK(10) -> map
+ * pipeline.apply(strings.stream()).forEach(System.out::println);
+ * </pre>
+ *
+ * The rewrites are:
+ * <ul>
+ *   <li>adjacent maps are fused into one map, adjacent filters into one filter</li>
+ *   <li>filters go before sorted, and before maps declared {@link Hint#FILTER_TRANSPARENT}</li>
+ *   <li>distinct goes before sorted in natural order, and before sorts declared {@link Hint#DISTINCT_SAFE}</li>
+ *   <li>limit goes before maps (a map never adds or removes elements)</li>
+ *   <li>sorted followed by limit(k) becomes a top-k: a bounded heap instead of sorting everything</li>
+ * </ul>
+ * As the java.util.stream documentation already asks, the lambdas are assumed to be stateless and without side
+ * effects, i.e. pure. A stage declared {@link Hint#IMPURE} (e.g. because it logs, or counts) is never moved,
+ * and nothing is moved across it.
+ */
+public final class Pipeline<S, T> {
+
+  public enum Hint {
+    /**
+     * The stage has side effects: it stays exactly where it was declared.
+     */
+    IMPURE,
+    /**
+     * For maps: every filter declared after this map gives the same answer before it,
+     * e.g. a map which only changes fields the later filters do not look at (so it also keeps the element type).
+     * Without this hint, filters are never moved before a map.
+     */
+    FILTER_TRANSPARENT,
+    /**
+     * For sorts with a comparator: elements which are equal also compare as 0, so distinct keeps the same ones before
+     * and after the sort. A comparator on only some of the fields of the elements is not, as the sort then decides
+     * which of two equal elements distinct sees first. Without this hint, distinct is never moved before such a sort.
+     */
+    DISTINCT_SAFE
+  }
+
+  private final List<Stage> declared;
+  private final List<Stage> optimized;
+
+  private Pipeline(List<Stage> declared) {
+    this.declared = Collections.unmodifiableList(new ArrayList<>(declared));
+    this.optimized = Collections.unmodifiableList(optimize(new ArrayList<>(declared)));
+  }
+
+  public static <S> Builder<S, S> builder() {
+    return new Builder<>(new ArrayList<>());
+  }
+
+  /**
+   * Runs the optimized stages on the given source.
+   */
+  @SuppressWarnings("unchecked")
+  public Stream<T> apply(Stream<S> source) {
+    return (Stream<T>) run(optimized, source);
+  }
+
+  /**
+   * Runs the stages exactly as they were declared; useful to compare against {@link #apply(Stream)}.
+   */
+  @SuppressWarnings("unchecked")
+  public Stream<T> applyAsDeclared(Stream<S> source) {
+    return (Stream<T>) run(declared, source);
+  }
+
+  /**
+   * e.g. "sorted -> filter -> map -> limit(10)  =>  filter -> topK(10) -> map"
+   */
+  public String explain() {
+    return describe(declared) + "  =>  " + describe(optimized);
+  }
+
+  private static String describe(List<Stage> stages) {
+    return stages.isEmpty() //
+      ? "(nothing)" //
+      : stages.stream().map(it -> it.name).collect(Collectors.joining(" -> "));
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Stream<Object> run(List<Stage> stages, Stream<?> source) {
+    Stream<Object> stream = (Stream<Object>) source;
+    for (Stage stage : stages) {
+      stream = stage.applyTo(stream);
+    }
+    return stream;
+  }
+
+  /**
+   * Swaps and fuses neighbouring stages until nothing changes any more.
+   *
+   * Filters, distinct and limit only ever move towards the source and sorted only away from it,
+   * so this always ends; the bound on the number of rounds is only a safety net.
+   */
+  private static List<Stage> optimize(List<Stage> stages) {
+    boolean changed = true;
+    for (int round = 0; changed && round < stages.size() * stages.size() + 1; round++) {
+      changed = false;
+      for (int i = 0; i + 1 < stages.size(); i++) {
+        Stage first = stages.get(i);
+        Stage second = stages.get(i + 1);
+        if (!first.pure || !second.pure) {
+          continue;
+        }
+
+        Stage fused = fuse(first, second);
+        if (fused != null) {
+          stages.set(i, fused);
+          stages.remove(i + 1);
+          changed = true;
+        } else if (shouldSwap(first, second)) {
+          stages.set(i, second);
+          stages.set(i + 1, first);
+          changed = true;
+        }
+      }
+    }
+    return stages;
+  }
+
+  private static Stage fuse(Stage first, Stage second) {
+    if (first instanceof MapStage && second instanceof MapStage) {
+      MapStage map1 = (MapStage) first;
+      MapStage map2 = (MapStage) second;
+      EnumSet<Hint> hints = EnumSet.noneOf(Hint.class);
+      if (map1.hints.contains(Hint.FILTER_TRANSPARENT) && map2.hints.contains(Hint.FILTER_TRANSPARENT)) {
+        hints.add(Hint.FILTER_TRANSPARENT);
+      }
+      return new MapStage(map1.name + "+" + map2.name, map1.mapper.andThen(map2.mapper), hints);
+    }
+    if (first instanceof FilterStage && second instanceof FilterStage) {
+      FilterStage filter1 = (FilterStage) first;
+      FilterStage filter2 = (FilterStage) second;
+      return new FilterStage(filter1.name + "+" + filter2.name, filter1.predicate.and(filter2.predicate));
+    }
+    if (first instanceof SortedStage && second instanceof LimitStage) {
+      return new TopKStage(((LimitStage) second).maxSize, ((SortedStage) first).comparator);
+    }
+    return null;
+  }
+
+  private static boolean shouldSwap(Stage first, Stage second) {
+    if (second instanceof FilterStage) {
+      // not before distinct: equal elements may still differ in what the predicate looks at
+      return first instanceof SortedStage //
+        || (first instanceof MapStage && ((MapStage) first).hints.contains(Hint.FILTER_TRANSPARENT));
+    }
+    if (second instanceof DistinctStage) {
+      return first instanceof SortedStage && ((SortedStage) first).distinctSafe;
+    }
+    if (second instanceof LimitStage) {
+      return first instanceof MapStage;
+    }
+    return false;
+  }
+
+  /**
+   * Collects the stages; {@code S} is the type of the source, {@code T} the type of the elements so far.
+   */
+  public static final class Builder<S, T> {
+    private final List<Stage> stages;
+
+    private Builder(List<Stage> stages) {
+      this.stages = stages;
+    }
+
+    @SuppressWarnings("unchecked")
+    public Builder<S, T> filter(Predicate<? super T> predicate, Hint... hints) {
+      stages.add(new FilterStage("filter", (Predicate<Object>) predicate).withHints(hints));
+      return this;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <R> Builder<S, R> map(Function<? super T, ? extends R> mapper, Hint... hints) {
+      stages.add(new MapStage("map", (Function<Object, Object>) mapper, hintSet(hints)));
+      return (Builder<S, R>) this;
+    }
+
+    /**
+     * Natural order; {@code T} must be Comparable, as for {@link Stream#sorted()}.
+     */
+    public Builder<S, T> sorted(Hint... hints) {
+      return sorted(null, hints);
+    }
+
+    @SuppressWarnings("unchecked")
+    public Builder<S, T> sorted(Comparator<? super T> comparator, Hint... hints) {
+      boolean distinctSafe = comparator == null || hintSet(hints).contains(Hint.DISTINCT_SAFE);
+      stages.add(new SortedStage((Comparator<Object>) comparator, distinctSafe).withHints(hints));
+      return this;
+    }
+
+    public Builder<S, T> distinct(Hint... hints) {
+      stages.add(new DistinctStage().withHints(hints));
+      return this;
+    }
+
+    public Builder<S, T> limit(long maxSize, Hint... hints) {
+      if (maxSize < 0) {
+        throw new IllegalArgumentException("maxSize must not be negative: " + maxSize);
+      }
+      stages.add(new LimitStage(maxSize).withHints(hints));
+      return this;
+    }
+
+    public Pipeline<S, T> build() {
+      return new Pipeline<>(stages);
+    }
+  }
+
+  private static EnumSet<Hint> hintSet(Hint... hints) {
+    EnumSet<Hint> set = EnumSet.noneOf(Hint.class);
+    set.addAll(Arrays.asList(hints));
+    return set;
+  }
+
+  private abstract static class Stage {
+    final String name;
+    boolean pure = true;
+
+    Stage(String name) {
+      this.name = name;
+    }
+
+    Stage withHints(Hint... hints) {
+      pure = !hintSet(hints).contains(Hint.IMPURE);
+      return this;
+    }
+
+    abstract Stream<Object> applyTo(Stream<Object> stream);
+  }
+
+  private static final class FilterStage extends Stage {
+    final Predicate<Object> predicate;
+
+    FilterStage(String name, Predicate<Object> predicate) {
+      super(name);
+      this.predicate = predicate;
+    }
+
+    @Override
+    Stream<Object> applyTo(Stream<Object> stream) {
+      return stream.filter(predicate);
+    }
+  }
+
+  private static final class MapStage extends Stage {
+    final Function<Object, Object> mapper;
+    final Set<Hint> hints;
+
+    MapStage(String name, Function<Object, Object> mapper, Set<Hint> hints) {
+      super(name);
+      this.mapper = mapper;
+      this.hints = hints;
+      this.pure = !hints.contains(Hint.IMPURE);
+    }
+
+    @Override
+    Stream<Object> applyTo(Stream<Object> stream) {
+      return stream.map(mapper);
+    }
+  }
+
+  private static final class SortedStage extends Stage {
+    final Comparator<Object> comparator;
+    final boolean distinctSafe;
+
+    SortedStage(Comparator<Object> comparator, boolean distinctSafe) {
+      super("sorted");
+      this.comparator = comparator;
+      this.distinctSafe = distinctSafe;
+    }
+
+    @Override
+    Stream<Object> applyTo(Stream<Object> stream) {
+      return comparator == null ? stream.sorted() : stream.sorted(comparator);
+    }
+  }
+
+  private static final class DistinctStage extends Stage {
+    DistinctStage() {
+      super("distinct");
+    }
+
+    @Override
+    Stream<Object> applyTo(Stream<Object> stream) {
+      return stream.distinct();
+    }
+  }
+
+  private static final class LimitStage extends Stage {
+    final long maxSize;
+
+    LimitStage(long maxSize) {
+      super("limit(" + maxSize + ")");
+      this.maxSize = maxSize;
+    }
+
+    @Override
+    Stream<Object> applyTo(Stream<Object> stream) {
+      return stream.limit(maxSize);
+    }
+  }
+
+  /**
+   * {@code sorted(comparator).limit(k)} without sorting everything, see {@link TopKCollectors}.
+   */
+  private static final class TopKStage extends Stage {
+    final long k;
+    final Comparator<Object> comparator;
+
+    @SuppressWarnings("unchecked")
+    TopKStage(long k, Comparator<Object> comparator) {
+      super("topK(" + k + ")");
+      this.k = k;
+      this.comparator = comparator != null ? comparator : (Comparator<Object>) (Comparator<?>) Comparator.naturalOrder();
+    }
+
+    /**
+     * Like sorted(), a barrier which only runs upstream when the terminal operation starts.
+     */
+    @Override
+    Stream<Object> applyTo(Stream<Object> stream) {
+      if (k > Integer.MAX_VALUE - 8) {
+        return stream.sorted(comparator).limit(k);
+      }
+      return StreamSupport.stream( //
+        () -> stream.collect(TopKCollectors.topK((int) k, comparator)).spliterator() //
+        , Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED //
+        , stream.isParallel()) //
+        .onClose(stream::close);
+    }
+  }
+}
@@ -0,0 +1,27 @@
+package tbp.land.java8.tutorial.auxiliar.streams;
+
+import java.nio.ByteBuffer;
+
+/**
+ * How elements of a stream are written to (and read back from) a binary buffer,
+ * e.g. when {@link ExternalSort} spills them to disk.
+ *
+ * See {@link RecordCodecs} for the ready made ones.
+ */
+public interface RecordCodec<T> {
+
+  /**
+   * Number of bytes {@link #encode} will write for this value.
+   */
+  int encodedSize(T value);
+
+  void encode(T value, ByteBuffer target);
+
+  T decode(ByteBuffer source);
+
+  /**
+   * A rough estimate of how many bytes of heap the value takes while it is in memory
+   * (including the reference pointing to it), used to turn a memory budget into a number of elements.
+   */
+  long heapSize(T value);
+}
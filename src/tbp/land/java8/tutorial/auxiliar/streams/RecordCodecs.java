@@ -0,0 +1,119 @@
+package tbp.land.java8.tutorial.auxiliar.streams;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+import tbp.land.java8.tutorial.auxiliar.uuid.UuidStrings;
+
+/**
+ * Ready made {@link RecordCodec}s.
+ */
+public final class RecordCodecs {
+
+  private static final RecordCodec<String> UUID_STRINGS = new RecordCodec<String>() {
+    @Override
+    public int encodedSize(String value) {
+      return 2 * Long.BYTES;
+    }
+
+    @Override
+    public void encode(String value, ByteBuffer target) {
+      target.putLong(UuidStrings.parseMostSignificantBits(value));
+      target.putLong(UuidStrings.parseLeastSignificantBits(value));
+    }
+
+    @Override
+    public String decode(ByteBuffer source) {
+      long mostSigBits = source.getLong();
+      return UuidStrings.toString(mostSigBits, source.getLong());
+    }
+
+    @Override
+    public long heapSize(String value) {
+      return stringHeapSize(value);
+    }
+  };
+
+  private static final RecordCodec<UUID> UUIDS = new RecordCodec<UUID>() {
+    @Override
+    public int encodedSize(UUID value) {
+      return 2 * Long.BYTES;
+    }
+
+    @Override
+    public void encode(UUID value, ByteBuffer target) {
+      target.putLong(value.getMostSignificantBits());
+      target.putLong(value.getLeastSignificantBits());
+    }
+
+    @Override
+    public UUID decode(ByteBuffer source) {
+      long mostSigBits = source.getLong();
+      return new UUID(mostSigBits, source.getLong());
+    }
+
+    @Override
+    public long heapSize(UUID value) {
+      return 8 + 32;
+    }
+  };
+
+  private static final RecordCodec<String> STRINGS = new RecordCodec<String>() {
+    @Override
+    public int encodedSize(String value) {
+      return Integer.BYTES + Character.BYTES * value.length();
+    }
+
+    @Override
+    public void encode(String value, ByteBuffer target) {
+      target.putInt(value.length());
+      for (int i = 0; i < value.length(); i++) {
+        target.putChar(value.charAt(i));
+      }
+    }
+
+    @Override
+    public String decode(ByteBuffer source) {
+      char[] chars = new char[source.getInt()];
+      for (int i = 0; i < chars.length; i++) {
+        chars[i] = source.getChar();
+      }
+      return new String(chars);
+    }
+
+    @Override
+    public long heapSize(String value) {
+      return stringHeapSize(value);
+    }
+  };
+
+  private RecordCodecs() {
+  }
+
+  /**
+   * Canonical UUID strings (as produced by {@code UUID.randomUUID().toString()}) stored as two longs:
+   * 16 bytes instead of 36 chars. Any other String is rejected with an IllegalArgumentException.
+   */
+  public static RecordCodec<String> uuidStrings() {
+    return UUID_STRINGS;
+  }
+
+  public static RecordCodec<UUID> uuids() {
+    return UUIDS;
+  }
+
+  /**
+   * Any String, stored as its length followed by its UTF-16 chars, so that even invalid surrogates
+   * come back exactly the same.
+   */
+  public static RecordCodec<String> strings() {
+    return STRINGS;
+  }
+
+  /**
+   * reference + object header + fields + the backing array (as chars, which is the worst case).
+   */
+  private static long stringHeapSize(String value) {
+    return 8 + 24 + 16 + 2L * value.length();
+  }
+}
@@ -0,0 +1,74 @@
+package tbp.land.java8.tutorial.auxiliar.streams;
+
+import java.util.Comparator;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * A spliterator which refuses to split below a threshold, so that the pieces of a parallel stream stay big enough
+ * to be worth a task of their own.
+ *
+ * A parallel stream keeps splitting its source until the pieces are about {@code size / (4 * parallelism)} elements,
+ * however little work each of them is.
+ */
+public final class ThresholdSpliterator<T> implements Spliterator<T> {
+
+  private final Spliterator<T> delegate;
+  private final long threshold;
+
+  private ThresholdSpliterator(Spliterator<T> delegate, long threshold) {
+    this.delegate = delegate;
+    this.threshold = threshold;
+  }
+
+  /**
+   * @param threshold the smallest piece worth splitting off, in elements
+   */
+  public static <T> Spliterator<T> of(Spliterator<T> source, long threshold) {
+    Objects.requireNonNull(source, "source");
+    if (threshold < 1) {
+      throw new IllegalArgumentException("threshold must be positive: " + threshold);
+    }
+    return threshold == 1 ? source : new ThresholdSpliterator<>(source, threshold);
+  }
+
+  @Override
+  public boolean tryAdvance(Consumer<? super T> action) {
+    return delegate.tryAdvance(action);
+  }
+
+  @Override
+  public void forEachRemaining(Consumer<? super T> action) {
+    delegate.forEachRemaining(action);
+  }
+
+  @Override
+  public Spliterator<T> trySplit() {
+    if (delegate.estimateSize() < 2 * threshold) {
+      return null;
+    }
+    Spliterator<T> prefix = delegate.trySplit();
+    return prefix == null ? null : new ThresholdSpliterator<>(prefix, threshold);
+  }
+
+  @Override
+  public long estimateSize() {
+    return delegate.estimateSize();
+  }
+
+  @Override
+  public long getExactSizeIfKnown() {
+    return delegate.getExactSizeIfKnown();
+  }
+
+  @Override
+  public int characteristics() {
+    return delegate.characteristics();
+  }
+
+  @Override
+  public Comparator<? super T> getComparator() {
+    return delegate.getComparator();
+  }
+}
@@ -0,0 +1,124 @@
+package tbp.land.java8.tutorial.auxiliar.streams;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What a {@link Traced} pipeline did: per stage counts and time spent, where it short-circuited,
+ * and the last events seen by every thread (which show the order in which the stages ran).
+ */
+public final class TraceSummary {
+
+  private final String terminal;
+  private final List<Stage> stages;
+  private final long sourceSize;
+  private final List<String> recentEvents;
+
+  TraceSummary(String terminal, List<Stage> stages, long sourceSize, List<String> recentEvents) {
+    this.terminal = terminal;
+    this.stages = Collections.unmodifiableList(stages);
+    this.sourceSize = sourceSize;
+    this.recentEvents = Collections.unmodifiableList(recentEvents);
+  }
+
+  public String getTerminal() {
+    return terminal;
+  }
+
+  public List<Stage> getStages() {
+    return stages;
+  }
+
+  /**
+   * The exact size of the source, or -1 if it was not known.
+   */
+  public long getSourceSize() {
+    return sourceSize;
+  }
+
+  /**
+   * How many elements the source delivered.
+   */
+  public long getSourceElements() {
+    return stages.get(0).getIn();
+  }
+
+  /**
+   * Whether the pipeline stopped before reading the whole source (only known for sources with an exact size).
+   */
+  public boolean isShortCircuited() {
+    return sourceSize >= 0 && getSourceElements() < sourceSize;
+  }
+
+  /**
+   * e.g. "filter: a2", oldest first, grouped by thread.
+   */
+  public List<String> getRecentEvents() {
+    return recentEvents;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    sb.append(String.format("%-20s %12s %12s %12s %12s%n", "stage (" + terminal + ")", "in", "out", "calls", "avg ns"));
+    for (Stage stage : stages) {
+      sb.append(String.format("%-20s %12d %12d %12d %12s%n", stage.getName(), stage.getIn(), stage.getOut(), stage.getCalls(), //
+        stage.getCalls() == 0 ? "-" : Long.toString(stage.getNanos() / stage.getCalls())));
+    }
+    if (isShortCircuited()) {
+      sb.append(String.format("short-circuited: the source delivered %d of its %d elements%n", getSourceElements(), sourceSize));
+    }
+    for (String event : recentEvents) {
+      sb.append(event).append(System.lineSeparator());
+    }
+    return sb.toString();
+  }
+
+  /**
+   * One stage of the pipeline.
+   *
+   * {@code in} is the number of elements which reached the stage, {@code out} the number it passed on,
+   * {@code calls} the number of times the lambda of the stage was called (comparisons, for sorted)
+   * and {@code nanos} the time spent inside these calls.
+   */
+  public static final class Stage {
+    private final String name;
+    private final long in;
+    private final long out;
+    private final long calls;
+    private final long nanos;
+
+    Stage(String name, long in, long out, long calls, long nanos) {
+      this.name = name;
+      this.in = in;
+      this.out = out;
+      this.calls = calls;
+      this.nanos = nanos;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public long getIn() {
+      return in;
+    }
+
+    public long getOut() {
+      return out;
+    }
+
+    public long getCalls() {
+      return calls;
+    }
+
+    public long getNanos() {
+      return nanos;
+    }
+
+    public long getMillis() {
+      return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+  }
+}
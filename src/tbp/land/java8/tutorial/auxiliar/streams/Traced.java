@@ -0,0 +1,357 @@
+package tbp.land.java8.tutorial.auxiliar.streams;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Collector;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A stream which records what every stage does, instead of {@code System.out.println} inside every lambda
+ * (which makes all the threads of a parallel stream queue up for the lock of System.out).
+ *
+ * <pre>
+ * Traced.stream(Stream.of("d2", "a2", "b1", "b3", "c")) //
+ *   .map("map", s -> s.toUpperCase()) //
+ *   .filter("filter", s -> s.startsWith("A")) //
+ *   .forEach(s -> {});
+ * </pre>
+ * prints, once the terminal operation is done, how many elements went in and out of every stage,
+ * how long its lambda took on average, whether the source was short-circuited and the last events
+ * ("filter: A2") of every thread, in the order they happened.
+ *
+ * Every thread writes into its own counters and its own ring buffer of recent events, which are allocated
+ * the first time that thread runs a stage; after that, tracing an element takes no lock and allocates nothing.
+ * Only the terminal operation reads them, once the stream is done.
+ *
+ * The summary is exact for terminal operations which consume the whole stream (forEach, collect, reduce, count).
+ * A short-circuiting one (anyMatch, findFirst, ...) on a parallel stream returns while the subtasks it cancelled may
+ * still be running: its summary is what these had done by then, so the counts can be a little low.
+ */
+public final class Traced<T> {
+
+  /**
+   * Number of recent events kept per thread.
+   */
+  public static final int RING_SIZE = 32;
+
+  private final Tracer tracer;
+  private final Stream<T> stream;
+
+  private Traced(Tracer tracer, Stream<T> stream) {
+    this.tracer = tracer;
+    this.stream = stream;
+  }
+
+  /**
+   * Prints the summary to System.out at the end of the terminal operation.
+   */
+  public static <T> Traced<T> stream(Stream<T> source) {
+    return stream(source, System.out::print);
+  }
+
+  public static <T> Traced<T> stream(Stream<T> source, Consumer<? super TraceSummary> onTerminal) {
+    Spliterator<T> spliterator = source.spliterator();
+    Tracer tracer = new Tracer(onTerminal, spliterator.getExactSizeIfKnown());
+    int stage = tracer.stage("source");
+    Stream<T> stream = StreamSupport.stream(spliterator, source.isParallel()) //
+      .onClose(source::close) //
+      .peek(it -> tracer.pass(stage, it));
+    return new Traced<>(tracer, stream);
+  }
+
+  public Traced<T> parallel() {
+    return new Traced<>(tracer, stream.parallel());
+  }
+
+  public Traced<T> sequential() {
+    return new Traced<>(tracer, stream.sequential());
+  }
+
+  public Traced<T> filter(Predicate<? super T> predicate) {
+    return filter("filter", predicate);
+  }
+
+  public Traced<T> filter(String name, Predicate<? super T> predicate) {
+    int stage = tracer.stage(name);
+    return new Traced<>(tracer, stream.filter(it -> tracer.test(stage, predicate, it)));
+  }
+
+  public <R> Traced<R> map(Function<? super T, ? extends R> mapper) {
+    return map("map", mapper);
+  }
+
+  public <R> Traced<R> map(String name, Function<? super T, ? extends R> mapper) {
+    int stage = tracer.stage(name);
+    return new Traced<>(tracer, stream.map(it -> tracer.apply(stage, mapper, it)));
+  }
+
+  public Traced<T> peek(String name, Consumer<? super T> action) {
+    int stage = tracer.stage(name);
+    return new Traced<>(tracer, stream.peek(it -> tracer.accept(stage, action, it)));
+  }
+
+  /**
+   * Natural order; {@code T} must be Comparable, as for {@link Stream#sorted()}.
+   */
+  @SuppressWarnings("unchecked")
+  public Traced<T> sorted() {
+    return sorted("sorted", (Comparator<? super T>) Comparator.naturalOrder());
+  }
+
+  public Traced<T> sorted(Comparator<? super T> comparator) {
+    return sorted("sorted", comparator);
+  }
+
+  public Traced<T> sorted(String name, Comparator<? super T> comparator) {
+    int stage = tracer.stage(name);
+    return new Traced<>(tracer, stream //
+      .peek(it -> tracer.arrive(stage)) //
+      .sorted((it1, it2) -> tracer.compare(stage, comparator, it1, it2)) //
+      .peek(it -> tracer.leave(stage)));
+  }
+
+  public Traced<T> distinct() {
+    int stage = tracer.stage("distinct");
+    return new Traced<>(tracer, stream.peek(it -> tracer.arrive(stage)).distinct().peek(it -> tracer.leave(stage)));
+  }
+
+  public Traced<T> limit(long maxSize) {
+    int stage = tracer.stage("limit(" + maxSize + ")");
+    return new Traced<>(tracer, stream.peek(it -> tracer.arrive(stage)).limit(maxSize).peek(it -> tracer.leave(stage)));
+  }
+
+  public Traced<T> skip(long n) {
+    int stage = tracer.stage("skip(" + n + ")");
+    return new Traced<>(tracer, stream.peek(it -> tracer.arrive(stage)).skip(n).peek(it -> tracer.leave(stage)));
+  }
+
+  public void forEach(Consumer<? super T> action) {
+    int stage = tracer.stage("forEach");
+    terminal("forEach", () -> {
+      stream.forEach(it -> tracer.accept(stage, action, it));
+      return null;
+    });
+  }
+
+  public void forEachOrdered(Consumer<? super T> action) {
+    int stage = tracer.stage("forEachOrdered");
+    terminal("forEachOrdered", () -> {
+      stream.forEachOrdered(it -> tracer.accept(stage, action, it));
+      return null;
+    });
+  }
+
+  public boolean anyMatch(Predicate<? super T> predicate) {
+    int stage = tracer.stage("anyMatch");
+    return terminal("anyMatch", () -> stream.anyMatch(it -> tracer.test(stage, predicate, it)));
+  }
+
+  public boolean allMatch(Predicate<? super T> predicate) {
+    int stage = tracer.stage("allMatch");
+    return terminal("allMatch", () -> stream.allMatch(it -> tracer.test(stage, predicate, it)));
+  }
+
+  public boolean noneMatch(Predicate<? super T> predicate) {
+    int stage = tracer.stage("noneMatch");
+    return terminal("noneMatch", () -> stream.noneMatch(it -> tracer.test(stage, predicate, it)));
+  }
+
+  public Optional<T> findFirst() {
+    return terminal("findFirst", stream::findFirst);
+  }
+
+  public Optional<T> findAny() {
+    return terminal("findAny", stream::findAny);
+  }
+
+  /**
+   * Note that since java 9 count() may not run the pipeline at all when the size is known upfront;
+   * the summary will then show that nothing went through.
+   */
+  public long count() {
+    return terminal("count", stream::count);
+  }
+
+  public T reduce(T identity, BinaryOperator<T> accumulator) {
+    return terminal("reduce", () -> stream.reduce(identity, accumulator));
+  }
+
+  public <R, A> R collect(Collector<? super T, A, R> collector) {
+    return terminal("collect", () -> stream.collect(collector));
+  }
+
+  private <R> R terminal(String name, Supplier<R> operation) {
+    try {
+      return operation.get();
+    } finally {
+      stream.close();
+      tracer.finish(name);
+    }
+  }
+
+  /**
+   * Counters and recent events of one thread; only ever written by that thread.
+   *
+   * The counters are written with lazySet (an ordered store, as cheap as a plain one on x86, there being a single
+   * writer), so that {@link Tracer#finish} never reads a torn long. It may still read a count a few events behind
+   * from a thread still running; once the writers are done, the counts are exact.
+   */
+  private static final class ThreadTrace {
+    final String threadName = Thread.currentThread().getName();
+    final AtomicLongArray in;
+    final AtomicLongArray out;
+    final AtomicLongArray calls;
+    final AtomicLongArray nanos;
+    final int[] ringStages = new int[RING_SIZE];
+    final Object[] ringElements = new Object[RING_SIZE];
+    final AtomicLong events = new AtomicLong();
+
+    ThreadTrace(int stages) {
+      in = new AtomicLongArray(stages);
+      out = new AtomicLongArray(stages);
+      calls = new AtomicLongArray(stages);
+      nanos = new AtomicLongArray(stages);
+    }
+
+    void event(int stage, Object element) {
+      long event = events.get();
+      int slot = (int) (event % RING_SIZE);
+      ringStages[slot] = stage;
+      ringElements[slot] = element;
+      events.lazySet(event + 1);
+    }
+
+    void call(int stage, long start, boolean passed) {
+      add(nanos, stage, System.nanoTime() - start);
+      add(calls, stage, 1);
+      add(in, stage, 1);
+      if (passed) {
+        add(out, stage, 1);
+      }
+    }
+
+    static void add(AtomicLongArray counters, int stage, long delta) {
+      counters.lazySet(stage, counters.get(stage) + delta);
+    }
+  }
+
+  private static final class Tracer {
+    private final Consumer<? super TraceSummary> onTerminal;
+    private final long sourceSize;
+    private final List<String> stageNames = new ArrayList<>();
+    private final Queue<ThreadTrace> threads = new ConcurrentLinkedQueue<>();
+    private final ThreadLocal<ThreadTrace> local = ThreadLocal.withInitial(() -> {
+      ThreadTrace trace = new ThreadTrace(stageNames.size());
+      threads.add(trace);
+      return trace;
+    });
+
+    Tracer(Consumer<? super TraceSummary> onTerminal, long sourceSize) {
+      this.onTerminal = onTerminal;
+      this.sourceSize = sourceSize;
+    }
+
+    /**
+     * Stages are only added while the pipeline is built, i.e. before any element flows through it.
+     */
+    int stage(String name) {
+      stageNames.add(name);
+      return stageNames.size() - 1;
+    }
+
+    void pass(int stage, Object element) {
+      ThreadTrace trace = local.get();
+      ThreadTrace.add(trace.in, stage, 1);
+      ThreadTrace.add(trace.out, stage, 1);
+      trace.event(stage, element);
+    }
+
+    void arrive(int stage) {
+      ThreadTrace.add(local.get().in, stage, 1);
+    }
+
+    void leave(int stage) {
+      ThreadTrace.add(local.get().out, stage, 1);
+    }
+
+    <E> boolean test(int stage, Predicate<? super E> predicate, E element) {
+      ThreadTrace trace = local.get();
+      trace.event(stage, element);
+      long start = System.nanoTime();
+      boolean result = predicate.test(element);
+      trace.call(stage, start, result);
+      return result;
+    }
+
+    <E, R> R apply(int stage, Function<? super E, ? extends R> mapper, E element) {
+      ThreadTrace trace = local.get();
+      trace.event(stage, element);
+      long start = System.nanoTime();
+      R result = mapper.apply(element);
+      trace.call(stage, start, true);
+      return result;
+    }
+
+    <E> void accept(int stage, Consumer<? super E> action, E element) {
+      ThreadTrace trace = local.get();
+      trace.event(stage, element);
+      long start = System.nanoTime();
+      action.accept(element);
+      trace.call(stage, start, true);
+    }
+
+    <E> int compare(int stage, Comparator<? super E> comparator, E element1, E element2) {
+      ThreadTrace trace = local.get();
+      trace.event(stage, element1);
+      long start = System.nanoTime();
+      int result = comparator.compare(element1, element2);
+      ThreadTrace.add(trace.nanos, stage, System.nanoTime() - start);
+      ThreadTrace.add(trace.calls, stage, 1);
+      return result;
+    }
+
+    void finish(String terminal) {
+      List<TraceSummary.Stage> stages = new ArrayList<>(stageNames.size());
+      for (int stage = 0; stage < stageNames.size(); stage++) {
+        long in = 0;
+        long out = 0;
+        long calls = 0;
+        long nanos = 0;
+        for (ThreadTrace trace : threads) {
+          in += trace.in.get(stage);
+          out += trace.out.get(stage);
+          calls += trace.calls.get(stage);
+          nanos += trace.nanos.get(stage);
+        }
+        stages.add(new TraceSummary.Stage(stageNames.get(stage), in, out, calls, nanos));
+      }
+
+      List<String> recentEvents = new ArrayList<>();
+      for (ThreadTrace trace : threads) {
+        long events = trace.events.get();
+        for (long event = Math.max(0, events - RING_SIZE); event < events; event++) {
+          int slot = (int) (event % RING_SIZE);
+          recentEvents.add("[" + trace.threadName + "] " + stageNames.get(trace.ringStages[slot]) + ": " + trace.ringElements[slot]);
+        }
+        // the traces stay in the ThreadLocalMaps of the pool's threads until the JVM expunges them: keep no elements there
+        Arrays.fill(trace.ringElements, null);
+      }
+
+      onTerminal.accept(new TraceSummary(terminal, stages, sourceSize, recentEvents));
+    }
+  }
+}
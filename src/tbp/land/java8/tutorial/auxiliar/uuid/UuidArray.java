@@ -0,0 +1,324 @@
+package tbp.land.java8.tutorial.auxiliar.uuid;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Spliterator;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * UUIDs packed as two {@code long[]} columns: 16 bytes per UUID, instead of the 80+ bytes of a
+ * {@code UUID.randomUUID().toString()} String (header, fields, backing array and the reference to it).
+ *
+ * The order used everywhere here is the order of the canonical Strings: {@link String#compareTo} on
+ * "xxxxxxxx-xxxx-..." (lowercase hex, dashes at fixed positions) is the same as comparing the most significant
+ * bits and then the least significant bits as <b>unsigned</b> numbers.
+ * Note that this is not {@link UUID#compareTo}, which compares them as signed numbers.
+ *
+ * {@link #sort()} and {@link #parallelSort()} are LSD radix sorts, one byte per pass.
+ * Not thread safe while it is being modified.
+ */
+public final class UuidArray {
+
+  private static final int RADIX = 256;
+  private static final int PASSES = 2 * Long.BYTES;
+
+  /**
+   * Below this many UUIDs per chunk, splitting the radix passes over more threads does not pay off.
+   */
+  private static final int MIN_PARALLEL_CHUNK = 1 << 16;
+
+  private long[] mostSigBits;
+  private long[] leastSigBits;
+  private int size;
+  private boolean sorted = true;
+
+  public UuidArray() {
+    this(16);
+  }
+
+  public UuidArray(int initialCapacity) {
+    if (initialCapacity < 0) {
+      throw new IllegalArgumentException("initialCapacity must not be negative: " + initialCapacity);
+    }
+    mostSigBits = new long[initialCapacity];
+    leastSigBits = new long[initialCapacity];
+  }
+
+  /**
+   * @param uuids canonical UUID strings, see {@link UuidStrings}
+   */
+  public static UuidArray ofStrings(Collection<String> uuids) {
+    UuidArray array = new UuidArray(uuids.size());
+    uuids.forEach(array::add);
+    return array;
+  }
+
+  /**
+   * Uses the given arrays as they are, without copying them.
+   */
+  static UuidArray wrap(long[] mostSigBits, long[] leastSigBits) {
+    UuidArray array = new UuidArray(0);
+    array.mostSigBits = mostSigBits;
+    array.leastSigBits = leastSigBits;
+    array.size = mostSigBits.length;
+    array.sorted = array.size <= 1;
+    return array;
+  }
+
+  public void add(String uuid) {
+    add(UuidStrings.parseMostSignificantBits(uuid), UuidStrings.parseLeastSignificantBits(uuid));
+  }
+
+  public void add(UUID uuid) {
+    add(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+  }
+
+  public void add(long mostSig, long leastSig) {
+    if (size == mostSigBits.length) {
+      int newCapacity = Math.max(16, size + (size >> 1));
+      mostSigBits = Arrays.copyOf(mostSigBits, newCapacity);
+      leastSigBits = Arrays.copyOf(leastSigBits, newCapacity);
+    }
+    mostSigBits[size] = mostSig;
+    leastSigBits[size] = leastSig;
+    if (sorted && size > 0 && compare(size - 1, mostSig, leastSig) > 0) {
+      sorted = false;
+    }
+    size++;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public long getMostSignificantBits(int index) {
+    checkIndex(index);
+    return mostSigBits[index];
+  }
+
+  public long getLeastSignificantBits(int index) {
+    checkIndex(index);
+    return leastSigBits[index];
+  }
+
+  public UUID get(int index) {
+    checkIndex(index);
+    return new UUID(mostSigBits[index], leastSigBits[index]);
+  }
+
+  public String getString(int index) {
+    checkIndex(index);
+    return UuidStrings.toString(mostSigBits[index], leastSigBits[index]);
+  }
+
+  /**
+   * Whether the UUIDs are known to be in (canonical String) order.
+   */
+  public boolean isSorted() {
+    return sorted;
+  }
+
+  public UuidArray copy() {
+    UuidArray copy = new UuidArray(0);
+    copy.mostSigBits = Arrays.copyOf(mostSigBits, size);
+    copy.leastSigBits = Arrays.copyOf(leastSigBits, size);
+    copy.size = size;
+    copy.sorted = sorted;
+    return copy;
+  }
+
+  public void sort() {
+    radixSort(false);
+  }
+
+  /**
+   * Histograms and scatters of every pass are split over the threads of the current fork/join pool.
+   */
+  public void parallelSort() {
+    radixSort(true);
+  }
+
+  /**
+   * The UUIDs as canonical Strings, created one at a time while the stream is consumed.
+   *
+   * When the array is sorted the stream says so (SORTED, natural order), so a following {@code sorted()}
+   * does nothing at all.
+   */
+  public Stream<String> strings() {
+    return StreamSupport.stream(new UuidSpliterator<>(this, 0, size, sorted, UuidStrings::toString), false);
+  }
+
+  /**
+   * The UUIDs as UUID objects; never reported as SORTED, because UUID's natural order is not this one.
+   */
+  public Stream<UUID> uuids() {
+    return StreamSupport.stream(new UuidSpliterator<>(this, 0, size, false, UUID::new), false);
+  }
+
+  private int compare(int index, long mostSig, long leastSig) {
+    int compared = Long.compareUnsigned(mostSigBits[index], mostSig);
+    return compared != 0 ? compared : Long.compareUnsigned(leastSigBits[index], leastSig);
+  }
+
+  private void checkIndex(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("index: " + index + ", size: " + size);
+    }
+  }
+
+  private void radixSort(boolean parallel) {
+    if (sorted) {
+      return;
+    }
+    int chunks = parallel ? Math.max(1, Math.min(4 * Runtime.getRuntime().availableProcessors(), size / MIN_PARALLEL_CHUNK)) : 1;
+    int chunkSize = (size + chunks - 1) / chunks;
+
+    long[] msb = mostSigBits;
+    long[] lsb = leastSigBits;
+    long[] msbTarget = new long[size];
+    long[] lsbTarget = new long[size];
+    int[][] offsets = new int[chunks][RADIX];
+
+    // least significant byte of the least significant long first, most significant byte of the most significant long last
+    for (int pass = 0; pass < PASSES; pass++) {
+      boolean ofMsb = pass >= Long.BYTES;
+      int shift = (pass % Long.BYTES) * Byte.SIZE;
+      long[] keys = ofMsb ? msb : lsb;
+
+      IntStream chunkIndexes = IntStream.range(0, chunks);
+      (chunks > 1 ? chunkIndexes.parallel() : chunkIndexes).forEach(chunk -> {
+        int[] counts = offsets[chunk];
+        Arrays.fill(counts, 0);
+        for (int i = chunk * chunkSize, to = Math.min(size, i + chunkSize); i < to; i++) {
+          counts[(int) (keys[i] >>> shift) & 0xFF]++;
+        }
+      });
+
+      if (!prefixSums(offsets)) {
+        continue;   // all the UUIDs have the same byte here, nothing would move
+      }
+
+      long[] fromMsb = msb;
+      long[] fromLsb = lsb;
+      long[] toMsb = msbTarget;
+      long[] toLsb = lsbTarget;
+      chunkIndexes = IntStream.range(0, chunks);
+      (chunks > 1 ? chunkIndexes.parallel() : chunkIndexes).forEach(chunk -> {
+        int[] positions = offsets[chunk];
+        for (int i = chunk * chunkSize, to = Math.min(size, i + chunkSize); i < to; i++) {
+          int position = positions[(int) (keys[i] >>> shift) & 0xFF]++;
+          toMsb[position] = fromMsb[i];
+          toLsb[position] = fromLsb[i];
+        }
+      });
+
+      msbTarget = msb;
+      lsbTarget = lsb;
+      msb = toMsb;
+      lsb = toLsb;
+    }
+
+    mostSigBits = msb;
+    leastSigBits = lsb;
+    sorted = true;
+  }
+
+  /**
+   * Turns the per chunk counts into the position where every chunk writes its first element of every byte value:
+   * all the chunks for byte 0, then all the chunks for byte 1, etc, which keeps the sort stable.
+   *
+   * @return false if a single byte value has all the elements, i.e. the pass can be skipped
+   */
+  private boolean prefixSums(int[][] offsets) {
+    int position = 0;
+    for (int digit = 0; digit < RADIX; digit++) {
+      int total = 0;
+      for (int[] counts : offsets) {
+        int count = counts[digit];
+        counts[digit] = position + total;
+        total += count;
+      }
+      if (total == size) {
+        return false;
+      }
+      position += total;
+    }
+    return true;
+  }
+
+  @FunctionalInterface
+  private interface UuidFactory<T> {
+    T create(long mostSigBits, long leastSigBits);
+  }
+
+  private static final class UuidSpliterator<T> implements Spliterator<T> {
+    private final UuidArray array;
+    private final boolean sorted;
+    private final UuidFactory<T> factory;
+    private int index;
+    private final int to;
+
+    UuidSpliterator(UuidArray array, int from, int to, boolean sorted, UuidFactory<T> factory) {
+      this.array = array;
+      this.index = from;
+      this.to = to;
+      this.sorted = sorted;
+      this.factory = factory;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+      if (index >= to) {
+        return false;
+      }
+      action.accept(factory.create(array.mostSigBits[index], array.leastSigBits[index]));
+      index++;
+      return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super T> action) {
+      long[] msb = array.mostSigBits;
+      long[] lsb = array.leastSigBits;
+      for (int i = index; i < to; i++) {
+        action.accept(factory.create(msb[i], lsb[i]));
+      }
+      index = to;
+    }
+
+    @Override
+    public Spliterator<T> trySplit() {
+      int middle = (index + to) >>> 1;
+      if (middle <= index) {
+        return null;
+      }
+      Spliterator<T> prefix = new UuidSpliterator<>(array, index, middle, sorted, factory);
+      index = middle;
+      return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+      return to - index;
+    }
+
+    @Override
+    public int characteristics() {
+      int characteristics = ORDERED | SIZED | SUBSIZED | NONNULL;
+      return sorted ? characteristics | SORTED : characteristics;
+    }
+
+    @Override
+    public Comparator<? super T> getComparator() {
+      if (sorted) {
+        return null;
+      }
+      throw new IllegalStateException();
+    }
+  }
+}
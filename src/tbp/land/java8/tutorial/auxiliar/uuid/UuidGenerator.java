@@ -0,0 +1,207 @@
+package tbp.land.java8.tutorial.auxiliar.uuid;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generates lots of random UUIDs in parallel, as a replacement for a {@code UUID.randomUUID()} loop.
+ *
+ * {@code UUID.randomUUID()} goes through a single shared SecureRandom, so it is slow and all the threads
+ * fight over it. Here the output arrays are allocated once, with their final size, and split into chunks
+ * by fork/join; every chunk gets its own {@link SplittableRandom#split()} and fills its own range of the arrays.
+ * There are no locks, and since every chunk writes straight into its final place, nothing has to be
+ * concatenated or copied at the end.
+ *
+ * The UUIDs are NOT cryptographically secure: use them as test data or keys, never as secrets.
+ * Given the same seed, a V4 generator always produces the same UUIDs, no matter how many threads are used.
+ */
+public final class UuidGenerator {
+
+  public enum Version {
+    /**
+     * 122 random bits.
+     */
+    V4,
+    /**
+     * 48 bits of unix time in milliseconds, followed by 74 random bits: roughly sorted by creation time.
+     */
+    V7
+  }
+
+  /**
+   * Number of UUIDs below which a chunk is not split any further.
+   */
+  private static final int CHUNK_SIZE = 1 << 14;
+
+  private final Version version;
+  private final long seed;
+
+  private UuidGenerator(Version version, long seed) {
+    this.version = version;
+    this.seed = seed;
+  }
+
+  public static UuidGenerator v4() {
+    return new UuidGenerator(Version.V4, new SplittableRandom().nextLong());
+  }
+
+  public static UuidGenerator v4(long seed) {
+    return new UuidGenerator(Version.V4, seed);
+  }
+
+  public static UuidGenerator v7() {
+    return new UuidGenerator(Version.V7, new SplittableRandom().nextLong());
+  }
+
+  public Version getVersion() {
+    return version;
+  }
+
+  public UUID next(SplittableRandom random) {
+    long mostSigBits = mostSigBits(random, System.currentTimeMillis());
+    return new UUID(mostSigBits, leastSigBits(random));
+  }
+
+  /**
+   * Packed UUIDs, see {@link UuidArray}.
+   */
+  public Generated<UuidArray> generate(int count) {
+    checkCount(count);
+    long start = System.nanoTime();
+    long[] mostSigBits = new long[count];
+    long[] leastSigBits = new long[count];
+    Fill fill = new Fill(new SplittableRandom(seed), 0, count, (random, from, to) -> {
+      long millis = System.currentTimeMillis();
+      for (int i = from; i < to; i++) {
+        mostSigBits[i] = mostSigBits(random, millis);
+        leastSigBits[i] = leastSigBits(random);
+      }
+    });
+    fill.invoke();
+    return new Generated<>(UuidArray.wrap(mostSigBits, leastSigBits), count, chunksOf(count), System.nanoTime() - start);
+  }
+
+  /**
+   * Canonical UUID Strings, in a fixed size list backed directly by the array they were generated into,
+   * so its spliterator is SIZED and SUBSIZED and splits evenly for parallel streams.
+   */
+  public Generated<List<String>> generateStrings(int count) {
+    checkCount(count);
+    long start = System.nanoTime();
+    String[] values = new String[count];
+    Fill fill = new Fill(new SplittableRandom(seed), 0, count, (random, from, to) -> {
+      long millis = System.currentTimeMillis();
+      for (int i = from; i < to; i++) {
+        long mostSigBits = mostSigBits(random, millis);
+        values[i] = UuidStrings.toString(mostSigBits, leastSigBits(random));
+      }
+    });
+    fill.invoke();
+    return new Generated<>(Arrays.asList(values), count, chunksOf(count), System.nanoTime() - start);
+  }
+
+  private long mostSigBits(SplittableRandom random, long millis) {
+    if (version == Version.V7) {
+      // unix_ts_ms(48) | ver(4) | rand_a(12)
+      return (millis << 16) | 0x7000L | (random.nextLong() & 0x0FFFL);
+    }
+    // random(48) | ver(4) | random(12)
+    return (random.nextLong() & ~0xF000L) | 0x4000L;
+  }
+
+  private static long leastSigBits(SplittableRandom random) {
+    // var(2) | random(62)
+    return (random.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+  }
+
+  /**
+   * Number of leaves {@link Fill} ends up with.
+   */
+  private static int chunksOf(int count) {
+    return count <= CHUNK_SIZE ? 1 : chunksOf(count >>> 1) + chunksOf(count - (count >>> 1));
+  }
+
+  private static void checkCount(int count) {
+    if (count < 0) {
+      throw new IllegalArgumentException("count must not be negative: " + count);
+    }
+  }
+
+  @FunctionalInterface
+  private interface RangeFiller {
+    void fill(SplittableRandom random, int from, int to);
+  }
+
+  /**
+   * Splits [from, to) in halves until a chunk is small enough; each half gets its own split of the random.
+   */
+  private static final class Fill extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final SplittableRandom random;
+    private final int from;
+    private final int to;
+    private final RangeFiller filler;
+
+    Fill(SplittableRandom random, int from, int to, RangeFiller filler) {
+      this.random = random;
+      this.from = from;
+      this.to = to;
+      this.filler = filler;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from <= CHUNK_SIZE) {
+        filler.fill(random, from, to);
+        return;
+      }
+      int middle = (from + to) >>> 1;
+      Fill left = new Fill(random.split(), from, middle, filler);
+      Fill right = new Fill(random, middle, to, filler);
+      invokeAll(left, right);
+    }
+  }
+
+  /**
+   * The generated values, together with how long it took to generate them.
+   */
+  public static final class Generated<T> {
+    private final T values;
+    private final int count;
+    private final int chunks;
+    private final long elapsedNanos;
+
+    Generated(T values, int count, int chunks, long elapsedNanos) {
+      this.values = values;
+      this.count = count;
+      this.chunks = chunks;
+      this.elapsedNanos = elapsedNanos;
+    }
+
+    public T getValues() {
+      return values;
+    }
+
+    public int getCount() {
+      return count;
+    }
+
+    public int getChunks() {
+      return chunks;
+    }
+
+    public long getElapsedNanos() {
+      return elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("generated %d UUIDs in %d chunks in %d ms", count, chunks, TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+    }
+  }
+}
@@ -0,0 +1,93 @@
+package tbp.land.java8.tutorial.auxiliar.uuid;
+
+import java.util.UUID;
+
+/**
+ * Conversions between the canonical text form of a UUID ("123e4567-e89b-12d3-a456-426614174000",
+ * lowercase, 36 chars, which is what {@link UUID#toString()} produces) and its two longs.
+ *
+ * Unlike {@link UUID#fromString(String)} the parsing is strict: anything which would not come back
+ * as exactly the same String is rejected with an IllegalArgumentException.
+ */
+public final class UuidStrings {
+
+  public static final int LENGTH = 36;
+
+  private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+  private UuidStrings() {
+  }
+
+  public static long parseMostSignificantBits(CharSequence uuid) {
+    checkLength(uuid);
+    checkDash(uuid, 8);
+    checkDash(uuid, 13);
+    long bits = 0;
+    bits = appendHex(bits, uuid, 0, 8);
+    bits = appendHex(bits, uuid, 9, 13);
+    bits = appendHex(bits, uuid, 14, 18);
+    return bits;
+  }
+
+  public static long parseLeastSignificantBits(CharSequence uuid) {
+    checkLength(uuid);
+    checkDash(uuid, 18);
+    checkDash(uuid, 23);
+    long bits = 0;
+    bits = appendHex(bits, uuid, 19, 23);
+    bits = appendHex(bits, uuid, 24, 36);
+    return bits;
+  }
+
+  /**
+   * Same result as {@code new UUID(mostSigBits, leastSigBits).toString()}.
+   */
+  public static String toString(long mostSigBits, long leastSigBits) {
+    char[] chars = new char[LENGTH];
+    formatHex(mostSigBits >>> 32, chars, 0, 8);
+    chars[8] = '-';
+    formatHex(mostSigBits >>> 16, chars, 9, 4);
+    chars[13] = '-';
+    formatHex(mostSigBits, chars, 14, 4);
+    chars[18] = '-';
+    formatHex(leastSigBits >>> 48, chars, 19, 4);
+    chars[23] = '-';
+    formatHex(leastSigBits, chars, 24, 12);
+    return new String(chars);
+  }
+
+  private static void checkLength(CharSequence uuid) {
+    if (uuid.length() != LENGTH) {
+      throw new IllegalArgumentException("not a canonical UUID (length " + uuid.length() + "): " + uuid);
+    }
+  }
+
+  private static void checkDash(CharSequence uuid, int index) {
+    if (uuid.charAt(index) != '-') {
+      throw new IllegalArgumentException("not a canonical UUID (no '-' at " + index + "): " + uuid);
+    }
+  }
+
+  private static long appendHex(long bits, CharSequence uuid, int from, int to) {
+    for (int i = from; i < to; i++) {
+      char c = uuid.charAt(i);
+      int digit;
+      if (c >= '0' && c <= '9') {
+        digit = c - '0';
+      } else if (c >= 'a' && c <= 'f') {
+        digit = c - 'a' + 10;
+      } else {
+        throw new IllegalArgumentException("not a canonical UUID ('" + c + "' at " + i + "): " + uuid);
+      }
+      bits = (bits << 4) | digit;
+    }
+    return bits;
+  }
+
+  private static void formatHex(long bits, char[] chars, int offset, int digits) {
+    for (int i = offset + digits - 1; i >= offset; i--) {
+      chars[i] = HEX[(int) (bits & 0xF)];
+      bits >>>= 4;
+    }
+  }
+}